@@ -1,5 +1,5 @@
 /********************************************************************************
- * Copyright (c) 2023 Contributors to the Eclipse Foundation
+ * Copyright (c) 2023, 2024 Contributors to the Eclipse Foundation
  *
  * See the NOTICE file(s) distributed with this work for additional
  * information regarding copyright ownership.
@@ -14,6 +14,7 @@ package org.eclipse.jifa.gclog;
 
 import org.eclipse.jifa.analysis.AbstractApiExecutor;
 import org.eclipse.jifa.analysis.listener.ProgressListener;
+import org.eclipse.jifa.common.domain.exception.CommonException;
 import org.eclipse.jifa.gclog.model.GCModel;
 import org.eclipse.jifa.gclog.parser.GCLogAnalyzer;
 import org.eclipse.jifa.gclog.parser.GCLogParserFactory;
@@ -28,9 +29,28 @@ import java.util.function.Predicate;
 
 public class GCLogAnalysisApiExecutor extends AbstractApiExecutor<GCModel> {
 
+    private static final String PARALLELISM_OPTION = "parallelism";
+
     @Override
     protected GCModel buildAnalyzer(Path target, Map<String, String> options, ProgressListener listener) throws Throwable {
-        return new GCLogAnalyzer(target.toFile(), listener).parse();
+        return new GCLogAnalyzer(target.toFile(), listener, parallelism(options)).parse();
+    }
+
+    private static int parallelism(Map<String, String> options) {
+        String value = options != null ? options.get(PARALLELISM_OPTION) : null;
+        if (value == null || value.isBlank()) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new CommonException("Illegal " + PARALLELISM_OPTION + ": " + value);
+        }
+    }
+
+    @Override
+    protected double buildMemoryCostFactor() {
+        return 2.0;
     }
 
     @Override
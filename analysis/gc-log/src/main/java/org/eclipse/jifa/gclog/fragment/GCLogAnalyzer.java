@@ -1,5 +1,5 @@
 /********************************************************************************
- * Copyright (c) 2023 Contributors to the Eclipse Foundation
+ * Copyright (c) 2023, 2024 Contributors to the Eclipse Foundation
  *
  * See the NOTICE file(s) distributed with this work for additional
  * information regarding copyright ownership.
@@ -14,6 +14,7 @@ package org.eclipse.jifa.gclog.fragment;
 
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jifa.analysis.listener.ProgressListener;
 import org.eclipse.jifa.gclog.model.GCModel;
 import org.eclipse.jifa.gclog.parser.GCLogParser;
 import org.eclipse.jifa.gclog.parser.GCLogParserFactory;
@@ -34,7 +35,7 @@ public class GCLogAnalyzer {
         GCModel model = parser.parse(br);
         br.close();
         if (!model.isEmpty()) {
-            model.calculateDerivedInfo(null);
+            model.calculateDerivedInfo(ProgressListener.NoOpProgressListener);
             return new GCModelConverter().toMetrics(model, instanceId, startTime, endTime);
         }
         return null;
@@ -49,7 +50,7 @@ public class GCLogAnalyzer {
             model = parser.parse(br);
             br.close();
             if (!model.isEmpty()) {
-                model.calculateDerivedInfo(null);
+                model.calculateDerivedInfo(ProgressListener.NoOpProgressListener);
             } else {
                 model = null;
             }
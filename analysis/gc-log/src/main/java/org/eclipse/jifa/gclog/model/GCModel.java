@@ -574,6 +574,7 @@ public abstract class GCModel {
 
         rebuildEventLists();
         // the structure of gcEvents and allEvents should not change after this line
+        progressListener.checkCanceled();
 
         // calculate derived data for events themselves
         calculateEventsInterval();
@@ -583,6 +584,7 @@ public abstract class GCModel {
         doAfterCalculatingDerivedInfo();
 
         // data in events should not change after this line
+        progressListener.checkCanceled();
         // calculate specific data prepared for route api, order of these calls doesn't matter
         calculateGcModelMetadata();
     }
@@ -1,5 +1,5 @@
 /********************************************************************************
- * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ * Copyright (c) 2022, 2024 Contributors to the Eclipse Foundation
  *
  * See the NOTICE file(s) distributed with this work for additional
  * information regarding copyright ownership.
@@ -14,20 +14,37 @@
 package org.eclipse.jifa.gclog.parser;
 
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jifa.analysis.listener.ProgressListener;
+import org.eclipse.jifa.analysis.util.LineScanner;
+import org.eclipse.jifa.common.util.ExecutorFactory;
 import org.eclipse.jifa.gclog.event.Safepoint;
 import org.eclipse.jifa.gclog.model.GCModel;
 import org.eclipse.jifa.gclog.model.GCModelFactory;
 import org.eclipse.jifa.gclog.parser.ParseRule.ParseRuleContext;
 
 import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
+import static org.eclipse.jifa.analysis.listener.ProgressListener.NoOpProgressListener;
 import static org.eclipse.jifa.gclog.util.Constant.MS2S;
 
 @Slf4j
 public abstract class AbstractGCLogParser implements GCLogParser {
+    // number of lines between two checks of cancellation
+    private static final int CANCELLATION_CHECK_INTERVAL = 4096;
+    // number of lines prepared by a worker at a time when parsing in pipeline
+    private static final int CHUNK_SIZE = 1024;
+
     private GCModel model;
     private GCLogParsingMetadata metadata;
+    private int parallelism = 1;
 
     public GCLogParsingMetadata getMetadata() {
         return metadata;
@@ -41,12 +58,58 @@ public abstract class AbstractGCLogParser implements GCLogParser {
         return model;
     }
 
+    @Override
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
     // for the sake of performance, will try to use less regular expression
     public final GCModel parse(BufferedReader br) throws Exception {
+        return parse(br, NoOpProgressListener);
+    }
+
+    @Override
+    public final GCModel parse(BufferedReader br, ProgressListener listener) throws Exception {
+        return doParse(br::readLine, listener);
+    }
+
+    @Override
+    public final GCModel parse(LineScanner scanner, ProgressListener listener) throws Exception {
+        return doParse(() -> {
+            while (scanner.next()) {
+                // skip the lines on the raw bytes so that no string is created for them
+                if (scanner.length() > 0 && acceptsLine(scanner)) {
+                    return scanner.line();
+                }
+            }
+            return null;
+        }, listener);
+    }
+
+    private GCModel doParse(LineSource source, ProgressListener listener) throws Exception {
         model = GCModelFactory.getModel(metadata.getCollector());
         model.setLogStyle(metadata.getStyle());
+        if (parallelism > 1 && preparesLinesConcurrently()) {
+            parseInPipeline(source, listener);
+        } else {
+            parseSerially(source, listener);
+        }
+        try {
+            endParsing();
+        } catch (Exception e) {
+            log.debug("fail to end parsing, {}", e.getMessage());
+        }
+
+        return model;
+    }
+
+    private void parseSerially(LineSource source, ProgressListener listener) throws Exception {
         String line;
-        while ((line = br.readLine()) != null) {
+        int lines = 0;
+        while ((line = source.readLine()) != null) {
+            if (++lines % CANCELLATION_CHECK_INTERVAL == 0) {
+                listener.checkCanceled();
+            }
             try {
                 if (line.length() > 0) {
                     doParseLine(line);
@@ -55,17 +118,131 @@ public abstract class AbstractGCLogParser implements GCLogParser {
                 log.debug("fail to parse \"{}\", {}", line, e.getMessage());
             }
         }
+    }
+
+    /*
+     * The lines are read by the calling thread and prepared by the workers chunk by chunk, and the prepared lines are
+     * parsed by the calling thread in the order of the log. Only the preparation runs in parallel because parsing a
+     * line depends on the events parsed before it, e.g. a concurrent cycle of G1 spans the young gcs logged during it.
+     *
+     * The workers are shared by all parsers and never block, at most parallelism * 2 chunks of a log are in flight.
+     */
+    private void parseInPipeline(LineSource source, ProgressListener listener) throws Exception {
+        // bounds the memory held by the chunks that are read but not parsed yet
+        int window = parallelism * 2;
+        Deque<CompletableFuture<Chunk>> chunks = new ArrayDeque<>(window);
         try {
-            endParsing();
-        } catch (Exception e) {
-            log.debug("fail to parse \"{}\", {}", line, e.getMessage());
+            List<String> lines = new ArrayList<>(CHUNK_SIZE);
+            String line;
+            while ((line = source.readLine()) != null) {
+                lines.add(line);
+                if (lines.size() == CHUNK_SIZE) {
+                    if (chunks.size() == window) {
+                        parsePrepared(get(chunks.poll()));
+                        listener.checkCanceled();
+                    }
+                    chunks.add(prepareAsync(lines));
+                    lines = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+            if (!lines.isEmpty()) {
+                chunks.add(prepareAsync(lines));
+            }
+            while (!chunks.isEmpty()) {
+                parsePrepared(get(chunks.poll()));
+                listener.checkCanceled();
+            }
+        } finally {
+            // the chunks not prepared yet are dropped if parsing fails or is canceled
+            chunks.forEach(chunk -> chunk.cancel(false));
         }
+    }
 
-        return model;
+    private CompletableFuture<Chunk> prepareAsync(List<String> lines) {
+        return CompletableFuture.supplyAsync(() -> prepare(lines), PreparationExecutor.INSTANCE);
+    }
+
+    private void parsePrepared(Chunk chunk) {
+        for (int i = 0; i < chunk.lines.size(); i++) {
+            Object prepared = chunk.prepared[i];
+            if (prepared == null) {
+                continue;
+            }
+            try {
+                doParsePreparedLine(prepared);
+            } catch (Exception e) {
+                log.debug("fail to parse \"{}\", {}", chunk.lines.get(i), e.getMessage());
+            }
+        }
+    }
+
+    private Chunk prepare(List<String> lines) {
+        Object[] prepared = new Object[lines.size()];
+        for (int i = 0; i < prepared.length; i++) {
+            String line = lines.get(i);
+            try {
+                if (line.length() > 0) {
+                    prepared[i] = prepareLine(line);
+                }
+            } catch (Exception e) {
+                log.debug("fail to parse \"{}\", {}", line, e.getMessage());
+            }
+        }
+        return new Chunk(lines, prepared);
+    }
+
+    private static <T> T get(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception exception) {
+                throw exception;
+            }
+            throw e;
+        }
     }
 
     protected abstract void doParseLine(String line);
 
+    /**
+     * Check the current line of the scanner on the raw bytes before a string is created for it.
+     *
+     * @param scanner the scanner, the current line is not empty
+     * @return false if the line is definitely ignored by this parser
+     */
+    protected boolean acceptsLine(LineScanner scanner) {
+        return true;
+    }
+
+    /**
+     * @return true if {@link #prepareLine(String)} does the costly part of parsing a line, so that the lines are
+     * worth being prepared in parallel when the parallelism is greater than 1
+     */
+    protected boolean preparesLinesConcurrently() {
+        return false;
+    }
+
+    /**
+     * Prepare a line for parsing, may be called by multiple threads concurrently and thus must not touch the model.
+     *
+     * @param line the line, not empty
+     * @return the prepared line that will be passed to {@link #doParsePreparedLine(Object)},
+     * or null if the line should be skipped
+     */
+    protected Object prepareLine(String line) {
+        return line;
+    }
+
+    /**
+     * Parse a line prepared by {@link #prepareLine(String)}, lines are parsed in the order of the log.
+     *
+     * @param prepared the prepared line
+     */
+    protected void doParsePreparedLine(Object prepared) {
+        doParseLine((String) prepared);
+    }
+
     protected void endParsing() {
     }
 
@@ -95,4 +272,23 @@ public abstract class AbstractGCLogParser implements GCLogParser {
         safepoint.setTimeToEnter(timeToEnter);
         getModel().addSafepoint(safepoint);
     }
+
+    // created on the first parsing in pipeline
+    private static class PreparationExecutor {
+        private static final Executor INSTANCE = ExecutorFactory.newExecutor("GC Log Parser");
+    }
+
+    private interface LineSource {
+        String readLine() throws IOException;
+    }
+
+    private static class Chunk {
+        private final List<String> lines;
+        private final Object[] prepared;
+
+        private Chunk(List<String> lines, Object[] prepared) {
+            this.lines = lines;
+            this.prepared = prepared;
+        }
+    }
 }
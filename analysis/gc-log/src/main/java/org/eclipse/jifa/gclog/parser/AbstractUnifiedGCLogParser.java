@@ -1,5 +1,5 @@
 /********************************************************************************
- * Copyright (c) 2022, 2023 Contributors to the Eclipse Foundation
+ * Copyright (c) 2022, 2024 Contributors to the Eclipse Foundation
  *
  * See the NOTICE file(s) distributed with this work for additional
  * information regarding copyright ownership.
@@ -18,6 +18,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.apache.commons.lang3.StringUtils;
+import org.eclipse.jifa.analysis.util.LineScanner;
 import org.eclipse.jifa.gclog.model.GCModel;
 import org.eclipse.jifa.gclog.util.Constant;
 import org.eclipse.jifa.gclog.util.GCLogUtil;
@@ -59,10 +60,80 @@ public abstract class AbstractUnifiedGCLogParser extends AbstractGCLogParser {
 
     @Override
     protected final void doParseLine(String line) {
+        Object prepared = prepareLine(line);
+        if (prepared != null) {
+            doParsePreparedLine(prepared);
+        }
+    }
+
+    private static final byte[] INFO_LOG_LEVEL = LineScanner.bytesOf("info");
+    private static final byte[][] OTHER_LOG_LEVELS = {
+            LineScanner.bytesOf("error"), LineScanner.bytesOf("warning"),
+            LineScanner.bytesOf("debug"), LineScanner.bytesOf("trace")};
+
+    /*
+     * Lines of other levels than info are skipped by JDK11LogLine.isValid, and they make up most of the log when
+     * -Xlog:gc*=debug is used. The bracketed parts are checked in the same way as parseJDK11LogLine does.
+     */
+    @Override
+    protected boolean acceptsLine(LineScanner scanner) {
+        boolean info = true;
+        int left = scanner.indexOf((byte) '[', 0);
+        while (left >= 0) {
+            int right = scanner.indexOf((byte) ']', left + 1);
+            if (right < 0) {
+                // let parseJDK11LogLine decide
+                return true;
+            }
+            int from = left + 1;
+            int to = right;
+            while (from < to && (scanner.byteAt(from) & 0xFF) <= ' ') {
+                from++;
+            }
+            while (to > from && (scanner.byteAt(to - 1) & 0xFF) <= ' ') {
+                to--;
+            }
+            if (isDecoration(scanner, from, to, INFO_LOG_LEVEL)) {
+                info = true;
+            } else {
+                for (byte[] level : OTHER_LOG_LEVELS) {
+                    if (isDecoration(scanner, from, to, level)) {
+                        info = false;
+                        break;
+                    }
+                }
+            }
+            left = scanner.indexOf((byte) '[', right + 1);
+        }
+        return info;
+    }
+
+    private static boolean isDecoration(LineScanner scanner, int from, int to, byte[] decoration) {
+        return to - from == decoration.length && scanner.regionMatches(from, decoration);
+    }
+
+    @Override
+    protected final boolean preparesLinesConcurrently() {
+        return true;
+    }
+
+    // decorations are parsed without touching the model, so that this can be done in parallel
+    @Override
+    protected final Object prepareLine(String line) {
         JDK11LogLine logLine = parseJDK11LogLine(line);
         if (logLine == null || !logLine.isValid()) {
-            return;
+            return null;
         }
+        if (logLine.getUptime() == Constant.UNKNOWN_DOUBLE) {
+            // the timestamp is needed to calculate the uptime
+            logLine.getTimestamp();
+        }
+        return logLine;
+    }
+
+    @Override
+    protected final void doParsePreparedLine(Object prepared) {
+        JDK11LogLine logLine = (JDK11LogLine) prepared;
         doBeforeParsingLine(logLine);
         if (logLine.getGcid() == Constant.UNKNOWN_INT) {
             doParseLineWithoutGCID(logLine.getDetail(), logLine.getUptime());
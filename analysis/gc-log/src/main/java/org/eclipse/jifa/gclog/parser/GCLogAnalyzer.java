@@ -1,5 +1,5 @@
 /********************************************************************************
- * Copyright (c) 2022, 2023 Contributors to the Eclipse Foundation
+ * Copyright (c) 2022, 2024 Contributors to the Eclipse Foundation
  *
  * See the NOTICE file(s) distributed with this work for additional
  * information regarding copyright ownership.
@@ -16,56 +16,58 @@ package org.eclipse.jifa.gclog.parser;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.jifa.analysis.listener.DefaultProgressListener;
 import org.eclipse.jifa.analysis.listener.ProgressListener;
+import org.eclipse.jifa.analysis.util.LineScanner;
 import org.eclipse.jifa.common.domain.exception.CommonException;
 import org.eclipse.jifa.gclog.model.GCModel;
 
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
-import java.io.IOException;
 
 @Slf4j
 public class GCLogAnalyzer {
     private final File file;
     private final ProgressListener listener;
-
-    private final int MAX_SINGLE_LINE_LENGTH = 2048; // max length in hotspot
+    private final int parallelism;
 
     public GCLogAnalyzer(File file, ProgressListener listener) {
+        this(file, listener, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism the number of threads used to parse the log, the log is parsed by the calling thread if
+     *                    it is less than 2
+     */
+    public GCLogAnalyzer(File file, ProgressListener listener, int parallelism) {
         this.file = file;
         this.listener = listener;
+        this.parallelism = parallelism;
     }
 
     public GCModel parse() throws Exception {
-        BufferedReader br = null;
         try {
-            br = new BufferedReader(new FileReader(file));
             listener.beginTask("Paring " + file.getName(), 1000);
             listener.sendUserMessage(ProgressListener.Level.INFO, "Deciding gc log format.", null);
 
             // decide log format
-
-            GCLogParserFactory logParserFactory = new GCLogParserFactory();
-            br.mark(GCLogParserFactory.MAX_ATTEMPT_LINE * MAX_SINGLE_LINE_LENGTH);
-            GCLogParser parser = logParserFactory.getParser(br);
-            listener.worked(100);
-
-            try {
-                br.reset();
-            } catch (IOException e) {
-                // Recreate stream in case mark invalid. This is unlikely but possible when the log
-                // contains undesired characters
-                br.close();
-                br = new BufferedReader(new FileReader(file));
+            GCLogParser parser;
+            try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+                parser = new GCLogParserFactory().getParser(br);
             }
+            listener.worked(100);
 
-            // read original info from log file
+            // read original info from log file, the file is scanned on the mapped bytes
             listener.sendUserMessage(ProgressListener.Level.INFO, "Parsing gc log file.", null);
-            GCModel model = parser.parse(br);
+            parser.setParallelism(parallelism);
+            GCModel model;
+            try (LineScanner scanner = new LineScanner(file.toPath())) {
+                model = parser.parse(scanner, listener);
+            }
             if (model.isEmpty()) {
                 throw new CommonException("Fail to find any gc event in this log.");
             }
             listener.worked(500);
+            listener.checkCanceled();
 
             // calculate derived info for query from original info
             listener.sendUserMessage(ProgressListener.Level.INFO, "Calculating information from original data.", null);
@@ -75,10 +77,6 @@ public class GCLogAnalyzer {
         } catch (Exception e) {
             log.info("fail to parse gclog {}: {}", file.getName(), e.getMessage());
             throw e;
-        } finally {
-            if (br != null) {
-                br.close();
-            }
         }
     }
 }
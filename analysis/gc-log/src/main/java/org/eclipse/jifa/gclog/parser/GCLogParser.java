@@ -1,5 +1,5 @@
 /********************************************************************************
- * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ * Copyright (c) 2022, 2024 Contributors to the Eclipse Foundation
  *
  * See the NOTICE file(s) distributed with this work for additional
  * information regarding copyright ownership.
@@ -13,10 +13,34 @@
 
 package org.eclipse.jifa.gclog.parser;
 
+import org.eclipse.jifa.analysis.listener.ProgressListener;
+import org.eclipse.jifa.analysis.util.LineScanner;
 import org.eclipse.jifa.gclog.model.GCModel;
 
 import java.io.BufferedReader;
 
 public interface GCLogParser {
     GCModel parse(BufferedReader br) throws Exception;
+
+    /**
+     * Set the number of threads used to parse the log, the log is parsed by the calling thread if it is less than 2.
+     */
+    default void setParallelism(int parallelism) {
+    }
+
+    /**
+     * Parse the log, the parsing is aborted if the cancellation is requested by the listener.
+     */
+    default GCModel parse(BufferedReader br, ProgressListener listener) throws Exception {
+        listener.checkCanceled();
+        return parse(br);
+    }
+
+    /**
+     * Parse the log read by the scanner, the parsing is aborted if the cancellation is requested by the listener.
+     */
+    default GCModel parse(LineScanner scanner, ProgressListener listener) throws Exception {
+        // the parsers that do not scan the bytes read the lines of the scanner through a reader
+        return parse(new BufferedReader(new LineScannerReader(scanner)), listener);
+    }
 }
@@ -0,0 +1,67 @@
+/********************************************************************************
+ * Copyright (c) 2024 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.eclipse.jifa.gclog.parser;
+
+import org.eclipse.jifa.analysis.util.LineScanner;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A reader of the lines of a scanner, each line is followed by '\n'. The scanner is not closed by this reader.
+ */
+class LineScannerReader extends Reader {
+
+    private final LineScanner scanner;
+
+    private String line = "";
+
+    // the position in the line, the line feed is at the length of the line
+    private int position = 1;
+
+    LineScannerReader(LineScanner scanner) {
+        this.scanner = scanner;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        int read = 0;
+        while (read < length) {
+            if (position > line.length()) {
+                if (!scanner.next()) {
+                    break;
+                }
+                line = scanner.line();
+                position = 0;
+            }
+            if (position == line.length()) {
+                buffer[offset + read++] = '\n';
+                position++;
+            } else {
+                int n = Math.min(length - read, line.length() - position);
+                line.getChars(position, position + n, buffer, offset + read);
+                position += n;
+                read += n;
+            }
+        }
+        return read > 0 ? read : -1;
+    }
+
+    @Override
+    public void close() {
+    }
+}
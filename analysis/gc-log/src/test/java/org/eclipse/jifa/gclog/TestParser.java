@@ -14,6 +14,7 @@
 package org.eclipse.jifa.gclog;
 
 import org.eclipse.jifa.analysis.listener.DefaultProgressListener;
+import org.eclipse.jifa.analysis.util.LineScanner;
 import org.eclipse.jifa.gclog.event.GCEvent;
 import org.eclipse.jifa.gclog.event.Safepoint;
 import org.eclipse.jifa.gclog.event.ThreadEvent;
@@ -41,7 +42,11 @@ import org.eclipse.jifa.gclog.vo.TimeRange;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
+import java.nio.file.Files;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.eclipse.jifa.gclog.TestUtil.stringToBufferedReader;
 import static org.eclipse.jifa.gclog.event.eventInfo.GCCause.ALLOCATION_FAILURE;
@@ -1150,4 +1155,57 @@ public class TestParser {
             }
         }
     }
+
+    @Test
+    public void testParseInPipeline() throws Exception {
+        for (String name : List.of("11G1Parser.log", "11ZGCParser.log", "11CMSGCParser.log", "8CMSParser.log")) {
+            // repeat the log so that it is split into multiple chunks
+            StringBuilder sb = new StringBuilder();
+            String content = TestUtil.getGCLog(name).lines().collect(Collectors.joining("\n", "", "\n"));
+            for (int i = 0; i < 200; i++) {
+                sb.append(content);
+            }
+            String log = sb.toString();
+
+            GCLogParser serial = new GCLogParserFactory().getParser(stringToBufferedReader(log));
+            serial.setParallelism(1);
+            GCModel expected = serial.parse(stringToBufferedReader(log));
+            GCLogParser pipelined = new GCLogParserFactory().getParser(stringToBufferedReader(log));
+            pipelined.setParallelism(4);
+            GCModel actual = pipelined.parse(stringToBufferedReader(log));
+
+            Assertions.assertFalse(expected.isEmpty());
+            Assertions.assertEquals(expected.getAllEvents().toString(), actual.getAllEvents().toString(), name);
+            Assertions.assertEquals(expected.getSafepoints().toString(), actual.getSafepoints().toString(), name);
+            Assertions.assertEquals(expected.getStartTime(), actual.getStartTime(), DELTA);
+            Assertions.assertEquals(expected.getEndTime(), actual.getEndTime(), DELTA);
+        }
+    }
+
+    @Test
+    public void testParseWithLineScanner() throws Exception {
+        for (String name : List.of("11G1Parser.log", "11ZGCParser.log", "11CMSGCParser.log")) {
+            // lines of debug level are skipped on the bytes
+            String log = TestUtil.getGCLog(name).lines()
+                                 .flatMap(line -> Stream.of(line, "[1.000s][debug][gc,heap] GC(0) Old regions: 0->2"))
+                                 .collect(Collectors.joining("\n"));
+            File file = File.createTempFile("test", ".log");
+            file.deleteOnExit();
+            Files.writeString(file.toPath(), log);
+
+            GCModel expected = new GCLogParserFactory().getParser(stringToBufferedReader(log))
+                                                       .parse(stringToBufferedReader(log));
+            for (int parallelism : new int[]{1, 4}) {
+                GCLogParser parser = new GCLogParserFactory().getParser(stringToBufferedReader(log));
+                parser.setParallelism(parallelism);
+                GCModel actual;
+                try (LineScanner scanner = new LineScanner(file.toPath())) {
+                    actual = parser.parse(scanner, new DefaultProgressListener());
+                }
+                Assertions.assertFalse(expected.isEmpty());
+                Assertions.assertEquals(expected.getAllEvents().toString(), actual.getAllEvents().toString(), name);
+                Assertions.assertEquals(expected.getSafepoints().toString(), actual.getSafepoints().toString(), name);
+            }
+        }
+    }
 }
@@ -49,6 +49,16 @@ public class FilterProgressListener implements ProgressListener {
         listener.reset();
     }
 
+    @Override
+    public void cancel() {
+        listener.cancel();
+    }
+
+    @Override
+    public boolean isCanceled() {
+        return listener.isCanceled();
+    }
+
     @Override
     public String log() {
         return listener.log();
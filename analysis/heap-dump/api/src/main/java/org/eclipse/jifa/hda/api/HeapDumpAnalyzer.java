@@ -21,6 +21,7 @@ import org.eclipse.jifa.common.domain.vo.PageView;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 import static org.eclipse.jifa.hda.api.Model.ClassLoader;
 import static org.eclipse.jifa.hda.api.Model.*;
@@ -133,7 +134,18 @@ public interface HeapDumpAnalyzer {
                                                                                                GCRootPath.Grouping grouping,
                                                                                                int page, int pageSize);
 
-    GCRootPath.Item getPathToGCRoots(int objectId, int skip, int count);
+    @Exclude
+    default GCRootPath.Item getPathToGCRoots(int objectId, int skip, int count) {
+        return getPathToGCRoots(objectId, skip, count, null);
+    }
+
+    /**
+     * @param skip   number of the shortest paths to skip, ignored if the cursor is present
+     * @param cursor the cursor returned by the previous page, the paths are resumed from where the previous page
+     *               stopped
+     */
+    GCRootPath.Item getPathToGCRoots(int objectId, int skip, int count,
+                                     @ApiParameterMeta(required = false) String cursor);
 
     @ApiMeta(aliases = "leak.report")
     LeakReport getLeakReport();
@@ -190,7 +202,16 @@ public interface HeapDumpAnalyzer {
                                                                       int pageSize);
 
     interface Provider {
-        HeapDumpAnalyzer provide(Path path, Map<String, String> options, ProgressListener listener);
+        default HeapDumpAnalyzer provide(Path path, Map<String, String> options, ProgressListener listener) {
+            return provide(path, options, listener, null);
+        }
+
+        /**
+         * @param analyzers the function to get the analyzers of the other heap dumps, such as the baselines of the
+         *                  comparisons, the other heap dumps are opened by this provider if null
+         */
+        HeapDumpAnalyzer provide(Path path, Map<String, String> options, ProgressListener listener,
+                                 Function<Path, HeapDumpAnalyzer> analyzers);
     }
 
 }
@@ -579,6 +579,9 @@ public interface Model {
 
             public boolean hasMore;
 
+            // the opaque position after the paths of this page, to request the next page
+            public String cursor;
+
         }
 
         @Data
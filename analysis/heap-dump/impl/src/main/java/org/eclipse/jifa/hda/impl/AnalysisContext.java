@@ -1,5 +1,5 @@
 /********************************************************************************
- * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ * Copyright (c) 2021, 2024 Contributors to the Eclipse Foundation
  *
  * See the NOTICE file(s) distributed with this work for additional
  * information regarding copyright ownership.
@@ -13,30 +13,160 @@
 
 package org.eclipse.jifa.hda.impl;
 
+import org.eclipse.jifa.analysis.cache.ResultStore;
+import org.eclipse.jifa.hda.api.HeapDumpAnalyzer;
 import org.eclipse.jifa.hda.api.Model;
 import org.eclipse.mat.query.IResult;
 import org.eclipse.mat.query.IResultTree;
+import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.query.refined.RefinedTable;
+import org.eclipse.mat.snapshot.IPathsFromGCRootsComputer;
 import org.eclipse.mat.snapshot.ISnapshot;
 
 import java.lang.ref.SoftReference;
+import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 public class AnalysisContext {
 
     final ISnapshot snapshot;
 
+    final ResultStore resultStore;
+
+    // the analyzers of the other heap dumps, such as the baselines of the comparisons
+    final Function<Path, HeapDumpAnalyzer> analyzers;
+
     volatile SoftReference<ClassLoaderExplorerData> classLoaderExplorerData = new SoftReference<>(null);
 
     volatile SoftReference<DirectByteBufferData> directByteBufferData = new SoftReference<>(null);
 
     volatile SoftReference<LeakReportData> leakReportData= new SoftReference<>(null);
 
-    AnalysisContext(ISnapshot snapshot) {
+    // the retained sizes of the records of the histograms of the whole heap, by the grouping
+    private final Map<Model.Histogram.Grouping, RetainedSizeTable> histogramRetainedSizes = new ConcurrentHashMap<>();
+
+    // the idle cursors of the paths to GC roots by the key of the cursor, in the order of access
+    private final LinkedHashMap<String, PathToGCRootsCursor> pathToGCRootsCursors = new LinkedHashMap<>(16, 0.75f, true);
+
+    // the index of the strings being built or loaded in the background, null if not enabled
+    volatile CompletableFuture<StringIndex> stringIndex;
+
+    AnalysisContext(ISnapshot snapshot, ResultStore resultStore, Function<Path, HeapDumpAnalyzer> analyzers) {
         this.snapshot = snapshot;
+        this.resultStore = resultStore;
+        this.analyzers = analyzers;
+    }
+
+    RetainedSizeTable histogramRetainedSizes(Model.Histogram.Grouping grouping) {
+        return histogramRetainedSizes.computeIfAbsent(grouping, g -> new RetainedSizeTable());
+    }
+
+    /**
+     * @return the index of the strings, null if not enabled, not ready yet or failed to build
+     */
+    StringIndex stringIndex() {
+        CompletableFuture<StringIndex> future = stringIndex;
+        return future != null && future.isDone() && !future.isCompletedExceptionally() ? future.join() : null;
+    }
+
+    /**
+     * Cancel the building of the index of the strings. The index file is replaced while holding the lock of the
+     * future, so it is never written once this method returns.
+     */
+    void cancelStringIndex() {
+        CompletableFuture<StringIndex> future = stringIndex;
+        if (future != null) {
+            synchronized (future) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Take an idle cursor out, so that it is used by one request at a time.
+     *
+     * @param key the key of the cursor
+     * @return the cursor, null if absent or expired
+     */
+    synchronized PathToGCRootsCursor takePathToGCRootsCursor(String key) {
+        evictExpiredPathToGCRootsCursors();
+        return pathToGCRootsCursors.remove(key);
+    }
+
+    /**
+     * Put back a cursor once a request is done with it, the least recently used cursor is evicted if there are too
+     * many cursors.
+     *
+     * @param key    the key of the cursor
+     * @param cursor the cursor
+     */
+    synchronized void putPathToGCRootsCursor(String key, PathToGCRootsCursor cursor) {
+        cursor.lastAccessTime = System.currentTimeMillis();
+        pathToGCRootsCursors.put(key, cursor);
+        evictExpiredPathToGCRootsCursors();
+        Iterator<PathToGCRootsCursor> iterator = pathToGCRootsCursors.values().iterator();
+        while (pathToGCRootsCursors.size() > PathToGCRootsCursor.MAX_IDLE_CURSORS) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private void evictExpiredPathToGCRootsCursors() {
+        long deadline = System.currentTimeMillis() - PathToGCRootsCursor.EXPIRATION_MILLIS;
+        pathToGCRootsCursors.values().removeIf(cursor -> cursor.lastAccessTime < deadline);
+    }
+
+    /**
+     * The position in the paths to GC roots of an object, so that a page of the paths resumes from where the previous
+     * page stopped instead of computing the skipped paths again.
+     */
+    static class PathToGCRootsCursor {
+
+        static final int MAX_IDLE_CURSORS = 16;
+
+        static final long EXPIRATION_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+        final IPathsFromGCRootsComputer computer;
+
+        // number of paths taken
+        int position;
+
+        // the path computed to check whether there are more paths, not taken yet
+        int[] pending;
+
+        long lastAccessTime;
+
+        PathToGCRootsCursor(IPathsFromGCRootsComputer computer) {
+            this.computer = computer;
+        }
+
+        /**
+         * @return the next shortest path, null if there is no more path
+         */
+        int[] next() throws SnapshotException {
+            int[] path = pending != null ? pending : computer.getNextShortestPath();
+            pending = null;
+            if (path != null) {
+                position++;
+            }
+            return path;
+        }
+
+        boolean hasNext() throws SnapshotException {
+            if (pending == null) {
+                pending = computer.getNextShortestPath();
+            }
+            return pending != null;
+        }
     }
 
     static class ClassLoaderExplorerData {
@@ -89,6 +219,14 @@ public class AnalysisContext {
         IResult result;
     }
 
+    static class ComparisonData {
+
+        Model.Comparison.Summary summary;
+
+        // in descending order of the shallow size
+        List<Model.Comparison.Item> items;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o)
@@ -13,10 +13,14 @@
 package org.eclipse.jifa.hda.impl;
 
 import org.eclipse.jifa.analysis.cache.Cacheable;
+import org.eclipse.jifa.analysis.cache.ProxyBuilder;
+import org.eclipse.jifa.analysis.cache.ResultStore;
+import org.eclipse.jifa.analysis.cache.Weigher;
 import org.eclipse.jifa.analysis.listener.ProgressListener;
 import org.eclipse.jifa.common.domain.exception.CommonException;
 import org.eclipse.jifa.common.domain.request.PagingRequest;
 import org.eclipse.jifa.common.domain.vo.PageView;
+import org.eclipse.jifa.common.util.ExecutorFactory;
 import org.eclipse.jifa.common.util.PageViewBuilder;
 import org.eclipse.jifa.hda.api.AnalysisException;
 import org.eclipse.jifa.hda.api.HeapDumpAnalyzer;
@@ -51,7 +55,6 @@ import org.eclipse.mat.report.Spec;
 import org.eclipse.mat.snapshot.ClassHistogramRecord;
 import org.eclipse.mat.snapshot.Histogram;
 import org.eclipse.mat.snapshot.HistogramRecord;
-import org.eclipse.mat.snapshot.IPathsFromGCRootsComputer;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.SnapshotFactory;
 import org.eclipse.mat.snapshot.SnapshotInfo;
@@ -71,9 +74,12 @@ import org.eclipse.mat.snapshot.query.SnapshotQuery;
 import java.lang.ref.Cleaner;
 import java.lang.ref.SoftReference;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -84,8 +90,14 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -108,22 +120,37 @@ import static org.eclipse.jifa.hda.api.Model.TheString;
 import static org.eclipse.jifa.hda.api.Model.UnreachableObject;
 import static org.eclipse.jifa.hda.api.SearchPredicate.createPredicate;
 import static org.eclipse.jifa.hda.impl.AnalysisContext.ClassLoaderExplorerData;
+import static org.eclipse.jifa.hda.impl.AnalysisContext.ComparisonData;
 import static org.eclipse.jifa.hda.impl.AnalysisContext.DirectByteBufferData;
+import static org.eclipse.jifa.hda.impl.AnalysisContext.PathToGCRootsCursor;
 
 @SuppressWarnings("unchecked")
-public class HeapDumpAnalyzerImpl implements HeapDumpAnalyzer {
+public class HeapDumpAnalyzerImpl implements HeapDumpAnalyzer, ResultStore.Owner, Weigher {
 
     private static final Cleaner CLEANER = Cleaner.create();
 
     static final Provider PROVIDER = new ProviderImpl();
 
+    // should be increased if the types of the persistent results change
+    private static final int RESULT_STORE_VERSION = 1;
+
     private final AnalysisContext context;
 
     private final Cleaner.Cleanable cleaner;
 
     public HeapDumpAnalyzerImpl(AnalysisContext context) {
         this.context = context;
-        this.cleaner = CLEANER.register(this, () -> $(() -> SnapshotFactory.dispose(context.snapshot)));
+        this.cleaner = CLEANER.register(this, () -> {
+            try {
+                // the index of the strings reads the snapshot and writes its file beside the index files
+                context.cancelStringIndex();
+                $(() -> SnapshotFactory.dispose(context.snapshot));
+            } finally {
+                if (context.resultStore != null) {
+                    context.resultStore.close();
+                }
+            }
+        });
     }
 
     static {
@@ -225,6 +252,23 @@ public class HeapDumpAnalyzerImpl implements HeapDumpAnalyzer {
         cleaner.clean();
     }
 
+    @Override
+    public ResultStore resultStore() {
+        return context.resultStore;
+    }
+
+    // the results of the queries are weighed by their rows, the children of a tree are computed on demand
+    @Override
+    public long weigh(Object result) {
+        if (result instanceof IResultTree tree) {
+            return tree.getElements().size();
+        }
+        if (result instanceof IResultTable table) {
+            return table.getRowCount();
+        }
+        return 0;
+    }
+
     @Override
     public Overview.Details getDetails() {
         return $(() -> {
@@ -266,7 +310,8 @@ public class HeapDumpAnalyzerImpl implements HeapDumpAnalyzer {
         return queryByCommand(context, command, null, NoOpProgressListener);
     }
 
-    @Cacheable
+    // the results are weighed by their rows, so the limit is higher than the default one
+    @Cacheable(maximumWeight = 1_000_000)
     protected <Res extends IResult> Res queryByCommand(AnalysisContext context,
                                                        String command,
                                                        Map<String, Object> args) throws SnapshotException {
@@ -631,6 +676,7 @@ public class HeapDumpAnalyzerImpl implements HeapDumpAnalyzer {
     }
 
     @Override
+    @Cacheable(persistent = true)
     public PageView<UnreachableObject.Item> getUnreachableObjects(int page, int pageSize) {
         return $(() -> {
             UnreachableObjectsHistogram histogram =
@@ -781,6 +827,20 @@ public class HeapDumpAnalyzerImpl implements HeapDumpAnalyzer {
     @Override
     public PageView<TheString.Item> getStrings(String pattern, int page, int pageSize) {
         return $(() -> {
+            // the index is useless for the patterns that require no trigram, every string would be decoded
+            if (context.stringIndex() != null && pattern != null && StringIndex.narrows(pattern)) {
+                int[] ids = queryStringsByIndex(context, pattern);
+                return PageViewBuilder.build(ids, new PagingRequest(page, pageSize), id -> $(() -> {
+                    IObject object = context.snapshot.getObject(id);
+                    TheString.Item item = new TheString.Item();
+                    item.setObjectId(id);
+                    item.setLabel(object.getDisplayName());
+                    item.setShallowSize(object.getUsedHeapSize());
+                    item.setRetainedSize(object.getRetainedHeapSize());
+                    return item;
+                }));
+            }
+            // the index is not enabled, not ready yet or not helpful
             IResultTree tree = queryByCommand(context, "find_strings java.lang.String -pattern " +
                                                        (pattern == null || pattern.equals("") ? ".*" : ".*" + pattern + ".*"));
             List<?> strings = tree.getElements();
@@ -796,6 +856,17 @@ public class HeapDumpAnalyzerImpl implements HeapDumpAnalyzer {
         });
     }
 
+    /**
+     * The strings matching a pattern are searched among the candidates of the string index, the ids of the matched
+     * strings are cached so that the pages of the result are not searched again. The weight of a result is the
+     * number of the matched strings, so the limit is higher than the default one, and a result heavier than the
+     * limit is still cached alone.
+     */
+    @Cacheable(maximumWeight = 1_000_000)
+    protected int[] queryStringsByIndex(AnalysisContext context, String pattern) throws SnapshotException {
+        return context.stringIndex().find(context.snapshot, pattern);
+    }
+
     @Override
     public PageView<GCRoot.Item> getClassesOfGCRoot(int rootTypeIndex, int page, int pageSize) {
         return $(() -> {
@@ -845,9 +916,9 @@ public class HeapDumpAnalyzerImpl implements HeapDumpAnalyzer {
                                                           boolean outbound) throws SnapshotException {
         Map<String, Object> args = new HashMap<>();
         if (idOrIds instanceof int[]) {
-            args.put("objects", idOrIds);
+            args.put("objects", Helper.buildHeapObjectArgument((int[]) idOrIds));
         } else {
-            args.put("objects", new int[]{(Integer) idOrIds});
+            args.put("objects", Helper.buildHeapObjectArgument(new int[]{(Integer) idOrIds}));
         }
         args.put("inbound", !outbound);
         return queryByCommand(context, "class_references", args);
@@ -903,54 +974,76 @@ public class HeapDumpAnalyzerImpl implements HeapDumpAnalyzer {
 
     @Override
     public Comparison.Summary getSummaryOfComparison(Path other) {
-        return $(() -> {
-            ISnapshot baselineSnapshot = ((HeapDumpAnalyzerImpl) PROVIDER.provide(other, Collections.emptyMap(),
-                                                                                  NoOpProgressListener)).context.snapshot;
-            ISnapshot targetSnapshot = context.snapshot;
-            Histogram targetHistogram = targetSnapshot.getHistogram(new ProgressListenerImpl(NoOpProgressListener));
-            Histogram baselineHistogram = baselineSnapshot.getHistogram(new ProgressListenerImpl(NoOpProgressListener));
-            final Histogram delta = targetHistogram.diffWithBaseline(baselineHistogram);
-
-            long totalObjects = 0;
-            long totalShallowHeap = 0;
-            for (Object r : delta.getClassHistogramRecords()) {
-                totalObjects += (long) delta.getColumnValue(r, 1);
-                totalShallowHeap += ((Bytes) delta.getColumnValue(r, 2)).getValue();
-            }
-
-            Comparison.Summary summary = new Comparison.Summary();
-            summary.setTotalSize(delta.getClassHistogramRecords().size());
-            summary.setObjects(totalObjects);
-            summary.setShallowSize(totalShallowHeap);
-            return summary;
-        });
+        return $(() -> queryComparison(context, other).summary);
     }
 
     @Override
     public PageView<Comparison.Item> getItemsOfComparison(Path other, int page, int pageSize) {
         return $(() -> {
-            ISnapshot baselineSnapshot = ((HeapDumpAnalyzerImpl) PROVIDER.provide(other, Collections.emptyMap(),
-                                                                                  NoOpProgressListener)).context.snapshot;
-            ISnapshot targetSnapshot = context.snapshot;
-            Histogram targetHistogram = targetSnapshot.getHistogram(new ProgressListenerImpl(NoOpProgressListener));
-            Histogram baselineHistogram = baselineSnapshot.getHistogram(new ProgressListenerImpl(NoOpProgressListener));
-            final Histogram delta = targetHistogram.diffWithBaseline(baselineHistogram);
-
-            //noinspection
-            ((List<ClassHistogramRecord>) delta.getClassHistogramRecords()).sort((o1, o2) -> Long
-                    .compare(((Bytes) delta.getColumnValue(o2, 2)).getValue(),
-                             ((Bytes) delta.getColumnValue(o1, 2)).getValue()));
-
-            return PageViewBuilder.build(delta.getClassHistogramRecords(), new PagingRequest(page, pageSize), r -> {
-                Comparison.Item record = new Comparison.Item();
-                record.setClassName((String) delta.getColumnValue(r, 0));
-                record.setObjects((Long) delta.getColumnValue(r, 1));
-                record.setShallowSize(((Bytes) delta.getColumnValue(r, 2)).getValue());
-                return record;
-            });
+            List<Comparison.Item> items = queryComparison(context, other).items;
+            return PageViewBuilder.build(new PageViewBuilder.Callback<>() {
+                @Override
+                public int totalSize() {
+                    return items.size();
+                }
+
+                @Override
+                public Comparison.Item get(int index) {
+                    return items.get(index);
+                }
+            }, new PagingRequest(page, pageSize), item -> item);
         });
     }
 
+    /**
+     * The difference between the histograms of this heap dump and the baseline is computed once, the baseline is
+     * got from the analyzers of the context so that it is cached and disposed as other analyzed heap dumps. The api
+     * executor acquires the analyzer of the baseline before the invocation and pins it until the invocation ends, so
+     * its snapshot is neither being built nor disposed here.
+     */
+    @Cacheable
+    protected ComparisonData queryComparison(AnalysisContext context, Path other) throws SnapshotException {
+        ISnapshot baselineSnapshot = ((HeapDumpAnalyzerImpl) context.analyzers.apply(other)).context.snapshot;
+        ISnapshot targetSnapshot = context.snapshot;
+        Histogram targetHistogram = targetSnapshot.getHistogram(new ProgressListenerImpl(NoOpProgressListener));
+        Histogram baselineHistogram = baselineSnapshot.getHistogram(new ProgressListenerImpl(NoOpProgressListener));
+        final Histogram delta = targetHistogram.diffWithBaseline(baselineHistogram);
+
+        List<Comparison.Item> items = new ArrayList<>(delta.getClassHistogramRecords().size());
+        long totalObjects = 0;
+        long totalShallowHeap = 0;
+        for (Object r : delta.getClassHistogramRecords()) {
+            Comparison.Item item = new Comparison.Item();
+            item.setClassName((String) delta.getColumnValue(r, 0));
+            item.setObjects((Long) delta.getColumnValue(r, 1));
+            item.setShallowSize(((Bytes) delta.getColumnValue(r, 2)).getValue());
+            items.add(item);
+            totalObjects += item.getObjects();
+            totalShallowHeap += item.getShallowSize();
+        }
+        items.sort((o1, o2) -> Long.compare(o2.getShallowSize(), o1.getShallowSize()));
+
+        ComparisonData data = new ComparisonData();
+        data.summary = new Comparison.Summary();
+        data.summary.setTotalSize(items.size());
+        data.summary.setObjects(totalObjects);
+        data.summary.setShallowSize(totalShallowHeap);
+        data.items = items;
+        return data;
+    }
+
+    private static int positionOfPathToGCRootsCursor(int objectId, String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+            if (parts.length == 2 && Integer.parseInt(parts[0]) == objectId) {
+                return Math.max(Integer.parseInt(parts[1]), 0);
+            }
+        } catch (IllegalArgumentException e) {
+            // fall through
+        }
+        throw new AnalysisException("Illegal cursor: " + cursor);
+    }
+
     private IResultTree queryMultiplePath2GCRootsTreeByClassId(AnalysisContext context, int classId,
                                                                GCRootPath.Grouping grouping)
             throws Exception {
@@ -994,6 +1087,7 @@ public class HeapDumpAnalyzerImpl implements HeapDumpAnalyzer {
     }
 
     @Override
+    @Cacheable(persistent = true)
     public PageView<GCRootPath.MergePathToGCRootsTreeNode> getRootsOfMergePathToGCRootsByClassId(
             int classId, GCRootPath.Grouping grouping, int page, int pageSize) {
         return $(() -> {
@@ -1003,6 +1097,7 @@ public class HeapDumpAnalyzerImpl implements HeapDumpAnalyzer {
     }
 
     @Override
+    @Cacheable(persistent = true)
     public PageView<GCRootPath.MergePathToGCRootsTreeNode> getRootsOfMergePathToGCRootsByObjectIds(
             int[] objectIds, GCRootPath.Grouping grouping, int page, int pageSize) {
         return $(() -> {
@@ -1012,6 +1107,7 @@ public class HeapDumpAnalyzerImpl implements HeapDumpAnalyzer {
     }
 
     @Override
+    @Cacheable(persistent = true)
     public PageView<GCRootPath.MergePathToGCRootsTreeNode> getChildrenOfMergePathToGCRootsByClassId(
             int classId, int[] objectIdPathInGCPathTree, GCRootPath.Grouping grouping,
             int page, int pageSize) {
@@ -1024,6 +1120,7 @@ public class HeapDumpAnalyzerImpl implements HeapDumpAnalyzer {
     }
 
     @Override
+    @Cacheable(persistent = true)
     public PageView<GCRootPath.MergePathToGCRootsTreeNode> getChildrenOfMergePathToGCRootsByObjectIds(
             int[] objectIds, int[] objectIdPathInGCPathTree, GCRootPath.Grouping grouping,
             int page, int pageSize) {
@@ -1036,28 +1133,32 @@ public class HeapDumpAnalyzerImpl implements HeapDumpAnalyzer {
     }
 
     @Override
-    public GCRootPath.Item getPathToGCRoots(int objectId, int skip, int count) {
+    public GCRootPath.Item getPathToGCRoots(int objectId, int skip, int count, String cursor) {
         return $(() -> {
             ISnapshot snapshot = context.snapshot;
-            Map<IClass, Set<String>> excludeMap = convert(context, GCRootPath.EXCLUDES);
-            IPathsFromGCRootsComputer computer = snapshot.getPathsFromGCRoots(objectId, excludeMap);
+            int position = cursor != null && !cursor.isBlank() ? positionOfPathToGCRootsCursor(objectId, cursor) : skip;
+            String key = objectId + ":" + String.join(",", GCRootPath.EXCLUDES);
+            PathToGCRootsCursor pathCursor = context.takePathToGCRootsCursor(key);
+            if (pathCursor == null || pathCursor.position > position) {
+                Map<IClass, Set<String>> excludeMap = convert(context, GCRootPath.EXCLUDES);
+                pathCursor = new PathToGCRootsCursor(snapshot.getPathsFromGCRoots(objectId, excludeMap));
+            }
+            while (pathCursor.position < position && pathCursor.next() != null) {
+                // skip the paths before the position
+            }
             List<int[]> paths = new ArrayList<>();
-            int index = 0;
             int[] current;
-            int get = 0;
-            while (get < count && (current = computer.getNextShortestPath()) != null) {
-                if (index < skip) {
-                    index++;
-                    continue;
-                }
+            while (paths.size() < count && (current = pathCursor.next()) != null) {
                 paths.add(current);
-                get++;
             }
 
-            boolean hasMore = computer.getNextShortestPath() != null;
+            boolean hasMore = pathCursor.hasNext();
+            context.putPathToGCRootsCursor(key, pathCursor);
             GCRootPath.Item item = new GCRootPath.Item();
             item.setCount(paths.size());
             item.setHasMore(hasMore);
+            item.setCursor(Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    (objectId + ":" + pathCursor.position).getBytes(StandardCharsets.UTF_8)));
             GCRootPath.Node origin = new GCRootPath.Node();
             IObject object = snapshot.getObject(objectId);
             origin.setOrigin(true);
@@ -1076,7 +1177,7 @@ public class HeapDumpAnalyzerImpl implements HeapDumpAnalyzer {
 
             for (int[] path : paths) {
                 GCRootPath.Node parentNode = origin;
-                for (index = 1; index < path.length; index++) {
+                for (int index = 1; index < path.length; index++) {
                     int childId = path[index];
                     GCRootPath.Node childNode = parentNode.getChild(childId);
                     if (childNode == null) {
@@ -1122,6 +1223,7 @@ public class HeapDumpAnalyzerImpl implements HeapDumpAnalyzer {
     }
 
     @Override
+    @Cacheable(persistent = true)
     public LeakReport getLeakReport() {
         return $(() -> {
             AnalysisContext.LeakReportData data = context.leakReportData.get();
@@ -1211,7 +1313,8 @@ public class HeapDumpAnalyzerImpl implements HeapDumpAnalyzer {
         });
     }
 
-    @Cacheable
+    // the results are weighed by their rows, so the limit is higher than the default one
+    @Cacheable(maximumWeight = 1_000_000)
     protected IResult getOQLResult(AnalysisContext context, String oql) {
         return $(() -> {
             Map<String, Object> args = new HashMap<>();
@@ -1538,33 +1641,38 @@ public class HeapDumpAnalyzerImpl implements HeapDumpAnalyzer {
                     Histogram h = (Histogram) result;
                     List<ClassHistogramRecord> records =
                             (List<ClassHistogramRecord>) h.getClassHistogramRecords();
+                    RetainedSizeTable classRetainedSizes = retainedSizeTableOf(Model.Histogram.Grouping.BY_CLASS, ids);
+                    classRetainedSizes.fill(records, ClassHistogramRecord::getClassId,
+                                            record -> record.calculateRetainedSize(context.snapshot, true, true,
+                                                                                   Helper.VOID_LISTENER));
                     return PageViewBuilder.<ClassHistogramRecord, Model.Histogram.Item>fromList(records)
-                                          .beforeMap(record -> $(() -> record
-                                                  .calculateRetainedSize(context.snapshot, true, true, Helper.VOID_LISTENER)))
                                           .paging(new PagingRequest(page, pageSize))
                                           .map(record -> new Model.Histogram.Item(record.getClassId(), record.getLabel(),
                                                                                   Model.Histogram.ItemType.CLASS,
                                                                                   record.getNumberOfObjects(),
                                                                                   record.getUsedHeapSize(),
-                                                                                  record.getRetainedHeapSize()))
+                                                                                  classRetainedSizes.get(
+                                                                                          record.getClassId())))
                                           .sort(Model.Histogram.Item.sortBy(sortBy, ascendingOrder))
                                           .filter(createPredicate(searchText, searchType))
                                           .done();
                 case BY_CLASSLOADER:
                     Histogram.ClassLoaderTree ct = (Histogram.ClassLoaderTree) result;
                     @SuppressWarnings("unchecked")
-                    PageViewBuilder<? extends XClassLoaderHistogramRecord, Model.Histogram.Item> builder =
-                            PageViewBuilder.fromList((List<? extends XClassLoaderHistogramRecord>) ct.getElements());
-                    return builder
-                            .beforeMap(record -> $(() -> record.calculateRetainedSize(context.snapshot, true, true,
-                                                                                      Helper.VOID_LISTENER)))
+                    List<XClassLoaderHistogramRecord> loaders = (List<XClassLoaderHistogramRecord>) ct.getElements();
+                    RetainedSizeTable loaderRetainedSizes =
+                            retainedSizeTableOf(Model.Histogram.Grouping.BY_CLASSLOADER, ids);
+                    loaderRetainedSizes.fill(loaders, XClassLoaderHistogramRecord::getClassLoaderId,
+                                             record -> record.calculateRetainedSize(context.snapshot, true, true,
+                                                                                    Helper.VOID_LISTENER));
+                    return PageViewBuilder.<XClassLoaderHistogramRecord, Model.Histogram.Item>fromList(loaders)
                             .paging(new PagingRequest(page, pageSize))
                             .map(record ->
                                          new Model.Histogram.Item(record.getClassLoaderId(), record.getLabel(),
                                                                   Model.Histogram.ItemType.CLASS_LOADER,
                                                                   record.getNumberOfObjects(),
                                                                   record.getUsedHeapSize(),
-                                                                  record.getRetainedHeapSize())
+                                                                  loaderRetainedSizes.get(record.getClassLoaderId()))
                                 )
                             .sort(Model.Histogram.Item.sortBy(sortBy, ascendingOrder))
                             .filter(createPredicate(searchText, searchType))
@@ -1631,6 +1739,11 @@ public class HeapDumpAnalyzerImpl implements HeapDumpAnalyzer {
         });
     }
 
+    // the retained sizes of the histogram of a part of the heap are not shared
+    private RetainedSizeTable retainedSizeTableOf(Model.Histogram.Grouping grouping, int[] ids) {
+        return ids == null ? context.histogramRetainedSizes(grouping) : new RetainedSizeTable();
+    }
+
     @Override
     public PageView<JavaObject> getHistogramObjects(int classId, int page, int pageSize) {
         return $(() -> {
@@ -1679,16 +1792,21 @@ public class HeapDumpAnalyzerImpl implements HeapDumpAnalyzer {
                         }
                     }
                     if (children != null) {
+                        // the retained size of a class does not depend on the grouping
+                        RetainedSizeTable classRetainedSizes =
+                                retainedSizeTableOf(Model.Histogram.Grouping.BY_CLASS, ids);
+                        classRetainedSizes.fill(children, ClassHistogramRecord::getClassId,
+                                                record -> record.calculateRetainedSize(context.snapshot, true, true,
+                                                                                       Helper.VOID_LISTENER));
                         return PageViewBuilder.<ClassHistogramRecord, Model.Histogram.Item>fromList(
                                                       (List<ClassHistogramRecord>) children)
-                                              .beforeMap(record -> $(() -> record
-                                                      .calculateRetainedSize(context.snapshot, true, true, Helper.VOID_LISTENER)))
                                               .paging(new PagingRequest(page, pageSize))
                                               .map(record -> new Model.Histogram.Item(record.getClassId(), record.getLabel(),
                                                                                       Model.Histogram.ItemType.CLASS,
                                                                                       record.getNumberOfObjects(),
                                                                                       record.getUsedHeapSize(),
-                                                                                      record.getRetainedHeapSize()))
+                                                                                      classRetainedSizes.get(
+                                                                                              record.getClassId())))
                                               .sort(Model.Histogram.Item.sortBy(sortBy, ascendingOrder))
                                               .done();
                     } else {
@@ -2000,23 +2118,97 @@ public class HeapDumpAnalyzerImpl implements HeapDumpAnalyzer {
     }
 
     private static class ProviderImpl implements HeapDumpAnalyzer.Provider {
+
+        // a best-effort bound on the threads used to build the indexes, MAT decides it if absent
+        private static final String PARALLELISM_OPTION = "parallelism";
+
+        // whether to build the index of the strings in the background
+        private static final String STRING_INDEX_OPTION = "build_string_index";
+
+        // the string indexes are built one at a time, since each one decodes all the strings of a heap dump
+        private static final Executor STRING_INDEX_EXECUTOR =
+                ExecutorFactory.newExecutor("Heap Dump String Indexer", 1, Integer.MAX_VALUE);
+
         @Override
         public HeapDumpAnalyzer provide(Path path, Map<String, String> options,
-                                        ProgressListener listener) {
+                                        ProgressListener listener, Function<Path, HeapDumpAnalyzer> analyzers) {
             Map<String, String> finalOptions = options != null ? options : Collections.emptyMap();
-            return new HeapDumpAnalyzerImpl(new AnalysisContext(
-                    $(() ->
-                      {
-                          try {
-                              HprofPreferencesAccess.setStrictness(finalOptions.get("strictness"));
-                              return SnapshotFactory.openSnapshot(path.toFile(),
-                                                                  finalOptions,
-                                                                  new ProgressListenerImpl(listener));
-                          } finally {
-                              HprofPreferencesAccess.setStrictness(null);
-                          }
-                      })
-            ));
+            Function<Path, HeapDumpAnalyzer> finalAnalyzers =
+                    analyzers != null ? analyzers : other -> provide(other, Collections.emptyMap(),
+                                                                     NoOpProgressListener);
+            ProgressListenerImpl progressListener = new ProgressListenerImpl(listener);
+            RV<ISnapshot> open = () -> {
+                try {
+                    HprofPreferencesAccess.setStrictness(finalOptions.get("strictness"));
+                    return SnapshotFactory.openSnapshot(path.toFile(), finalOptions, progressListener);
+                } finally {
+                    HprofPreferencesAccess.setStrictness(null);
+                }
+            };
+            int parallelism = parallelism(finalOptions);
+            ISnapshot snapshot = $(() -> parallelism > 0 ? openInPool(open, parallelism) : open.run());
+            progressListener.reportPhaseTimings();
+            // the results of the expensive queries are persisted beside the index files
+            String prefix = snapshot.getSnapshotInfo().getPrefix();
+            ResultStore resultStore = ResultStore.open(Path.of(prefix + ResultStore.FILE_NAME_SUFFIX),
+                                                       Path.of(prefix + "index"), RESULT_STORE_VERSION);
+            AnalysisContext context = new AnalysisContext(snapshot, resultStore, finalAnalyzers);
+            // the string index is also persisted, it is loaded once built even if not enabled this time
+            Path stringIndexFile = Path.of(prefix + StringIndex.FILE_NAME_SUFFIX);
+            if (Boolean.parseBoolean(finalOptions.get(STRING_INDEX_OPTION)) || Files.exists(stringIndexFile)) {
+                CompletableFuture<StringIndex> stringIndex = new CompletableFuture<>();
+                context.stringIndex = stringIndex;
+                STRING_INDEX_EXECUTOR.execute(() -> {
+                    try {
+                        stringIndex.complete(StringIndex.loadOrBuild(snapshot, stringIndexFile,
+                                                                     Path.of(prefix + "index"), stringIndex));
+                    } catch (Throwable t) {
+                        // the strings are searched without the index
+                        stringIndex.completeExceptionally(t);
+                    }
+                });
+            }
+            // proxy the analyzer so that the results of the cacheable queries are cached
+            return ProxyBuilder.build(HeapDumpAnalyzerImpl.class,
+                                      new Class[]{AnalysisContext.class},
+                                      new Object[]{context});
+        }
+
+        private static int parallelism(Map<String, String> options) {
+            String value = options.get(PARALLELISM_OPTION);
+            if (value == null || value.isBlank()) {
+                return 0;
+            }
+            try {
+                return Math.max(Integer.parseInt(value.trim()), 0);
+            } catch (NumberFormatException e) {
+                throw new AnalysisException("Illegal " + PARALLELISM_OPTION + ": " + value);
+            }
+        }
+
+        /**
+         * Build the indexes in a dedicated pool. Only the fork/join tasks that MAT forks from the calling thread
+         * run in this pool; the phases that start their own threads or executors are not bounded by it, so the
+         * parallelism is a hint rather than a limit.
+         */
+        private static ISnapshot openInPool(RV<ISnapshot> open, int parallelism) throws Exception {
+            AtomicInteger index = new AtomicInteger();
+            ForkJoinPool pool = new ForkJoinPool(parallelism, p -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+                thread.setName("Heap Dump Parser " + index.getAndIncrement());
+                return thread;
+            }, null, false);
+            try {
+                return pool.submit(open::run).get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Exception exception) {
+                    throw exception;
+                }
+                throw new AnalysisException(cause);
+            } finally {
+                pool.shutdownNow();
+            }
         }
     }
 }
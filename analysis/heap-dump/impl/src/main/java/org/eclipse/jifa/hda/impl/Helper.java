@@ -1,5 +1,5 @@
 /********************************************************************************
- * Copyright (c) 2020, 2021 Contributors to the Eclipse Foundation
+ * Copyright (c) 2020, 2024 Contributors to the Eclipse Foundation
  *
  * See the NOTICE file(s) distributed with this work for additional
  * information regarding copyright ownership.
@@ -24,6 +24,7 @@ import org.eclipse.mat.snapshot.query.IHeapObjectArgument;
 import org.eclipse.mat.util.IProgressListener;
 import org.eclipse.mat.util.VoidProgressListener;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
@@ -66,38 +67,73 @@ public class Helper {
         return s.toString();
     }
 
+    /**
+     * @param ids the ids of the objects
+     * @return the argument of the objects, which equals to the argument of the same set of objects, so that the
+     * results of the queries with the argument can be cached
+     */
     public static IHeapObjectArgument buildHeapObjectArgument(int[] ids) {
-        return new IHeapObjectArgument() {
-            @Override
-            public int[] getIds(IProgressListener iProgressListener) {
-                return ids;
-            }
+        return new HeapObjectArgument(ids);
+    }
 
-            @Override
-            public String getLabel() {
-                return "";
-            }
+    private static final class HeapObjectArgument implements IHeapObjectArgument {
+
+        // sorted, since the queries do not depend on the order of the objects
+        private final int[] ids;
+
+        private final int hash;
 
-            @Override
-            public Iterator<int[]> iterator() {
-                return new Iterator<int[]>() {
+        HeapObjectArgument(int[] ids) {
+            this.ids = ids.clone();
+            Arrays.sort(this.ids);
+            hash = Arrays.hashCode(this.ids);
+        }
+
+        @Override
+        public int[] getIds(IProgressListener iProgressListener) {
+            return ids;
+        }
+
+        @Override
+        public String getLabel() {
+            return "";
+        }
 
-                    boolean hasNext = true;
+        @Override
+        public Iterator<int[]> iterator() {
+            return new Iterator<int[]>() {
 
-                    @Override
-                    public boolean hasNext() {
-                        return hasNext;
-                    }
+                boolean hasNext = true;
 
-                    @Override
-                    public int[] next() {
-                        Validate.isTrue(hasNext);
-                        hasNext = false;
-                        return ids;
-                    }
-                };
+                @Override
+                public boolean hasNext() {
+                    return hasNext;
+                }
+
+                @Override
+                public int[] next() {
+                    Validate.isTrue(hasNext);
+                    hasNext = false;
+                    return ids;
+                }
+            };
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
             }
-        };
+            if (!(o instanceof HeapObjectArgument that)) {
+                return false;
+            }
+            return hash == that.hash && Arrays.equals(ids, that.ids);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
     }
 
     private static Object findObjectInTree(IResultTree tree, List<?> levelElements, int targetId) {
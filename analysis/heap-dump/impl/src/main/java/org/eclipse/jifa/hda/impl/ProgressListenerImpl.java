@@ -1,5 +1,5 @@
 /********************************************************************************
- * Copyright (c) 2021, 2022 Contributors to the Eclipse Foundation
+ * Copyright (c) 2021, 2024 Contributors to the Eclipse Foundation
  *
  * See the NOTICE file(s) distributed with this work for additional
  * information regarding copyright ownership.
@@ -17,20 +17,71 @@ import org.eclipse.jifa.analysis.listener.ProgressListener;
 import org.eclipse.jifa.hda.api.FilterProgressListener;
 import org.eclipse.mat.util.IProgressListener;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class ProgressListenerImpl extends FilterProgressListener implements IProgressListener {
     private boolean cancelled = false;
 
+    // MAT reports the steps of a task as sub-tasks, each of them is timed as a phase
+    private final List<String> phaseTimings = new ArrayList<>();
+
+    private String phase;
+
+    private long phaseStartTime;
+
     public ProgressListenerImpl(ProgressListener listener) {
         super(listener);
     }
 
+    @Override
+    public void beginTask(String name, int workload) {
+        startPhase(name);
+        super.beginTask(name, workload);
+    }
+
+    @Override
+    public void subTask(String s) {
+        startPhase(s);
+        super.subTask(s);
+    }
+
+    /**
+     * Report the elapsed time of each phase to the underlying listener.
+     */
+    public synchronized void reportPhaseTimings() {
+        endPhase();
+        if (!phaseTimings.isEmpty()) {
+            sendUserMessage(Level.INFO, "Phase timings:" + System.lineSeparator() +
+                                        String.join(System.lineSeparator(), phaseTimings), null);
+            phaseTimings.clear();
+        }
+    }
+
+    private synchronized void startPhase(String name) {
+        if (name == null || name.equals(phase)) {
+            return;
+        }
+        endPhase();
+        phase = name;
+        phaseStartTime = System.nanoTime();
+    }
+
+    private synchronized void endPhase() {
+        if (phase != null) {
+            phaseTimings.add(String.format("  %s: %d ms", phase, (System.nanoTime() - phaseStartTime) / 1_000_000));
+            phase = null;
+        }
+    }
+
     @Override
     public void done() {
     }
 
     @Override
     public boolean isCanceled() {
-        return cancelled;
+        // MAT checks this flag in its parsing loops, so the cancellation of the analysis is propagated here
+        return cancelled || super.isCanceled();
     }
 
     @Override
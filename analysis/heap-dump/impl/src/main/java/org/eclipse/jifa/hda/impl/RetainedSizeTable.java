@@ -0,0 +1,71 @@
+/********************************************************************************
+ * Copyright (c) 2024 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.jifa.hda.impl;
+
+import org.eclipse.jifa.hda.api.AnalysisException;
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.HashMapIntLong;
+
+import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * The retained sizes of the records of a histogram, keyed by the id of the class or the class loader of a record.
+ * <p>
+ * The retained size of a record is calculated only once, the absent ones of a list of records are calculated in
+ * parallel.
+ */
+class RetainedSizeTable {
+
+    private final HashMapIntLong sizes = new HashMapIntLong();
+
+    /**
+     * Calculate the retained sizes of the records that are absent from this table.
+     *
+     * @param records    the records
+     * @param idOf       the function to get the id of a record
+     * @param calculator the function to calculate the retained size of a record
+     */
+    synchronized <R> void fill(List<? extends R> records, ToIntFunction<R> idOf, Calculator<R> calculator) {
+        int[] absent = IntStream.range(0, records.size())
+                                .filter(i -> !sizes.containsKey(idOf.applyAsInt(records.get(i))))
+                                .toArray();
+        if (absent.length == 0) {
+            return;
+        }
+        long[] calculated = new long[absent.length];
+        IntStream.range(0, absent.length).parallel().forEach(i -> {
+            try {
+                calculated[i] = calculator.calculate(records.get(absent[i]));
+            } catch (SnapshotException e) {
+                throw new AnalysisException(e);
+            }
+        });
+        for (int i = 0; i < absent.length; i++) {
+            sizes.put(idOf.applyAsInt(records.get(absent[i])), calculated[i]);
+        }
+    }
+
+    /**
+     * @param id the id of a record
+     * @return the retained size of the record, 0 if absent
+     */
+    synchronized long get(int id) {
+        return sizes.containsKey(id) ? sizes.get(id) : 0;
+    }
+
+    interface Calculator<R> {
+        long calculate(R record) throws SnapshotException;
+    }
+}
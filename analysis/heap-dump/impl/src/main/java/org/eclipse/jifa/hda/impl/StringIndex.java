@@ -0,0 +1,431 @@
+/********************************************************************************
+ * Copyright (c) 2024 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.jifa.hda.impl;
+
+import org.eclipse.jifa.hda.api.AnalysisException;
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.ArrayInt;
+import org.eclipse.mat.collect.HashMapLongObject;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.model.IClass;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+/**
+ * The trigram index of the values of the strings of a snapshot.
+ * <p>
+ * The strings matching a pattern are searched among the strings that contain all the trigrams of the literals the
+ * pattern requires, instead of decoding every string of the snapshot. The index is persisted beside the index files
+ * of the snapshot and is read from a memory mapping of the file, so the postings are not held in the heap. The file
+ * starts with a header of the format version and the length and the last modified time of the index file of the
+ * snapshot, the file is ignored if the header does not match.
+ * <p>
+ * The layout of the file after the header is the ids of the strings, the trigrams in ascending order, the offsets of
+ * the postings of the trigrams, and the postings, which are the ordinals of the strings in ascending order. The size
+ * of the file is limited to that of a mapping, the index is not built for a snapshot with more strings.
+ */
+class StringIndex {
+
+    static final String FILE_NAME_SUFFIX = "strings.index";
+
+    private static final int MAGIC = 0x4A535452;
+
+    // must be increased once the format of the file is changed
+    private static final int VERSION = 2;
+
+    private static final int HEADER_SIZE = Integer.BYTES * 2 + Long.BYTES * 2 + Integer.BYTES * 2;
+
+    private static final long MAX_SIZE = Integer.MAX_VALUE;
+
+    // the strings decoded between two checks of the cancellation
+    private static final int CANCELLATION_CHECK_INTERVAL = 4096;
+
+    private final ByteBuffer mapped;
+
+    private final int strings;
+
+    private final int trigrams;
+
+    private final int trigramsPosition;
+
+    private final int offsetsPosition;
+
+    private final int postingsPosition;
+
+    private StringIndex(ByteBuffer mapped, int strings, int trigrams) {
+        this.mapped = mapped;
+        this.strings = strings;
+        this.trigrams = trigrams;
+        this.trigramsPosition = HEADER_SIZE + strings * Integer.BYTES;
+        this.offsetsPosition = trigramsPosition + trigrams * Long.BYTES;
+        this.postingsPosition = offsetsPosition + (trigrams + 1) * Integer.BYTES;
+    }
+
+    /**
+     * @param snapshot the snapshot
+     * @param file     the file of the index
+     * @param source   the index file of the snapshot
+     * @param task     the task building the index, the index is neither built nor written once it is canceled
+     * @return the persisted index if it is up-to-date, otherwise the index built and persisted
+     */
+    static StringIndex loadOrBuild(ISnapshot snapshot, Path file, Path source, Future<?> task)
+            throws IOException, SnapshotException {
+        StringIndex index = open(file, source);
+        if (index == null) {
+            write(snapshot, file, source, task);
+            index = open(file, source);
+            if (index == null) {
+                throw new IOException("Failed to open string index " + file);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Build the index and write it into the file. The file is replaced while holding the lock of the task, so it is
+     * never written once the task is canceled while holding the lock.
+     *
+     * @param snapshot the snapshot
+     * @param file     the file of the index
+     * @param source   the index file of the snapshot
+     * @param task     the task building the index
+     */
+    private static void write(ISnapshot snapshot, Path file, Path source, Future<?> task)
+            throws IOException, SnapshotException {
+        long sourceLength = Files.size(source);
+        long sourceLastModified = Files.getLastModifiedTime(source).toMillis();
+
+        ArrayInt ids = new ArrayInt();
+        Collection<IClass> classes = snapshot.getClassesByName("java.lang.String", false);
+        if (classes != null) {
+            for (IClass clazz : classes) {
+                for (int id : clazz.getObjectIds()) {
+                    ids.add(id);
+                }
+            }
+        }
+
+        int[] all = ids.toArray();
+        long size = HEADER_SIZE + (long) all.length * Integer.BYTES + Integer.BYTES;
+        HashMapLongObject<ArrayInt> lists = new HashMapLongObject<>();
+        for (int ordinal = 0; ordinal < all.length; ordinal++) {
+            if (ordinal % CANCELLATION_CHECK_INTERVAL == 0 && task.isCancelled()) {
+                throw new CancellationException("String index is canceled");
+            }
+            String value = snapshot.getObject(all[ordinal]).getClassSpecificName();
+            if (value == null) {
+                continue;
+            }
+            for (int i = 0; i + 2 < value.length(); i++) {
+                long trigram = trigramOf(value, i);
+                ArrayInt list = lists.get(trigram);
+                if (list == null) {
+                    list = new ArrayInt();
+                    lists.put(trigram, list);
+                    size += Long.BYTES + Integer.BYTES;
+                }
+                // a trigram may occur more than once in a string
+                if (list.size() == 0 || list.get(list.size() - 1) != ordinal) {
+                    list.add(ordinal);
+                    size += Integer.BYTES;
+                }
+            }
+            if (size > MAX_SIZE) {
+                throw new AnalysisException("String index exceeds the size limit of " + MAX_SIZE + " bytes");
+            }
+        }
+
+        long[] keys = new long[lists.size()];
+        int k = 0;
+        for (Iterator<HashMapLongObject.Entry<ArrayInt>> it = lists.entries(); it.hasNext(); ) {
+            keys[k++] = it.next().getKey();
+        }
+        Arrays.sort(keys);
+
+        // a partially written file is never read
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeLong(sourceLength);
+                output.writeLong(sourceLastModified);
+                output.writeInt(all.length);
+                output.writeInt(keys.length);
+                for (int id : all) {
+                    output.writeInt(id);
+                }
+                for (long key : keys) {
+                    output.writeLong(key);
+                }
+                int offset = 0;
+                output.writeInt(offset);
+                for (long key : keys) {
+                    offset += lists.get(key).size();
+                    output.writeInt(offset);
+                }
+                for (long key : keys) {
+                    ArrayInt list = lists.get(key);
+                    for (int i = 0; i < list.size(); i++) {
+                        output.writeInt(list.get(i));
+                    }
+                }
+            }
+            synchronized (task) {
+                if (task.isCancelled()) {
+                    throw new CancellationException("String index is canceled");
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * @param file   the file of the index
+     * @param source the index file of the snapshot
+     * @return the persisted index, null if absent or outdated
+     */
+    static StringIndex open(Path file, Path source) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE || fileSize > MAX_SIZE) {
+                return null;
+            }
+            // the mapping is still valid after the channel is closed
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            if (mapped.getInt() != MAGIC || mapped.getInt() != VERSION || mapped.getLong() != Files.size(source) ||
+                mapped.getLong() != Files.getLastModifiedTime(source).toMillis()) {
+                return null;
+            }
+            int strings = mapped.getInt();
+            int trigrams = mapped.getInt();
+            if (strings < 0 || trigrams < 0) {
+                return null;
+            }
+            StringIndex index = new StringIndex(mapped, strings, trigrams);
+            long postingsPosition = HEADER_SIZE + (long) strings * Integer.BYTES + (long) trigrams * Long.BYTES +
+                                    (long) (trigrams + 1) * Integer.BYTES;
+            if (postingsPosition > fileSize ||
+                postingsPosition + (long) index.offsetOf(trigrams) * Integer.BYTES != fileSize) {
+                return null;
+            }
+            return index;
+        }
+    }
+
+    /**
+     * @param snapshot the snapshot
+     * @param pattern  the pattern, a string matches if the value matches ".*pattern.*"
+     * @return the ids of the matched strings in the order of the index
+     */
+    int[] find(ISnapshot snapshot, String pattern) throws SnapshotException {
+        Pattern regex = Pattern.compile(".*" + pattern + ".*");
+        int[] candidates = candidatesOf(pattern);
+        int size = candidates != null ? candidates.length : strings;
+        ArrayInt result = new ArrayInt();
+        for (int i = 0; i < size; i++) {
+            int id = idOf(candidates != null ? candidates[i] : i);
+            String value = snapshot.getObject(id).getClassSpecificName();
+            if (value != null && regex.matcher(value).matches()) {
+                result.add(id);
+            }
+        }
+        return result.toArray();
+    }
+
+    /**
+     * @return the ordinals of the strings that contain all the trigrams required by the pattern, null if the pattern
+     * requires no trigram
+     */
+    private int[] candidatesOf(String pattern) {
+        List<Integer> lists = new ArrayList<>();
+        for (String literal : literalsOf(pattern)) {
+            for (int i = 0; i + 2 < literal.length(); i++) {
+                int list = search(trigramOf(literal, i));
+                if (list < 0) {
+                    return new int[0];
+                }
+                lists.add(list);
+            }
+        }
+        if (lists.isEmpty()) {
+            return null;
+        }
+        // intersect from the shortest list so that the intermediate results are small
+        lists.sort((a, b) -> Integer.compare(lengthOf(a), lengthOf(b)));
+        int shortest = lists.get(0);
+        int[] candidates = new int[lengthOf(shortest)];
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = postingOf(offsetOf(shortest) + i);
+        }
+        for (int i = 1; i < lists.size() && candidates.length > 0; i++) {
+            candidates = intersect(candidates, lists.get(i));
+        }
+        return candidates;
+    }
+
+    /**
+     * @return the index of the trigram, negative if absent
+     */
+    private int search(long trigram) {
+        int low = 0;
+        int high = trigrams - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long key = mapped.getLong(trigramsPosition + mid * Long.BYTES);
+            if (key < trigram) {
+                low = mid + 1;
+            } else if (key > trigram) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int[] intersect(int[] a, int list) {
+        int[] result = new int[Math.min(a.length, lengthOf(list))];
+        int size = 0;
+        for (int i = 0, j = offsetOf(list), end = offsetOf(list + 1); i < a.length && j < end; ) {
+            int b = postingOf(j);
+            if (a[i] < b) {
+                i++;
+            } else if (a[i] > b) {
+                j++;
+            } else {
+                result[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private int idOf(int ordinal) {
+        return mapped.getInt(HEADER_SIZE + ordinal * Integer.BYTES);
+    }
+
+    private int offsetOf(int list) {
+        return mapped.getInt(offsetsPosition + list * Integer.BYTES);
+    }
+
+    private int lengthOf(int list) {
+        return offsetOf(list + 1) - offsetOf(list);
+    }
+
+    private int postingOf(int offset) {
+        return mapped.getInt(postingsPosition + offset * Integer.BYTES);
+    }
+
+    /**
+     * @param pattern the pattern
+     * @return true if the pattern requires a trigram, otherwise the index can not narrow the strings to be matched
+     */
+    static boolean narrows(String pattern) {
+        for (String literal : literalsOf(pattern)) {
+            if (literal.length() > 2) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Extract the literals that every value matching the pattern contains. The extraction is conservative, no
+     * literal is extracted from the parts of the pattern it does not understand, such as the alternations, the
+     * groups and the character classes.
+     *
+     * @param pattern the pattern
+     * @return the literals
+     */
+    static List<String> literalsOf(String pattern) {
+        List<String> literals = new ArrayList<>();
+        if (pattern.indexOf('|') >= 0 || pattern.indexOf('(') >= 0 || pattern.contains("[]")
+            || pattern.contains("[^]")) {
+            return literals;
+        }
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            switch (c) {
+                case '?', '*', '{' -> {
+                    // the previous character is optional
+                    if (!literal.isEmpty()) {
+                        literal.setLength(literal.length() - 1);
+                    }
+                    flush(literals, literal);
+                    if (c == '{') {
+                        int end = pattern.indexOf('}', i);
+                        i = end >= 0 ? end : pattern.length();
+                    }
+                }
+                case '\\' -> {
+                    if (i + 1 >= pattern.length()) {
+                        return new ArrayList<>();
+                    }
+                    char escaped = pattern.charAt(++i);
+                    if (Character.isLetterOrDigit(escaped)) {
+                        // a character class, a quotation or a character in code, such as \d, \Q and \x41
+                        return new ArrayList<>();
+                    }
+                    literal.append(escaped);
+                }
+                case '[' -> {
+                    flush(literals, literal);
+                    while (++i < pattern.length() && pattern.charAt(i) != ']') {
+                        if (pattern.charAt(i) == '\\') {
+                            i++;
+                        }
+                    }
+                }
+                case '.', '+', '^', '$', ']', '}', ')' -> flush(literals, literal);
+                default -> literal.append(c);
+            }
+        }
+        flush(literals, literal);
+        return literals;
+    }
+
+    private static void flush(List<String> literals, StringBuilder literal) {
+        if (!literal.isEmpty()) {
+            literals.add(literal.toString());
+            literal.setLength(0);
+        }
+    }
+
+    private static long trigramOf(String value, int index) {
+        return ((long) value.charAt(index) << 32) | ((long) value.charAt(index + 1) << 16) | value.charAt(index + 2);
+    }
+}
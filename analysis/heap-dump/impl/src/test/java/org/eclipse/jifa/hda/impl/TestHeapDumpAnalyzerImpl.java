@@ -1,5 +1,5 @@
 /********************************************************************************
- * Copyright (c) 2023 Contributors to the Eclipse Foundation
+ * Copyright (c) 2023, 2024 Contributors to the Eclipse Foundation
  *
  * See the NOTICE file(s) distributed with this work for additional
  * information regarding copyright ownership.
@@ -15,27 +15,48 @@ package org.eclipse.jifa.hda.impl;
 import com.sun.management.HotSpotDiagnosticMXBean;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
+import org.eclipse.jifa.analysis.ExecutionContext;
+import org.eclipse.jifa.analysis.Progress;
+import org.eclipse.jifa.analysis.cache.CacheStatistics;
+import org.eclipse.jifa.analysis.cache.ProxyBuilder;
+import org.eclipse.jifa.analysis.cache.ResultStore;
 import org.eclipse.jifa.analysis.listener.ProgressListener;
+import org.eclipse.jifa.common.domain.vo.PageView;
 import org.eclipse.jifa.hda.api.HeapDumpAnalyzer;
 import org.eclipse.jifa.hda.api.Model;
 import org.eclipse.jifa.hda.api.SearchType;
 import org.eclipse.jifa.hdp.provider.HeapDumpAnalysisApiExecutor;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.SnapshotFactory;
+import org.eclipse.mat.util.VoidProgressListener;
 import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.lang.reflect.Type;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 @Slf4j
 public class TestHeapDumpAnalyzerImpl {
 
     private static Path DIRECTORY;
 
+    private static Path HEAP_FILE;
+
     private static HeapDumpAnalyzer ANALYZER;
 
     @BeforeAll
@@ -46,6 +67,7 @@ public class TestHeapDumpAnalyzerImpl {
         Files.delete(heapFile);
         HotSpotDiagnosticMXBean platformMXBean = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
         platformMXBean.dumpHeap(heapFile.toString(), false);
+        HEAP_FILE = heapFile;
         Method buildAnalyzer = HeapDumpAnalysisApiExecutor.class.getDeclaredMethod("buildAnalyzer", Path.class, Map.class, ProgressListener.class);
         buildAnalyzer.setAccessible(true);
         ANALYZER = (HeapDumpAnalyzer) buildAnalyzer.invoke(new HeapDumpAnalysisApiExecutor(),
@@ -162,6 +184,50 @@ public class TestHeapDumpAnalyzerImpl {
         ANALYZER.getStrings("abc", 1, 10);
     }
 
+    @Test
+    public void testStringIndex() throws Exception {
+        ISnapshot snapshot = SnapshotFactory.openSnapshot(HEAP_FILE.toFile(), Collections.emptyMap(),
+                                                          new VoidProgressListener());
+        try {
+            Path source = Path.of(snapshot.getSnapshotInfo().getPrefix() + "index");
+            Path file = DIRECTORY.resolve("test." + StringIndex.FILE_NAME_SUFFIX);
+            StringIndex built = StringIndex.loadOrBuild(snapshot, file, source, new CompletableFuture<>());
+            StringIndex persisted = StringIndex.open(file, source);
+            Assertions.assertNotNull(persisted);
+
+            // the analyzer has no string index, its strings are found by find_strings
+            for (String pattern : new String[]{"Thread", "java\\.lang\\.Thr", "a.c", "^java", "x{2}y"}) {
+                int[] expected = ANALYZER.getStrings(pattern, 1, Integer.MAX_VALUE).getData().stream()
+                                         .mapToInt(Model.TheString.Item::getObjectId).sorted().toArray();
+                int[] found = built.find(snapshot, pattern);
+                Arrays.sort(found);
+                Assertions.assertArrayEquals(expected, found, pattern);
+                found = persisted.find(snapshot, pattern);
+                Arrays.sort(found);
+                Assertions.assertArrayEquals(expected, found, pattern);
+            }
+
+            // a canceled build never writes the file
+            Path canceledFile = DIRECTORY.resolve("canceled." + StringIndex.FILE_NAME_SUFFIX);
+            CompletableFuture<StringIndex> canceled = new CompletableFuture<>();
+            canceled.cancel(false);
+            Assertions.assertThrows(CancellationException.class,
+                                    () -> StringIndex.loadOrBuild(snapshot, canceledFile, source, canceled));
+            Assertions.assertFalse(Files.exists(canceledFile));
+
+            // the persisted index is outdated once the index file of the snapshot is modified
+            FileTime lastModified = Files.getLastModifiedTime(source);
+            try {
+                Files.setLastModifiedTime(source, FileTime.fromMillis(lastModified.toMillis() + 1000));
+                Assertions.assertNull(StringIndex.open(file, source));
+            } finally {
+                Files.setLastModifiedTime(source, lastModified);
+            }
+        } finally {
+            SnapshotFactory.dispose(snapshot);
+        }
+    }
+
     @Test
     public void testGetClassesOfGCRoot() {
         ANALYZER.getClassesOfGCRoot(1, 1, 10);
@@ -197,6 +263,18 @@ public class TestHeapDumpAnalyzerImpl {
         ANALYZER.getPathToGCRoots(1, 1, 10);
     }
 
+    @Test
+    public void testGetPathToGCRootsByCursor() {
+        Model.GCRootPath.Item first = ANALYZER.getPathToGCRoots(1, 0, 1, null);
+        Assertions.assertNotNull(first.getCursor());
+        Model.GCRootPath.Item resumed = ANALYZER.getPathToGCRoots(1, 0, 1, first.getCursor());
+        Model.GCRootPath.Item skipped = ANALYZER.getPathToGCRoots(1, 1, 1, null);
+        Assertions.assertEquals(skipped.getTree(), resumed.getTree());
+        Assertions.assertEquals(skipped.isHasMore(), resumed.isHasMore());
+        Assertions.assertEquals(skipped.getCursor(), resumed.getCursor());
+        Assertions.assertThrows(Exception.class, () -> ANALYZER.getPathToGCRoots(2, 0, 1, first.getCursor()));
+    }
+
     @Test
     public void testGetLeakReport() {
         ANALYZER.getLeakReport();
@@ -207,6 +285,107 @@ public class TestHeapDumpAnalyzerImpl {
         ANALYZER.getOQLResult("select * from java.lang.String", "shallowHeap", true, 1, 10);
     }
 
+    @Test
+    public void testProvidedAnalyzerIsCached() {
+        // the analyzer built by the provider is a proxy, the pages of a query share the cached result
+        String key = "getOQLResult(AnalysisContext,String)";
+        Map<String, CacheStatistics> statistics = ProxyBuilder.statistics(ANALYZER);
+        Assertions.assertTrue(statistics.containsKey(key));
+        long hitCount = statistics.get(key).getHitCount();
+
+        String oql = "select * from java.lang.Thread";
+        ANALYZER.getOQLResult(oql, "shallowHeap", true, 1, 10);
+        ANALYZER.getOQLResult(oql, "shallowHeap", true, 2, 10);
+        Assertions.assertEquals(hitCount + 1, ProxyBuilder.statistics(ANALYZER).get(key).getHitCount());
+    }
+
+    @Test
+    public void testPersistedResults() throws Exception {
+        // the persisted results are read back as the types declared by the analyzer
+        Model.LeakReport report = ANALYZER.getLeakReport();
+        int classId = ANALYZER.getHistogram(Model.Histogram.Grouping.BY_CLASS,
+                                            null,
+                                            "shallowHeap",
+                                            false,
+                                            null,
+                                            null, 1, 1).getData().get(0).getObjectId();
+        PageView<Model.GCRootPath.MergePathToGCRootsTreeNode> paths =
+                ANALYZER.getRootsOfMergePathToGCRootsByClassId(classId, Model.GCRootPath.Grouping.FROM_GC_ROOTS,
+                                                               1, 10);
+        Assertions.assertFalse(paths.getData().isEmpty());
+
+        Type reportType = HeapDumpAnalyzer.class.getMethod("getLeakReport").getGenericReturnType();
+        Type pathsType = HeapDumpAnalyzer.class.getMethod("getRootsOfMergePathToGCRootsByClassId", int.class,
+                                                          Model.GCRootPath.Grouping.class, int.class, int.class)
+                                               .getGenericReturnType();
+        Object[] args = {classId, Model.GCRootPath.Grouping.FROM_GC_ROOTS, 1, 10};
+        Path file = DIRECTORY.resolve("test." + ResultStore.FILE_NAME_SUFFIX);
+        try (ResultStore store = ResultStore.open(file, HEAP_FILE, 1)) {
+            Assertions.assertNotNull(store);
+            store.load("getLeakReport", null, reportType, () -> report);
+            store.load("getRootsOfMergePathToGCRootsByClassId", args, pathsType, () -> paths);
+        }
+
+        try (ResultStore store = ResultStore.open(file, HEAP_FILE, 1)) {
+            Assertions.assertNotNull(store);
+            Model.LeakReport persistedReport = store.load("getLeakReport", null, reportType, Assertions::fail);
+            Assertions.assertEquals(report, persistedReport);
+
+            PageView<Model.GCRootPath.MergePathToGCRootsTreeNode> persistedPaths =
+                    store.load("getRootsOfMergePathToGCRootsByClassId", args, pathsType, Assertions::fail);
+            Assertions.assertEquals(paths.getPage(), persistedPaths.getPage());
+            Assertions.assertEquals(paths.getPageSize(), persistedPaths.getPageSize());
+            Assertions.assertEquals(paths.getTotalSize(), persistedPaths.getTotalSize());
+            Assertions.assertEquals(paths.getData(), persistedPaths.getData());
+        }
+    }
+
+    @Test
+    public void testComparison() throws Exception {
+        Path baseline = Files.createTempFile(DIRECTORY, "test-baseline", ".hprof").toAbsolutePath();
+        Files.delete(baseline);
+        ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class).dumpHeap(baseline.toString(), false);
+
+        // the results of the analyzer that builds the baseline by itself
+        Field field = HeapDumpAnalysisApiExecutor.class.getDeclaredField("PROVIDER");
+        field.setAccessible(true);
+        HeapDumpAnalyzer.Provider provider = (HeapDumpAnalyzer.Provider) field.get(null);
+        List<HeapDumpAnalyzer> built = new ArrayList<>();
+        Function<Path, HeapDumpAnalyzer> analyzers = other -> {
+            HeapDumpAnalyzer baselineAnalyzer = provider.provide(other, Collections.emptyMap(),
+                                                                 ProgressListener.NoOpProgressListener, null);
+            built.add(baselineAnalyzer);
+            return baselineAnalyzer;
+        };
+        HeapDumpAnalyzer analyzer = provider.provide(HEAP_FILE, Collections.emptyMap(),
+                                                     ProgressListener.NoOpProgressListener, analyzers);
+        built.add(analyzer);
+
+        HeapDumpAnalysisApiExecutor executor = new HeapDumpAnalysisApiExecutor();
+        try {
+            Model.Comparison.Summary expectedSummary = analyzer.getSummaryOfComparison(baseline);
+            PageView<Model.Comparison.Item> expectedItems = analyzer.getItemsOfComparison(baseline, 2, 10);
+            Assertions.assertEquals(2, built.size());
+
+            Model.Comparison.Summary summary = (Model.Comparison.Summary) executor.execute(
+                    new ExecutionContext(HEAP_FILE, "summaryOfComparison", new Object[]{baseline})).get();
+            @SuppressWarnings("unchecked")
+            PageView<Model.Comparison.Item> items = (PageView<Model.Comparison.Item>) executor.execute(
+                    new ExecutionContext(HEAP_FILE, "itemsOfComparison", new Object[]{baseline, 2, 10})).get();
+            Assertions.assertEquals(expectedSummary, summary);
+            Assertions.assertEquals(expectedItems.getTotalSize(), items.getTotalSize());
+            Assertions.assertEquals(expectedItems.getData(), items.getData());
+
+            // the baseline is built and cached by the executor
+            Assertions.assertEquals(Progress.State.SUCCESS, executor.progressOfAnalysis(baseline).getState());
+            Assertions.assertFalse(executor.cacheStats(baseline).isEmpty());
+        } finally {
+            executor.release(HEAP_FILE);
+            executor.release(baseline);
+            built.forEach(HeapDumpAnalyzer::dispose);
+        }
+    }
+
     @Test
     public void testGetCalciteSQLResult() {
     }
@@ -247,6 +426,26 @@ public class TestHeapDumpAnalyzerImpl {
                               null, 1, 10);
     }
 
+    @Test
+    public void testGetHistogramSortedByRetainedSize() {
+        for (Model.Histogram.Grouping grouping : new Model.Histogram.Grouping[]{Model.Histogram.Grouping.BY_CLASS,
+                                                                              Model.Histogram.Grouping.BY_CLASSLOADER}) {
+            List<Model.Histogram.Item> first =
+                    ANALYZER.getHistogram(grouping, null, "retainedSize", false, null, null, 1, 10).getData();
+            List<Model.Histogram.Item> second =
+                    ANALYZER.getHistogram(grouping, null, "retainedSize", false, null, null, 2, 10).getData();
+            Assertions.assertFalse(first.isEmpty());
+            Assertions.assertTrue(first.get(0).getRetainedSize() > 0);
+            if (!second.isEmpty()) {
+                Assertions.assertTrue(first.get(first.size() - 1).getRetainedSize() >= second.get(0).getRetainedSize());
+            }
+            // the retained sizes are calculated once
+            Assertions.assertEquals(first,
+                                    ANALYZER.getHistogram(grouping, null, "retainedSize", false, null, null, 1, 10)
+                                            .getData());
+        }
+    }
+
     @Test
     public void testGetHistogramObjects() {
         int id = ANALYZER.getHistogram(Model.Histogram.Grouping.BY_CLASS,
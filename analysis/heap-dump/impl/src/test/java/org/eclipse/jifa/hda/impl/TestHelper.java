@@ -0,0 +1,33 @@
+/********************************************************************************
+ * Copyright (c) 2024 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.jifa.hda.impl;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+public class TestHelper {
+
+    @Test
+    public void testHeapObjectArgument() {
+        int[] ids = new int[]{3, 1, 2};
+        Object argument = Helper.buildHeapObjectArgument(ids);
+        ids[0] = 4;
+        Assertions.assertEquals(argument, Helper.buildHeapObjectArgument(new int[]{1, 2, 3}));
+        Assertions.assertEquals(argument.hashCode(), Helper.buildHeapObjectArgument(new int[]{2, 3, 1}).hashCode());
+        Assertions.assertNotEquals(argument, Helper.buildHeapObjectArgument(new int[]{1, 2, 4}));
+        Assertions.assertEquals(Map.of("objects", argument),
+                                Map.of("objects", Helper.buildHeapObjectArgument(new int[]{1, 2, 3})));
+    }
+}
@@ -0,0 +1,48 @@
+/********************************************************************************
+ * Copyright (c) 2024 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.jifa.hda.impl;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class TestStringIndex {
+
+    @Test
+    public void testLiteralsOf() {
+        Assertions.assertEquals(List.of(), StringIndex.literalsOf(""));
+        Assertions.assertEquals(List.of("hello"), StringIndex.literalsOf("hello"));
+        Assertions.assertEquals(List.of("foo", "bar"), StringIndex.literalsOf("foo.bar"));
+        Assertions.assertEquals(List.of("a", "cde"), StringIndex.literalsOf("ab?cde"));
+        Assertions.assertEquals(List.of("a.bc", "e"), StringIndex.literalsOf("a\\.bcd*e"));
+        Assertions.assertEquals(List.of("x", "yzw"), StringIndex.literalsOf("x[abc]yzw"));
+        Assertions.assertEquals(List.of("bcd"), StringIndex.literalsOf("a{2}bcd"));
+
+        // not understood
+        Assertions.assertEquals(List.of(), StringIndex.literalsOf("(foo)"));
+        Assertions.assertEquals(List.of(), StringIndex.literalsOf("foo|bar"));
+        Assertions.assertEquals(List.of(), StringIndex.literalsOf("\\d+abc"));
+        Assertions.assertEquals(List.of(), StringIndex.literalsOf("[]x]yz"));
+    }
+
+    @Test
+    public void testNarrows() {
+        Assertions.assertTrue(StringIndex.narrows("abc"));
+        Assertions.assertTrue(StringIndex.narrows("a.bcd"));
+        Assertions.assertFalse(StringIndex.narrows(""));
+        Assertions.assertFalse(StringIndex.narrows("ab"));
+        Assertions.assertFalse(StringIndex.narrows("a.b.c"));
+        Assertions.assertFalse(StringIndex.narrows("\\d+"));
+    }
+}
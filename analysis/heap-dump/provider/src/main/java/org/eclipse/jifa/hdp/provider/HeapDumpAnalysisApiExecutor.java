@@ -15,6 +15,7 @@ package org.eclipse.jifa.hdp.provider;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
 import org.eclipse.jifa.analysis.AbstractApiExecutor;
+import org.eclipse.jifa.analysis.cache.ResultStore;
 import org.eclipse.jifa.analysis.listener.ProgressListener;
 import org.eclipse.jifa.analysis.support.MethodNameConverter;
 import org.eclipse.jifa.hda.api.HeapDumpAnalyzer;
@@ -152,6 +153,12 @@ public class HeapDumpAnalysisApiExecutor extends AbstractApiExecutor<HeapDumpAna
 
     private static final HeapDumpAnalyzer.Provider PROVIDER;
 
+    @Override
+    protected double buildMemoryCostFactor() {
+        // the heap dump is parsed in a streaming way, the memory is mainly used by the object indexes
+        return 0.5;
+    }
+
     @Override
     public String namespace() {
         return "heap-dump";
@@ -184,6 +191,21 @@ public class HeapDumpAnalysisApiExecutor extends AbstractApiExecutor<HeapDumpAna
                 log.warn("Failed to delete index file: {}", index.getAbsolutePath());
             }
         }
+        // the persisted results are computed with the options of the previous analysis
+        File resultStore = target.resolveSibling(indexFileNamePrefix(target) + ResultStore.FILE_NAME_SUFFIX).toFile();
+        if (resultStore.exists()) {
+            if (!resultStore.delete()) {
+                log.warn("Failed to delete result store file: {}", resultStore.getAbsolutePath());
+            }
+        }
+        // the string index is loaded whenever it exists, so it is only kept if enabled by the next analysis, its
+        // build is canceled by the disposal of the analyzer above, so it is not written back
+        File stringIndex = target.resolveSibling(indexFileNamePrefix(target) + "strings.index").toFile();
+        if (stringIndex.exists()) {
+            if (!stringIndex.delete()) {
+                log.warn("Failed to delete string index file: {}", stringIndex.getAbsolutePath());
+            }
+        }
     }
 
     @Override
@@ -193,7 +215,8 @@ public class HeapDumpAnalysisApiExecutor extends AbstractApiExecutor<HeapDumpAna
 
     @Override
     protected HeapDumpAnalyzer buildAnalyzer(Path target, Map<String, String> options, ProgressListener listener) {
-        return PROVIDER.provide(target, options, listener);
+        // the baselines of the comparisons are shared with the cache of this executor
+        return PROVIDER.provide(target, options, listener, this::analyzerOf);
     }
 
     @Override
@@ -203,15 +226,33 @@ public class HeapDumpAnalysisApiExecutor extends AbstractApiExecutor<HeapDumpAna
         }
     }
 
+    @Override
+    protected long estimateRetainedSize(Path target, HeapDumpAnalyzer heapDumpAnalyzer) {
+        // the snapshot is backed by the index files, the total size of them is closer to
+        // the retained size than the size of the heap dump, the mapped string index is one of them
+        String prefix = indexFileNamePrefix(target);
+        File[] indexFiles = target.toAbsolutePath().getParent().toFile()
+                                  .listFiles((dir, name) -> name.startsWith(prefix) && name.endsWith(".index"));
+        if (indexFiles == null || indexFiles.length == 0) {
+            return super.estimateRetainedSize(target, heapDumpAnalyzer);
+        }
+        long size = 0;
+        for (File indexFile : indexFiles) {
+            size += indexFile.length();
+        }
+        return size;
+    }
+
     private File indexFile(Path target) {
-        String indexFileNamePrefix;
+        return target.resolveSibling(indexFileNamePrefix(target) + "index").toFile();
+    }
+
+    private String indexFileNamePrefix(Path target) {
         String dumpFileName = target.toFile().getName();
         int i = dumpFileName.lastIndexOf('.');
         if (i >= 0) {
-            indexFileNamePrefix = dumpFileName.substring(0, i + 1);
-        } else {
-            indexFileNamePrefix = dumpFileName + '.';
+            return dumpFileName.substring(0, i + 1);
         }
-        return target.resolveSibling(indexFileNamePrefix + "index").toFile();
+        return dumpFileName + '.';
     }
 }
@@ -17,7 +17,9 @@ import org.eclipse.jifa.analysis.AbstractApiExecutor;
 import org.eclipse.jifa.analysis.listener.ProgressListener;
 import org.eclipse.jifa.analysis.support.MethodNameConverter;
 import org.eclipse.jifa.jfr.api.JFRAnalyzer;
+import org.eclipse.jifa.jfr.util.AnalysisResultSerDes;
 
+import java.io.File;
 import java.nio.file.Path;
 import java.util.Map;
 import java.util.function.Predicate;
@@ -50,6 +52,12 @@ public class JFRAnalysisApiExecutor extends AbstractApiExecutor<JFRAnalyzer> {
     @Override
     public void clean(Path target) {
         super.clean(target);
+        File sidecar = AnalysisResultSerDes.sidecarOf(target).toFile();
+        if (sidecar.exists()) {
+            if (!sidecar.delete()) {
+                log.warn("Failed to delete the persisted result: {}", sidecar.getAbsolutePath());
+            }
+        }
     }
 
     @Override
@@ -59,6 +67,12 @@ public class JFRAnalysisApiExecutor extends AbstractApiExecutor<JFRAnalyzer> {
 
     @Override
     protected JFRAnalyzer buildAnalyzer(Path target, Map<String, String> options, ProgressListener listener) {
-        return new JFRAnalyzerImpl(target, options, listener);
+        return new JFRAnalyzerImpl(target, options, listener, this::analyzerOf);
+    }
+
+    @Override
+    protected double buildMemoryCostFactor() {
+        // all events of the recording are loaded into memory during the analysis
+        return 4.0;
     }
 }
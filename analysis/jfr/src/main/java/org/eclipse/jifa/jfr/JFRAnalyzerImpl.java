@@ -12,20 +12,27 @@
  ********************************************************************************/
 package org.eclipse.jifa.jfr;
 
-import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.jifa.analysis.listener.ProgressListener;
+import org.eclipse.jifa.common.domain.exception.CommonException;
+import org.eclipse.jifa.common.util.ExecutorFactory;
 import org.eclipse.jifa.jfr.api.JFRAnalyzer;
 import org.eclipse.jifa.jfr.exception.ProfileAnalysisException;
 import org.eclipse.jifa.jfr.extractor.*;
 import org.eclipse.jifa.jfr.extractor.Extractor;
 import org.eclipse.jifa.jfr.extractor.JFRAnalysisContext;
+import org.eclipse.jifa.jfr.common.EventConstant;
 import org.eclipse.jifa.jfr.common.ProfileDimension;
 import org.eclipse.jifa.jfr.model.AnalysisResult;
+import org.eclipse.jifa.jfr.model.jfr.EventType;
 import org.eclipse.jifa.jfr.model.jfr.RecordedEvent;
 import org.eclipse.jifa.jfr.request.AnalysisRequest;
 import org.eclipse.jifa.jfr.request.DimensionBuilder;
+import org.eclipse.jifa.jfr.util.AnalysisResultSerDes;
 import org.eclipse.jifa.jfr.model.*;
+import org.eclipse.jifa.jfr.vo.AllocatedClass;
+import org.eclipse.jifa.jfr.vo.CompactFlameGraph;
+import org.eclipse.jifa.jfr.vo.DiffFlameGraph;
 import org.eclipse.jifa.jfr.vo.Metadata;
 import org.eclipse.jifa.jfr.vo.FlameGraph;
 import org.openjdk.jmc.common.item.IItem;
@@ -40,31 +47,101 @@ import org.openjdk.jmc.flightrecorder.rules.Severity;
 
 import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
 
 @SuppressWarnings("unchecked")
 @Slf4j
 public class JFRAnalyzerImpl implements JFRAnalyzer {
 
+    /**
+     * The option to stream the events into the extractors of the requested dimensions instead of keeping all the
+     * events, which reduces the memory usage of large recordings, all the requested dimensions are then processed
+     * during the analysis.
+     */
+    public static final String STREAMING_OPTION = "streaming";
+
+    /**
+     * The option of the number of workers that transform the events and run the extractors, the number of the
+     * available processors by default.
+     */
+    public static final String PARALLELISM_OPTION = "parallelism";
+
+    private static final Executor EXECUTOR = ExecutorFactory.newExecutor("JFR Analyzer");
+
+    private static final ScheduledExecutorService RULE_TIMER =
+            ExecutorFactory.newScheduledExecutorService("JFR Rule Timer", 1);
+
+    // the evaluation of a jmc rule is interrupted once it takes longer than this
+    private static final long RULE_TIMEOUT_SECONDS = 60;
+
+    private static final int ALLOCATION_DIMENSIONS = DimensionBuilder.ALLOC | DimensionBuilder.MEM;
+
+    // number of events in a slice of the events that are transformed by a worker
+    private static final int SLICE_SIZE = 16 * 1024;
+
+    // number of events between two checks of cancellation
+    private static final int CANCELLATION_CHECK_INTERVAL = 4096;
+
     private final ProgressListener listener;
     private final JFRAnalysisContext context;
 
-    @Getter
     private final AnalysisResult result;
 
+    private final boolean streaming;
+
+    // provides the analyzers of the baseline recordings
+    private final Function<Path, JFRAnalyzer> analyzers;
+
+    // the dimensions whose events have been processed, the others are processed on first request
+    private volatile int processedDimensions;
+
+    // guards the processing of the dimensions and the persisting of the result
+    private final Object processingLock = new Object();
+
+    // true if a persisting of the result is scheduled but not started yet
+    private final AtomicBoolean persistScheduled = new AtomicBoolean();
+
+    // the latest persisting of the result
+    private volatile CompletableFuture<?> persisting = CompletableFuture.completedFuture(null);
+
+    // false if the result is loaded from the persisted one or the events are released, the events are then loaded
+    // on first request
+    private boolean eventsLoaded;
+
     public JFRAnalyzerImpl(Path path, Map<String, String> options, ProgressListener listener) {
         this(path, DimensionBuilder.ALL, options, listener);
     }
 
+    public JFRAnalyzerImpl(Path path, Map<String, String> options, ProgressListener listener,
+                           Function<Path, JFRAnalyzer> analyzers) {
+        this(path, DimensionBuilder.ALL, options, listener, analyzers);
+    }
+
     public JFRAnalyzerImpl(Path path, int dimension, Map<String, String> options, ProgressListener listener) {
-        AnalysisRequest request = new AnalysisRequest(path, dimension);
+        this(path, dimension, options, listener,
+             other -> new JFRAnalyzerImpl(other, Collections.emptyMap(), ProgressListener.NoOpProgressListener));
+    }
+
+    public JFRAnalyzerImpl(Path path, int dimension, Map<String, String> options, ProgressListener listener,
+                           Function<Path, JFRAnalyzer> analyzers) {
+        AnalysisRequest request = new AnalysisRequest(parallelism(options), path, dimension);
         this.listener = listener;
+        this.analyzers = analyzers;
         this.context = new JFRAnalysisContext(request);
+        this.streaming = options != null && Boolean.parseBoolean(options.get(STREAMING_OPTION));
         try {
             this.result = this.execute(request);
         } catch (RuntimeException t) {
@@ -74,9 +151,199 @@ public class JFRAnalyzerImpl implements JFRAnalyzer {
         }
     }
 
+    private static int parallelism(Map<String, String> options) {
+        String value = options != null ? options.get(PARALLELISM_OPTION) : null;
+        if (value == null || value.isBlank()) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new CommonException("Illegal " + PARALLELISM_OPTION + ": " + value);
+        }
+    }
+
+    /**
+     * @return the result of all the dimensions of the request, the dimensions not requested yet are processed first
+     */
+    public AnalysisResult getResult() {
+        processDimensionsIfNeeded(context.getRequest().getDimensions());
+        return result;
+    }
+
+    @Override
+    public FlameGraph getFlameGraph(String dimension, boolean include, List<String> taskSet, long startTime,
+                                    long endTime) {
+        ProfileDimension profileDimension = ProfileDimension.of(dimension);
+        processDimensionsIfNeeded(profileDimension.getValue());
+        return createFlameGraph(profileDimension, windowOf(profileDimension, startTime, endTime), include, taskSet);
+    }
+
+    @Override
+    public CompactFlameGraph getCompactFlameGraph(String dimension, boolean include, List<String> taskSet,
+                                                  double minWeightRatio, long startTime, long endTime) {
+        ProfileDimension profileDimension = ProfileDimension.of(dimension);
+        processDimensionsIfNeeded(profileDimension.getValue());
+        return createCompactFlameGraph(profileDimension, windowOf(profileDimension, startTime, endTime), include,
+                                       taskSet, minWeightRatio);
+    }
+
     @Override
-    public FlameGraph getFlameGraph(String dimension, boolean include, List<String> taskSet) {
-        return createFlameGraph(ProfileDimension.of(dimension), result, include, taskSet);
+    public DiffFlameGraph getDiffFlameGraph(String dimension, Path other) {
+        CompactFlameGraph target = getCompactFlameGraph(dimension, false, null, 0, 0, 0);
+        CompactFlameGraph baseline = analyzers.apply(other).getCompactFlameGraph(dimension, false, null, 0, 0, 0);
+        return diff(target, baseline);
+    }
+
+    @Override
+    public List<AllocatedClass> getAllocatedClasses(String dimension, boolean include, List<String> taskSet) {
+        Map<String, Long> weights = new HashMap<>();
+        for (ClassAllocationSamples task : classAllocationSamplesOf(dimension, include, taskSet)) {
+            task.getClassSamples().forEach((className, samples) -> weights.merge(
+                    className, samples.values().stream().mapToLong(Long::longValue).sum(), Long::sum));
+        }
+        List<AllocatedClass> classes = new ArrayList<>(weights.size());
+        weights.forEach((className, weight) -> classes.add(new AllocatedClass(className, weight)));
+        classes.sort((o1, o2) -> Long.compare(o2.getWeight(), o1.getWeight()));
+        return classes;
+    }
+
+    @Override
+    public FlameGraph getFlameGraphOfAllocatedClass(String dimension, String className, boolean include,
+                                                    List<String> taskSet) {
+        DimensionResult<TaskResultBase> classResult = new DimensionResult<>();
+        classResult.setList(new ArrayList<>());
+        for (ClassAllocationSamples task : classAllocationSamplesOf(dimension, include, taskSet)) {
+            Map<StackTrace, Long> samples = task.getClassSamples().get(className);
+            if (samples != null) {
+                TaskResultBase ts = new TaskResultBase(((TaskResultBase) task).getTask());
+                ts.setSamples(samples);
+                classResult.add(ts);
+            }
+        }
+        // the tasks are already selected
+        return createFlameGraph(ProfileDimension.of(dimension), classResult, true, null);
+    }
+
+    // the tasks are selected in the same way as createFlameGraph
+    private List<ClassAllocationSamples> classAllocationSamplesOf(String dimension, boolean include,
+                                                                  List<String> taskSet) {
+        ProfileDimension profileDimension = ProfileDimension.of(dimension);
+        if (profileDimension != ProfileDimension.ALLOC && profileDimension != ProfileDimension.MEM) {
+            throw new RuntimeException("not an allocation dimension [" + dimension + "]");
+        }
+        processDimensionsIfNeeded(profileDimension.getValue());
+        Set<String> set = taskSet != null && !taskSet.isEmpty() ? new HashSet<>(taskSet) : null;
+        List<ClassAllocationSamples> tasks = new ArrayList<>();
+        DimensionResult<? extends TaskResultBase> dimensionResult = dimensionResultOf(profileDimension, result);
+        if (dimensionResult != null && dimensionResult.getList() != null) {
+            for (TaskResultBase ts : dimensionResult.getList()) {
+                if (set == null || include == set.contains(ts.getTask().getName())) {
+                    tasks.add((ClassAllocationSamples) ts);
+                }
+            }
+        }
+        return tasks;
+    }
+
+    /*
+     * The nodes of the baseline are matched to the nodes of the target by the parent and the name of the frame. Since
+     * the parent of a node always precedes the node, both trees are merged in one pass over their nodes.
+     */
+    private static DiffFlameGraph diff(CompactFlameGraph target, CompactFlameGraph baseline) {
+        List<String> symbols = new ArrayList<>(Arrays.asList(target.getSymbols()));
+        Map<String, Integer> symbolIds = new HashMap<>();
+        for (int i = 0; i < symbols.size(); i++) {
+            symbolIds.put(symbols.get(i), i);
+        }
+        int[] baselineSymbols = new int[baseline.getSymbols().length];
+        for (int i = 0; i < baselineSymbols.length; i++) {
+            baselineSymbols[i] = symbolIds.computeIfAbsent(baseline.getSymbols()[i], s -> {
+                symbols.add(s);
+                return symbols.size() - 1;
+            });
+        }
+
+        int targetSize = target.getFrames().length;
+        int capacity = targetSize + baseline.getFrames().length;
+        int[] frames = new int[capacity];
+        int[] parents = new int[capacity];
+        long[] weights = new long[capacity];
+        long[] deltas = new long[capacity];
+        Map<Long, Integer> nodes = new HashMap<>();
+        for (int i = 0; i < targetSize; i++) {
+            frames[i] = target.getFrames()[i];
+            parents[i] = target.getParents()[i];
+            weights[i] = target.getWeights()[i];
+            deltas[i] = weights[i];
+            nodes.put(((long) parents[i] << 32) | frames[i], i);
+        }
+        int size = targetSize;
+        int[] baselineNodes = new int[baseline.getFrames().length];
+        for (int i = 0; i < baselineNodes.length; i++) {
+            int parent = baseline.getParents()[i] >= 0 ? baselineNodes[baseline.getParents()[i]] : -1;
+            int frame = baselineSymbols[baseline.getFrames()[i]];
+            Integer node = nodes.get(((long) parent << 32) | frame);
+            if (node == null) {
+                node = size++;
+                frames[node] = frame;
+                parents[node] = parent;
+                nodes.put(((long) parent << 32) | frame, node);
+            }
+            deltas[node] -= baseline.getWeights()[i];
+            baselineNodes[i] = node;
+        }
+
+        DiffFlameGraph fg = new DiffFlameGraph();
+        fg.setSymbols(symbols.toArray(new String[0]));
+        fg.setFrames(Arrays.copyOf(frames, size));
+        fg.setParents(Arrays.copyOf(parents, size));
+        fg.setWeights(Arrays.copyOf(weights, size));
+        fg.setDeltas(Arrays.copyOf(deltas, size));
+        fg.setTotalWeight(target.getTotalWeight());
+        fg.setBaselineTotalWeight(baseline.getTotalWeight());
+        return fg;
+    }
+
+    /*
+     * The samples of the window are aggregated from the sample index of the dimension, and scaled by the ratio of the
+     * weight of the task in the result to the weight of the task in the index, so that they are in the same unit as
+     * the samples of the whole recording. The CPU time of a task is scaled by the share of its samples in the window.
+     */
+    private DimensionResult<? extends TaskResultBase> windowOf(ProfileDimension dimension, long startTime,
+                                                               long endTime) {
+        DimensionResult<? extends TaskResultBase> full = dimensionResultOf(dimension, result);
+        SampleIndex index = full.getSampleIndex();
+        if ((startTime <= 0 && endTime <= 0) || index == null || full.getList() == null) {
+            return full;
+        }
+        Map<Long, Map<StackTrace, Long>> samples =
+                index.aggregate(startTime > 0 ? TimeUnit.MILLISECONDS.toNanos(startTime) : Long.MIN_VALUE,
+                                endTime > 0 ? TimeUnit.MILLISECONDS.toNanos(endTime) : Long.MAX_VALUE);
+
+        DimensionResult<TaskResultBase> window = new DimensionResult<>();
+        window.setList(new ArrayList<>());
+        for (TaskResultBase ts : full.getList()) {
+            Map<StackTrace, Long> taskSamples = samples.get(ts.getTask().getId());
+            long indexed = index.valueOf(ts.getTask().getId());
+            if (taskSamples == null || indexed <= 0) {
+                continue;
+            }
+            double ratio = (double) ts.getSamples().values().stream().mapToLong(Long::longValue).sum() / indexed;
+            TaskResultBase windowed;
+            if (ts instanceof TaskCPUTime cpuTime) {
+                TaskCPUTime windowedCPUTime = new TaskCPUTime(ts.getTask());
+                double share = (double) taskSamples.values().stream().mapToLong(Long::longValue).sum() / indexed;
+                windowedCPUTime.setUser(Math.round(cpuTime.getUser() * share));
+                windowedCPUTime.setSystem(Math.round(cpuTime.getSystem() * share));
+                windowed = windowedCPUTime;
+            } else {
+                windowed = new TaskResultBase(ts.getTask());
+            }
+            taskSamples.forEach((stackTrace, value) -> windowed.merge(stackTrace, Math.round(value * ratio)));
+            window.add(windowed);
+        }
+        return window;
     }
 
     @Override
@@ -86,36 +353,16 @@ public class JFRAnalyzerImpl implements JFRAnalyzer {
         return basic;
     }
 
-    private FlameGraph createFlameGraph(ProfileDimension dimension, AnalysisResult result, boolean include,
-                                        List<String> taskSet) {
+    @SuppressWarnings("unchecked")
+    private FlameGraph createFlameGraph(ProfileDimension dimension, DimensionResult<? extends TaskResultBase> result,
+                                        boolean include, List<String> taskSet) {
         List<Object[]> os = new ArrayList<>();
         Map<String, Long> names = new HashMap<>();
         SymbolMap symbolTable = new SymbolMap();
         if (dimension == ProfileDimension.CPU) {
-            DimensionResult<TaskCPUTime> cpuTime = result.getCpuTime();
-            generateCpuTime(cpuTime, os, names, symbolTable, include, taskSet);
+            generateCpuTime((DimensionResult<TaskCPUTime>) result, os, names, symbolTable, include, taskSet);
         } else {
-            DimensionResult<? extends TaskResultBase> DimensionResult = switch (dimension) {
-                case CPU_SAMPLE -> result.getCpuSample();
-                case WALL_CLOCK -> result.getWallClock();
-                case NATIVE_EXECUTION_SAMPLES -> result.getNativeExecutionSamples();
-                case ALLOC -> result.getAllocations();
-                case MEM -> result.getAllocatedMemory();
-                case FILE_IO_TIME -> result.getFileIOTime();
-                case FILE_READ_SIZE -> result.getFileReadSize();
-                case FILE_WRITE_SIZE -> result.getFileWriteSize();
-                case SOCKET_READ_TIME -> result.getSocketReadTime();
-                case SOCKET_READ_SIZE -> result.getSocketReadSize();
-                case SOCKET_WRITE_TIME -> result.getSocketWriteTime();
-                case SOCKET_WRITE_SIZE -> result.getSocketWriteSize();
-                case SYNCHRONIZATION -> result.getSynchronization();
-                case THREAD_PARK -> result.getThreadPark();
-                case CLASS_LOAD_COUNT -> result.getClassLoadCount();
-                case CLASS_LOAD_WALL_TIME -> result.getClassLoadWallTime();
-                case THREAD_SLEEP -> result.getThreadSleepTime();
-                default -> throw new RuntimeException("should not reach here");
-            };
-            generate(DimensionResult, os, names, symbolTable, include, taskSet);
+            generate(result, os, names, symbolTable, include, taskSet);
         }
 
         FlameGraph fg = new FlameGraph();
@@ -125,6 +372,72 @@ public class JFRAnalyzerImpl implements JFRAnalyzer {
         return fg;
     }
 
+    private static DimensionResult<? extends TaskResultBase> dimensionResultOf(ProfileDimension dimension,
+                                                                               AnalysisResult result) {
+        return switch (dimension) {
+            case CPU -> result.getCpuTime();
+            case CPU_SAMPLE -> result.getCpuSample();
+            case WALL_CLOCK -> result.getWallClock();
+            case NATIVE_EXECUTION_SAMPLES -> result.getNativeExecutionSamples();
+            case ALLOC -> result.getAllocations();
+            case MEM -> result.getAllocatedMemory();
+            case FILE_IO_TIME -> result.getFileIOTime();
+            case FILE_READ_SIZE -> result.getFileReadSize();
+            case FILE_WRITE_SIZE -> result.getFileWriteSize();
+            case SOCKET_READ_TIME -> result.getSocketReadTime();
+            case SOCKET_READ_SIZE -> result.getSocketReadSize();
+            case SOCKET_WRITE_TIME -> result.getSocketWriteTime();
+            case SOCKET_WRITE_SIZE -> result.getSocketWriteSize();
+            case SYNCHRONIZATION -> result.getSynchronization();
+            case THREAD_PARK -> result.getThreadPark();
+            case CLASS_LOAD_COUNT -> result.getClassLoadCount();
+            case CLASS_LOAD_WALL_TIME -> result.getClassLoadWallTime();
+            case THREAD_SLEEP -> result.getThreadSleepTime();
+            default -> throw new RuntimeException("should not reach here");
+        };
+    }
+
+    // the tasks are selected in the same way as createFlameGraph
+    @SuppressWarnings("unchecked")
+    private CompactFlameGraph createCompactFlameGraph(ProfileDimension dimension,
+                                                      DimensionResult<? extends TaskResultBase> result,
+                                                      boolean include, List<String> taskSet, double minWeightRatio) {
+        StackTree tree = new StackTree();
+        Map<String, Long> names = new HashMap<>();
+        boolean filter = taskSet != null && !taskSet.isEmpty();
+        if (dimension == ProfileDimension.CPU) {
+            for (TaskCPUTime ct : ((DimensionResult<TaskCPUTime>) result).getList()) {
+                String name = ct.getTask().getName();
+                Map<StackTrace, Long> samples = ct.getSamples();
+                if ((filter && include != isTaskNameIn(name, taskSet)) || samples == null || samples.isEmpty()) {
+                    continue;
+                }
+                long taskTotalTime = ct.getUser() + ct.getSystem();
+                long perSampleTime = taskTotalTime / samples.values().stream().mapToLong(Long::longValue).sum();
+                samples.forEach((stackTrace, count) -> tree.add(stackTrace, count * perSampleTime));
+                names.put(name, taskTotalTime);
+            }
+        } else {
+            Set<String> set = filter ? new HashSet<>(taskSet) : null;
+            for (TaskResultBase ts : result.getList()) {
+                String name = ts.getTask().getName();
+                if (set != null && include != set.contains(name)) {
+                    continue;
+                }
+                long total = 0;
+                for (Map.Entry<StackTrace, Long> sample : ts.getSamples().entrySet()) {
+                    tree.add(sample.getKey(), sample.getValue());
+                    total += sample.getValue();
+                }
+                names.put(name, total);
+            }
+        }
+
+        CompactFlameGraph fg = tree.build(minWeightRatio);
+        fg.setThreadSplit(names);
+        return fg;
+    }
+
     private void generate(DimensionResult<? extends TaskResultBase> result, List<Object[]> os, Map<String, Long> names,
                           SymbolMap map, boolean include, List<String> taskSet) {
         List<? extends TaskResultBase> list = result.getList();
@@ -148,13 +461,8 @@ public class JFRAnalyzerImpl implements JFRAnalyzer {
         Map<StackTrace, Long> samples = taskResult.getSamples();
         long total = 0;
         for (StackTrace s : samples.keySet()) {
-            Frame[] frames = s.getFrames();
-            String[] fs = new String[frames.length];
-            for (int i = frames.length - 1, j = 0; i >= 0; i--, j++) {
-                fs[j] = frames[i].toString();
-            }
             Object[] o = new Object[3];
-            o[0] = map.processSymbols(fs);
+            o[0] = map.processStackTrace(s);
             o[1] = samples.get(s);
             o[2] = taskResult.getTask().getName();
             os.add(o);
@@ -196,13 +504,8 @@ public class JFRAnalyzerImpl implements JFRAnalyzer {
                 long perSampleTime = taskTotalTime / sampleCount.get();
 
                 for (StackTrace s : samples.keySet()) {
-                    Frame[] frames = s.getFrames();
-                    String[] fs = new String[frames.length];
-                    for (int i = frames.length - 1, j = 0; i >= 0; i--, j++) {
-                        fs[j] = frames[i].toString();
-                    }
                     Object[] o = new Object[3];
-                    o[0] = map.processSymbols(fs);
+                    o[0] = map.processStackTrace(s);
                     o[1] = samples.get(s) * perSampleTime;
                     o[2] = ct.getTask().getName();
                     os.add(o);
@@ -215,6 +518,38 @@ public class JFRAnalyzerImpl implements JFRAnalyzer {
 
     private static class SymbolMap {
         private final Map<String, Integer> map = new HashMap<>();
+        // the ids in the graph by the ids of the frames in StackTracePool
+        private String[] frameSymbols = new String[1024];
+
+        // the frames of the result start from the bottom
+        String[] processStackTrace(StackTrace stackTrace) {
+            Frame[] frames = stackTrace.getFrames();
+            int[] frameIds = stackTrace.getFrameIds();
+            if (frameIds == null) {
+                String[] fs = new String[frames.length];
+                for (int i = frames.length - 1, j = 0; i >= 0; i--, j++) {
+                    fs[j] = frames[i].toString();
+                }
+                return processSymbols(fs);
+            }
+
+            String[] result = new String[frames.length];
+            synchronized (map) {
+                for (int i = frames.length - 1, j = 0; i >= 0; i--, j++) {
+                    int frameId = frameIds[i];
+                    if (frameId >= frameSymbols.length) {
+                        frameSymbols = Arrays.copyOf(frameSymbols, Math.max(frameSymbols.length * 2, frameId + 1));
+                    }
+                    String symbol = frameSymbols[frameId];
+                    if (symbol == null) {
+                        symbol = String.valueOf(map.computeIfAbsent(frames[i].toString(), k -> map.size() + 1));
+                        frameSymbols[frameId] = symbol;
+                    }
+                    result[j] = symbol;
+                }
+            }
+            return result;
+        }
 
         String[] processSymbols(String[] fs) {
             if (fs == null || fs.length == 0) {
@@ -247,9 +582,111 @@ public class JFRAnalyzerImpl implements JFRAnalyzer {
         }
     }
 
+    /*
+     * The stacks merged into a prefix tree, the nodes are kept in growable parallel arrays, and the children of a
+     * node are found by the key of the node and the frame.
+     */
+    private static class StackTree {
+        private final Map<String, Integer> frameIds = new HashMap<>();
+        // the frames of the tree by the ids of the frames in StackTracePool, offset by one
+        private int[] poolFrames = new int[1024];
+        private final Map<Long, Integer> children = new HashMap<>();
+        private int[] frames = new int[1024];
+        private int[] parents = new int[1024];
+        private long[] weights = new long[1024];
+        private int size;
+        private long totalWeight;
+
+        void add(StackTrace stackTrace, long weight) {
+            Frame[] fs = stackTrace.getFrames();
+            int[] ids = stackTrace.getFrameIds();
+            int parent = -1;
+            // the frames of a stack trace start from the top
+            for (int i = fs.length - 1; i >= 0; i--) {
+                int frame = ids == null ? frameOf(fs[i]) : frameOf(fs[i], ids[i]);
+                int p = parent;
+                parent = children.computeIfAbsent(((long) p << 32) | frame, k -> newNode(frame, p));
+                weights[parent] += weight;
+            }
+            totalWeight += weight;
+        }
+
+        private int frameOf(Frame frame) {
+            return frameIds.computeIfAbsent(frame.toString(), k -> frameIds.size());
+        }
+
+        private int frameOf(Frame frame, int poolFrame) {
+            if (poolFrame >= poolFrames.length) {
+                poolFrames = Arrays.copyOf(poolFrames, Math.max(poolFrames.length * 2, poolFrame + 1));
+            }
+            if (poolFrames[poolFrame] == 0) {
+                poolFrames[poolFrame] = frameOf(frame) + 1;
+            }
+            return poolFrames[poolFrame] - 1;
+        }
+
+        private int newNode(int frame, int parent) {
+            if (size == frames.length) {
+                frames = Arrays.copyOf(frames, size * 2);
+                parents = Arrays.copyOf(parents, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            frames[size] = frame;
+            parents[size] = parent;
+            return size++;
+        }
+
+        CompactFlameGraph build(double minWeightRatio) {
+            double minWeight = minWeightRatio > 0 ? minWeightRatio * totalWeight : 0;
+            String[] names = new String[frameIds.size()];
+            frameIds.forEach((name, id) -> names[id] = name);
+
+            // a node is kept if its weight is large enough and its parent is kept
+            int[] nodeIndexes = new int[size];
+            int[] frameIndexes = new int[names.length];
+            Arrays.fill(frameIndexes, -1);
+            List<String> symbols = new ArrayList<>();
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                int parent = parents[i];
+                if (weights[i] < minWeight || (parent >= 0 && nodeIndexes[parent] < 0)) {
+                    nodeIndexes[i] = -1;
+                    continue;
+                }
+                if (frameIndexes[frames[i]] < 0) {
+                    frameIndexes[frames[i]] = symbols.size();
+                    symbols.add(names[frames[i]]);
+                }
+                nodeIndexes[i] = count++;
+            }
+
+            int[] fs = new int[count];
+            int[] ps = new int[count];
+            long[] ws = new long[count];
+            for (int i = 0; i < size; i++) {
+                int index = nodeIndexes[i];
+                if (index >= 0) {
+                    fs[index] = frameIndexes[frames[i]];
+                    ps[index] = parents[i] >= 0 ? nodeIndexes[parents[i]] : -1;
+                    ws[index] = weights[i];
+                }
+            }
+
+            CompactFlameGraph fg = new CompactFlameGraph();
+            fg.setSymbols(symbols.toArray(new String[0]));
+            fg.setFrames(fs);
+            fg.setParents(ps);
+            fg.setWeights(ws);
+            fg.setTotalWeight(totalWeight);
+            return fg;
+        }
+    }
+
     public AnalysisResult execute(AnalysisRequest request) throws ProfileAnalysisException {
         try {
             return analyze(request);
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
             if (e instanceof ProfileAnalysisException) {
                 throw (ProfileAnalysisException) e;
@@ -258,77 +695,300 @@ public class JFRAnalyzerImpl implements JFRAnalyzer {
         }
     }
 
+    /*
+     * The events are loaded, transformed and sorted once, the extractors of a dimension run when the dimension is
+     * requested for the first time, since users typically look at only one or two dimensions.
+     */
     private AnalysisResult analyze(AnalysisRequest request) throws Exception {
-        listener.beginTask("Analyzing", 5);
+        AnalysisResult persisted = loadPersistedResult(request);
+        if (persisted != null) {
+            return persisted;
+        }
+
+        listener.beginTask("Analyzing", 4);
         long startTime = System.currentTimeMillis();
         AnalysisResult r = new AnalysisResult();
 
         IItemCollection collection = this.loadEvents(request);
+        listener.checkCanceled();
 
-        this.analyzeProblemsIfNeeded(request, collection, r);
-
-        this.transformEvents(request, collection);
-
-        this.sortEvents();
+        // the rules are evaluated while the events are transformed and processed
+        RuleEvaluation evaluation = this.analyzeProblemsIfNeeded(request, collection);
+        try {
+            if (streaming) {
+                this.streamEvents(request, collection, r);
+            } else {
+                this.transformEvents(request, collection);
+                listener.checkCanceled();
 
-        this.processEvents(request, r);
+                this.sortEvents();
+                eventsLoaded = true;
+            }
+            listener.checkCanceled();
+        } catch (Throwable t) {
+            evaluation.stop();
+            throw t;
+        }
+        evaluation.await(r);
+        listener.worked(1);
 
         r.setProcessingTimeMillis(System.currentTimeMillis() - startTime);
         log.info(String.format("Analysis took %d milliseconds", r.getProcessingTimeMillis()));
 
+        persistResult(r);
         return r;
     }
 
-    private void processEvents(AnalysisRequest request, AnalysisResult r) throws Exception {
-        listener.subTask("Do Extractors");
-        List<RecordedEvent> events = this.context.getEvents();
-        final List<Extractor> extractors = getExtractors(request);
+    private AnalysisResult loadPersistedResult(AnalysisRequest request) {
+        if (request.getInput() == null) {
+            return null;
+        }
+        try {
+            AnalysisResultSerDes.Snapshot snapshot = AnalysisResultSerDes.read(request.getInput());
+            int problems = request.getDimensions() & ProfileDimension.PROBLEMS.getValue();
+            if (snapshot == null || (snapshot.dimensions() & problems) != problems) {
+                return null;
+            }
+            // the frame ids are not persisted
+            for (ProfileDimension dimension : ProfileDimension.values()) {
+                if ((snapshot.dimensions() & dimension.getValue() & DimensionBuilder.ALL) == 0) {
+                    continue;
+                }
+                DimensionResult<? extends TaskResultBase> dimensionResult =
+                        dimensionResultOf(dimension, snapshot.result());
+                if (dimensionResult == null || dimensionResult.getList() == null) {
+                    continue;
+                }
+                for (TaskResultBase taskResult : dimensionResult.getList()) {
+                    if (taskResult.getSamples() != null) {
+                        taskResult.getSamples().keySet().forEach(context.getStackTraces()::assignFrameIds);
+                    }
+                }
+            }
+            processedDimensions = snapshot.dimensions();
+            log.info("Loaded the persisted result of {}", request.getInput());
+            return snapshot.result();
+        } catch (Throwable t) {
+            log.warn("Failed to load the persisted result of {}: {}", request.getInput(), t.getMessage());
+            return null;
+        }
+    }
+
+    private void persistResult(AnalysisResult r) {
+        AnalysisRequest request = context.getRequest();
+        if (request.getInput() == null) {
+            return;
+        }
+        int dimensions = processedDimensions | (request.getDimensions() & ProfileDimension.PROBLEMS.getValue());
+        try {
+            AnalysisResultSerDes.write(request.getInput(), dimensions, r);
+        } catch (Throwable t) {
+            log.warn("Failed to persist the result of {}: {}", request.getInput(), t.getMessage());
+        }
+    }
 
-        if (request.getParallelWorkers() > 1) {
-            CountDownLatch countDownLatch = new CountDownLatch(extractors.size());
-            ExecutorService es = Executors.newFixedThreadPool(request.getParallelWorkers());
-            extractors.forEach(item -> es.submit(() -> {
-                try {
-                    doExtractorWork(events, item, r);
-                } catch (Exception e) {
-                    log.error(e.getMessage(), e);
-                } finally {
-                    countDownLatch.countDown();
+    /*
+     * The requests of the processed dimensions return without locking. The processing of the other dimensions is
+     * serialized, the result is persisted in the background, and the events are released once all the dimensions
+     * of the request are processed.
+     */
+    private void processDimensionsIfNeeded(int dimensions) {
+        if ((dimensions & DimensionBuilder.ALL & ~processedDimensions) == 0) {
+            return;
+        }
+        synchronized (processingLock) {
+            int pending = dimensions & DimensionBuilder.ALL & ~processedDimensions;
+            if (pending == 0) {
+                return;
+            }
+            if ((pending & ALLOCATION_DIMENSIONS) != 0) {
+                // both allocation dimensions are extracted in one pass, so the other one is processed along if
+                // requested
+                pending |= context.getRequest().getDimensions() & ALLOCATION_DIMENSIONS & ~processedDimensions;
+            }
+            long startTime = System.currentTimeMillis();
+            try {
+                if (!eventsLoaded) {
+                    // the result is persisted without the pending dimensions
+                    AnalysisRequest request = context.getRequest();
+                    transformEvents(request, loadEvents(request));
+                    sortEvents();
+                    eventsLoaded = true;
                 }
-            }));
-            countDownLatch.await();
-            es.shutdown();
+                processEvents(pending, result);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            // publishes the result of the pending dimensions to the requests that do not lock
+            processedDimensions |= pending;
+            log.info(String.format("Processing dimensions %d took %d milliseconds", pending,
+                                   System.currentTimeMillis() - startTime));
+            if ((context.getRequest().getDimensions() & DimensionBuilder.ALL & ~processedDimensions) == 0) {
+                context.releaseEvents();
+                eventsLoaded = false;
+            }
+        }
+        schedulePersisting();
+    }
+
+    private void schedulePersisting() {
+        if (context.getRequest().getInput() == null || !persistScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        persisting = CompletableFuture.runAsync(() -> {
+            synchronized (processingLock) {
+                // the dimensions processed after the scheduling are persisted as well
+                persistScheduled.set(false);
+                persistResult(result);
+            }
+        }, EXECUTOR);
+    }
+
+    /**
+     * Wait for the result of the processed dimensions to be persisted.
+     */
+    void awaitPersisting() {
+        persisting.join();
+    }
+
+    // runs after the analyzer is built, so the extractors are not bound to the listener of the build
+    private void processEvents(int dimensions, AnalysisResult r) throws Exception {
+        final List<Extractor> extractors = getExtractors(dimensions);
+        AnalysisRequest request = this.context.getRequest();
+
+        if (request.getParallelWorkers() > 1) {
+            // at most parallelWorkers extractors run at the same time on the shared executor
+            AtomicInteger next = new AtomicInteger();
+            CompletableFuture<?>[] futures =
+                    new CompletableFuture[Math.min(request.getParallelWorkers(), extractors.size())];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = CompletableFuture.runAsync(() -> {
+                    int index;
+                    while ((index = next.getAndIncrement()) < extractors.size()) {
+                        try {
+                            doExtractorWork(extractors.get(index), r);
+                        } catch (Exception e) {
+                            log.error(e.getMessage(), e);
+                        }
+                    }
+                }, EXECUTOR);
+            }
+            CompletableFuture.allOf(futures).join();
         } else {
             extractors.forEach(item -> {
-                doExtractorWork(events, item, r);
+                doExtractorWork(item, r);
             });
         }
-        listener.worked(1);
     }
 
-    private void doExtractorWork(List<RecordedEvent> events, Extractor extractor, AnalysisResult r) {
-        events.forEach(extractor::process);
+    // the extractor visits only the events of the types it is interested in
+    private void doExtractorWork(Extractor extractor, AnalysisResult r) {
+        this.context.forEachEvent(extractor.getInterestedTypeIds(), extractor::process);
         extractor.fillResult(r);
     }
 
-    private List<Extractor> getExtractors(AnalysisRequest request) {
-        return getExtractors(request.getDimensions());
-    }
-
     private void sortEvents() {
         listener.subTask("Sort Events");
         this.context.getEvents().sort(Comparator.comparing(RecordedEvent::getStartTime));
+        this.context.indexEvents();
         listener.worked(1);
     }
 
+    /*
+     * Only the extractors that depend on the order of the events need the events to be kept and sorted, the others
+     * consume the events while the iterables are read. The events of the types no extractor is interested in are
+     * skipped without being transformed.
+     */
+    private void streamEvents(AnalysisRequest request, IItemCollection collection, AnalysisResult r) {
+        listener.subTask("Stream Events");
+        List<IItemIterable> iterables = collection.stream().toList();
+
+        // the active settings are needed before the other events
+        int activeSettingTypeId = EventType.of(EventConstant.ACTIVE_SETTING).id();
+        for (IItemIterable iterable : iterables) {
+            if (typeIdOf(iterable) == activeSettingTypeId) {
+                iterable.forEach(this::parseEventItem);
+            }
+        }
+
+        int dimensions = request.getDimensions() & DimensionBuilder.ALL;
+        List<Extractor> extractors = getExtractors(dimensions);
+        BitSet keptTypeIds = new BitSet();
+        Map<Integer, List<Extractor>> consumers = new HashMap<>();
+        for (Extractor extractor : extractors) {
+            for (int typeId : extractor.getInterestedTypeIds()) {
+                if (extractor.isOrderSensitive()) {
+                    keptTypeIds.set(typeId);
+                } else {
+                    consumers.computeIfAbsent(typeId, k -> new ArrayList<>()).add(extractor);
+                }
+            }
+        }
+
+        for (RecordedEvent event : context.getEvents()) {
+            consumers.getOrDefault(activeSettingTypeId, Collections.emptyList()).forEach(e -> e.process(event));
+        }
+
+        long count = 0;
+        for (IItemIterable iterable : iterables) {
+            int typeId = typeIdOf(iterable);
+            List<Extractor> typeConsumers = consumers.get(typeId);
+            boolean keep = keptTypeIds.get(typeId);
+            if (typeId == activeSettingTypeId || (typeConsumers == null && !keep)) {
+                continue;
+            }
+            for (IItem item : iterable) {
+                if (++count % CANCELLATION_CHECK_INTERVAL == 0) {
+                    listener.checkCanceled();
+                }
+                RecordedEvent event = RecordedEvent.newInstance(item, context.getSymbols(), context.getStackTraces());
+                if (keep) {
+                    context.addEvent(event);
+                }
+                if (typeConsumers != null) {
+                    typeConsumers.forEach(e -> e.process(event));
+                }
+            }
+        }
+
+        this.context.getEvents().sort(Comparator.comparing(RecordedEvent::getStartTime));
+        this.context.indexEvents();
+        for (Extractor extractor : extractors) {
+            if (extractor.isOrderSensitive()) {
+                this.context.forEachEvent(extractor.getInterestedTypeIds(), extractor::process);
+            }
+            extractor.fillResult(r);
+        }
+        this.context.releaseEvents();
+        processedDimensions = dimensions;
+        listener.worked(2);
+    }
+
+    private static int typeIdOf(IItemIterable iterable) {
+        return EventType.of(RecordedEvent.normalizeTypeId(iterable.getType().getIdentifier())).id();
+    }
+
     private void transformEvents(AnalysisRequest request, IItemCollection collection) throws Exception {
         listener.subTask("Transform Events");
-        List<IItem> list = collection.stream().flatMap(IItemIterable::stream).collect(Collectors.toList());
+        // the events of the types no extractor is interested in are never visited, so they are not transformed
+        BitSet typeIds = new BitSet();
+        Arrays.stream(Extractor.getVisitableTypeIds()).forEach(typeIds::set);
+        List<IItemIterable> iterables = collection.stream().filter(iterable -> typeIds.get(typeIdOf(iterable))).toList();
 
         if (request.getParallelWorkers() > 1) {
-            parseEventsParallel(list, request.getParallelWorkers());
+            parseEventsParallel(iterables, request.getParallelWorkers());
         } else {
-            list.forEach(this::parseEventItem);
+            long count = 0;
+            for (IItemIterable iterable : iterables) {
+                for (IItem item : iterable) {
+                    if (count++ % CANCELLATION_CHECK_INTERVAL == 0) {
+                        listener.checkCanceled();
+                    }
+                    parseEventItem(item);
+                }
+            }
         }
 
         listener.worked(1);
@@ -347,60 +1007,204 @@ public class JFRAnalyzerImpl implements JFRAnalyzer {
         }
     }
 
-    private void analyzeProblemsIfNeeded(AnalysisRequest request, IItemCollection collection, AnalysisResult r) {
-        listener.subTask("Analyze Problems");
-        if ((request.getDimensions() & ProfileDimension.PROBLEMS.getValue()) != 0) {
-            this.analyzeProblems(collection, r);
+    /*
+     * The workers take the items slice by slice from the iterators of the iterables, so only the references of the
+     * slices being transformed are copied rather than the whole iterables. The events of a slice are transformed into
+     * a buffer of the slice, so the workers never contend on the events of the context. The buffers are merged in the
+     * order of the slices once all the slices are transformed.
+     */
+    private void parseEventsParallel(List<IItemIterable> iterables, int workers) {
+        SliceReader reader = new SliceReader(iterables.iterator());
+        List<List<RecordedEvent>> buffers = new ArrayList<>();
+        CompletableFuture<?>[] futures = new CompletableFuture[Math.max(workers, 1)];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = CompletableFuture.runAsync(() -> {
+                IItem[] slice = new IItem[SLICE_SIZE];
+                while (!listener.isCanceled()) {
+                    int size;
+                    int index;
+                    synchronized (reader) {
+                        size = reader.read(slice);
+                        if (size == 0) {
+                            return;
+                        }
+                        index = reader.slices++;
+                    }
+                    List<RecordedEvent> buffer = new ArrayList<>(size);
+                    for (int j = 0; j < size; j++) {
+                        buffer.add(RecordedEvent.newInstance(slice[j], this.context.getSymbols(), this.context.getStackTraces()));
+                    }
+                    synchronized (buffers) {
+                        while (buffers.size() <= index) {
+                            buffers.add(null);
+                        }
+                        buffers.set(index, buffer);
+                    }
+                }
+            }, EXECUTOR);
+        }
+        CompletableFuture.allOf(futures).join();
+        listener.checkCanceled();
+
+        for (List<RecordedEvent> buffer : buffers) {
+            buffer.forEach(this::addEvent);
         }
-        listener.worked(1);
     }
 
-    private void parseEventsParallel(List<IItem> list, int workers) throws Exception {
-        listener.subTask("Transform Events");
-        CountDownLatch countDownLatch = new CountDownLatch(list.size());
-        ExecutorService es = Executors.newFixedThreadPool(workers);
-        list.forEach(item -> es.submit(() -> {
-            try {
-                this.parseEventItem(item);
-            } catch (Exception e) {
-                log.error(e.getMessage(), e);
-            } finally {
-                countDownLatch.countDown();
+    // reads the items of the iterables in order, guarded by the workers
+    private static class SliceReader {
+        private final Iterator<IItemIterable> iterables;
+        private Iterator<IItem> items = Collections.emptyIterator();
+        private int slices;
+
+        SliceReader(Iterator<IItemIterable> iterables) {
+            this.iterables = iterables;
+        }
+
+        // fills the slice with the next items, a slice may span iterables
+        int read(IItem[] slice) {
+            int size = 0;
+            while (size < slice.length) {
+                if (items.hasNext()) {
+                    slice[size++] = items.next();
+                } else if (iterables.hasNext()) {
+                    items = iterables.next().iterator();
+                } else {
+                    break;
+                }
             }
-        }));
-        countDownLatch.await();
-        es.shutdown();
-        listener.worked(workers);
+            return size;
+        }
+    }
+
+    private RuleEvaluation analyzeProblemsIfNeeded(AnalysisRequest request, IItemCollection collection) {
+        listener.subTask("Analyze Problems");
+        List<IRule> rules = (request.getDimensions() & ProfileDimension.PROBLEMS.getValue()) != 0
+                ? new ArrayList<>(RuleRegistry.getRules()) : Collections.emptyList();
+        return new RuleEvaluation(rules, collection, request.getParallelWorkers());
     }
 
-    private void analyzeProblems(IItemCollection collection, AnalysisResult r) {
-        r.setProblems(new ArrayList<>());
-        for (IRule rule : RuleRegistry.getRules()) {
-            RunnableFuture<IResult> future;
+    /*
+     * The rules are evaluated by at most parallelWorkers workers on the shared executor, the evaluation of a rule is
+     * interrupted once it takes longer than the timeout, and the wall time of each rule is recorded.
+     *
+     * A rule is settled once it finishes, times out or is skipped. The worker of a timed out rule is replaced at once,
+     * since the rule may not respond to the interruption, so the rules queued behind it still get their own timeouts.
+     */
+    private static class RuleEvaluation {
+        private final List<IRule> rules;
+        private final IItemCollection collection;
+        private final AtomicReferenceArray<Problem> problems;
+        private final Map<String, Long> times = new ConcurrentHashMap<>();
+        private final Queue<String> timedOut = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger next = new AtomicInteger();
+        private final CompletableFuture<?>[] settled;
+
+        RuleEvaluation(List<IRule> rules, IItemCollection collection, int parallelWorkers) {
+            this.rules = rules;
+            this.collection = collection;
+            this.problems = new AtomicReferenceArray<>(rules.size());
+            this.settled = new CompletableFuture[rules.size()];
+            for (int i = 0; i < settled.length; i++) {
+                settled[i] = new CompletableFuture<Void>();
+            }
+            int workers = Math.min(Math.max(parallelWorkers, 1), rules.size());
+            for (int i = 0; i < workers; i++) {
+                CompletableFuture.runAsync(this::work, EXECUTOR);
+            }
+        }
+
+        private void work() {
+            int index;
+            while ((index = next.getAndIncrement()) < rules.size()) {
+                if (!evaluate(index)) {
+                    // the rule timed out and this worker has been replaced
+                    return;
+                }
+            }
+        }
+
+        /*
+         * Returns false if the rule timed out.
+         */
+        private boolean evaluate(int index) {
+            IRule rule = rules.get(index);
+            CompletableFuture<?> ruleSettled = settled[index];
+            long start = System.nanoTime();
+            ScheduledFuture<?> timer = null;
             try {
-                future = rule.createEvaluation(collection, IPreferenceValueProvider.DEFAULT_VALUES, null);
+                RunnableFuture<IResult> future =
+                        rule.createEvaluation(collection, IPreferenceValueProvider.DEFAULT_VALUES, null);
+                timer = RULE_TIMER.schedule(() -> {
+                    if (ruleSettled.complete(null)) {
+                        timedOut.add(rule.getId());
+                        future.cancel(true);
+                        CompletableFuture.runAsync(this::work, EXECUTOR);
+                    }
+                }, RULE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
                 future.run();
                 IResult result = future.get();
-                Severity severity = result.getSeverity();
-                if (severity == Severity.WARNING) {
-                    r.getProblems().add(new Problem(result.getSummary(), result.getSolution()));
+                if (result.getSeverity() == Severity.WARNING) {
+                    problems.set(index, new Problem(result.getSummary(), result.getSolution()));
                 }
+            } catch (CancellationException e) {
+                log.warn("Jmc rule {} timed out after {} seconds", rule.getName(), RULE_TIMEOUT_SECONDS);
             } catch (Throwable t) {
                 log.error("Failed to run jmc rule {}", rule.getName());
+            } finally {
+                if (timer != null) {
+                    timer.cancel(false);
+                }
+                // the worker is shared, the interruption of a timed out rule must not leak to the next task
+                Thread.interrupted();
+                times.put(rule.getId(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+            return ruleSettled.complete(null);
+        }
+
+        // the rules not started yet are skipped
+        void stop() {
+            int from = Math.min(next.getAndSet(rules.size()), rules.size());
+            for (int i = from; i < rules.size(); i++) {
+                settled[i].complete(null);
+            }
+            if (from < rules.size()) {
+                log.info("Skipped {} jmc rules", rules.size() - from);
             }
         }
+
+        /*
+         * Waits until every rule is settled, the problem of a timed out rule is ignored.
+         */
+        void await(AnalysisResult r) {
+            CompletableFuture.allOf(settled).join();
+            if (!timedOut.isEmpty()) {
+                log.warn("Jmc rules {} timed out, their problems are ignored", timedOut);
+            }
+            List<Problem> list = new ArrayList<>();
+            for (int i = 0; i < problems.length(); i++) {
+                if (problems.get(i) != null) {
+                    list.add(problems.get(i));
+                }
+            }
+            r.setProblems(list);
+            r.setRuleEvaluationTimes(new HashMap<>(times));
+            times.entrySet().stream().max(Map.Entry.comparingByValue()).ifPresent(
+                    slowest -> log.info("Evaluated {} jmc rules, the slowest one {} took {} milliseconds",
+                                        times.size(), slowest.getKey(), slowest.getValue()));
+        }
     }
 
     private void parseEventItem(IItem item) {
-        RecordedEvent event = RecordedEvent.newInstance(item, this.context.getSymbols());
+        addEvent(RecordedEvent.newInstance(item, this.context.getSymbols(), this.context.getStackTraces()));
+    }
 
-        synchronized (this.context.getEvents()) {
-            this.context.addEvent(event);
-            if (event.getActiveSetting() != null) {
-                RecordedEvent.ActiveSetting activeSetting = event.getActiveSetting();
-                this.context.putEventTypeId(activeSetting.eventType(), activeSetting.eventId());
-                this.context.putActiveSetting(activeSetting, event);
-            }
+    private void addEvent(RecordedEvent event) {
+        this.context.addEvent(event);
+        if (event.getActiveSetting() != null) {
+            RecordedEvent.ActiveSetting activeSetting = event.getActiveSetting();
+            this.context.putEventTypeId(activeSetting.eventType(), activeSetting.eventId());
+            this.context.putActiveSetting(activeSetting, event);
         }
     }
 
@@ -434,6 +1238,11 @@ public class JFRAnalyzerImpl implements JFRAnalyzer {
             }
         };
 
+        if ((dimensions & ALLOCATION_DIMENSIONS) == ALLOCATION_DIMENSIONS) {
+            extractorMap.put(DimensionBuilder.ALLOC, new AllocationsExtractor(context, true, true));
+            extractorMap.remove(DimensionBuilder.MEM);
+        }
+
         extractorMap.keySet().forEach(item -> {
             if ((dimensions & item) != 0) {
                 extractors.add(extractorMap.get(item));
@@ -13,12 +13,59 @@
 
 package org.eclipse.jifa.jfr.api;
 
+import org.eclipse.jifa.analysis.annotation.ApiParameterMeta;
+import org.eclipse.jifa.analysis.annotation.Exclude;
+import org.eclipse.jifa.jfr.vo.AllocatedClass;
+import org.eclipse.jifa.jfr.vo.CompactFlameGraph;
+import org.eclipse.jifa.jfr.vo.DiffFlameGraph;
 import org.eclipse.jifa.jfr.vo.Metadata;
 import org.eclipse.jifa.jfr.vo.FlameGraph;
 
+import java.nio.file.Path;
 import java.util.List;
 
 public interface JFRAnalyzer {
     Metadata metadata();
-    FlameGraph getFlameGraph(String dimension, boolean include, List<String> taskSet);
+    @Exclude
+    default FlameGraph getFlameGraph(String dimension, boolean include, List<String> taskSet) {
+        return getFlameGraph(dimension, include, taskSet, 0, 0);
+    }
+
+    /**
+     * @param startTime the start of the time window in epoch milliseconds, inclusive, unbounded if not positive
+     * @param endTime   the end of the time window in epoch milliseconds, exclusive, unbounded if not positive
+     */
+    FlameGraph getFlameGraph(String dimension, boolean include, List<String> taskSet,
+                             @ApiParameterMeta(required = false) long startTime,
+                             @ApiParameterMeta(required = false) long endTime);
+
+    /**
+     * @param minWeightRatio the nodes whose weights are less than this ratio of the total weight are pruned, no node
+     *                       is pruned if not positive
+     * @param startTime      the start of the time window in epoch milliseconds, inclusive, unbounded if not positive
+     * @param endTime        the end of the time window in epoch milliseconds, exclusive, unbounded if not positive
+     */
+    CompactFlameGraph getCompactFlameGraph(String dimension, boolean include, List<String> taskSet,
+                                           @ApiParameterMeta(required = false) double minWeightRatio,
+                                           @ApiParameterMeta(required = false) long startTime,
+                                           @ApiParameterMeta(required = false) long endTime);
+
+    /**
+     * @param other the baseline recording, the difference is this recording minus the baseline
+     */
+    DiffFlameGraph getDiffFlameGraph(String dimension, @ApiParameterMeta(comparisonTargetPath = true) Path other);
+
+    /**
+     * @param dimension an allocation dimension
+     * @return the allocated classes of the selected tasks, in descending order of the weight
+     */
+    List<AllocatedClass> getAllocatedClasses(String dimension, boolean include, List<String> taskSet);
+
+    /**
+     * @param dimension an allocation dimension
+     * @param className the fully qualified name of the allocated class
+     * @return the flame graph of the call sites that allocate the class
+     */
+    FlameGraph getFlameGraphOfAllocatedClass(String dimension, String className, boolean include,
+                                             List<String> taskSet);
 }
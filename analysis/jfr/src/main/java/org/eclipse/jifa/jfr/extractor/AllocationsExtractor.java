@@ -13,10 +13,14 @@
 package org.eclipse.jifa.jfr.extractor;
 
 import org.eclipse.jifa.jfr.common.EventConstant;
+import org.eclipse.jifa.jfr.model.ClassAllocationSamples;
+import org.eclipse.jifa.jfr.model.SampleIndex;
+import org.eclipse.jifa.jfr.model.TaskAllocatedMemory;
 import org.eclipse.jifa.jfr.model.TaskData;
 import org.eclipse.jifa.jfr.model.jfr.RecordedEvent;
 import org.eclipse.jifa.jfr.model.jfr.RecordedStackTrace;
 import org.eclipse.jifa.jfr.model.jfr.RecordedThread;
+import org.eclipse.jifa.jfr.util.IntLongMap;
 import org.eclipse.jifa.jfr.util.StackTraceUtil;
 import org.eclipse.jifa.jfr.model.AnalysisResult;
 import org.eclipse.jifa.jfr.model.DimensionResult;
@@ -24,13 +28,22 @@ import org.eclipse.jifa.jfr.model.Task;
 import org.eclipse.jifa.jfr.model.TaskAllocations;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 import static org.eclipse.jifa.jfr.common.EventConstant.OBJECT_ALLOCATION_SAMPLE;
 
+/**
+ * Extracts the allocation count and the allocated memory in one pass over the allocation events, the samples are
+ * aggregated by the task, the stack trace and the allocated class.
+ */
 public class AllocationsExtractor extends Extractor {
+    static final String UNKNOWN_CLASS = "Unknown";
+
     protected boolean useObjectAllocationSample;
 
+    private final boolean countAllocations;
+
+    private final boolean sumAllocatedMemory;
+
     protected static final List<String> INTERESTED = Collections.unmodifiableList(new ArrayList<>() {
         {
             add(EventConstant.OBJECT_ALLOCATION_IN_NEW_TLAB);
@@ -47,12 +60,37 @@ public class AllocationsExtractor extends Extractor {
         public long allocations;
 
         public long allocatedMemory;
+
+        // the allocated memory by the id of the stack trace
+        IntLongMap memorySamples;
+
+        // the samples by the id of the allocated class
+        final List<IntLongMap> classAllocations = new ArrayList<>();
+
+        final List<IntLongMap> classAllocatedMemory = new ArrayList<>();
     }
 
     protected final Map<Long, AllocTaskData> data = new HashMap<>();
 
+    // the allocated classes, indexed by the id of the class
+    private final List<String> classNames = new ArrayList<>();
+
+    private final Map<String, Integer> classIds = new HashMap<>();
+
+    private final SampleIndex.Builder memorySampleIndex = new SampleIndex.Builder();
+
     public AllocationsExtractor(JFRAnalysisContext context) {
+        this(context, true, false);
+    }
+
+    /**
+     * @param countAllocations   whether to extract the allocation count
+     * @param sumAllocatedMemory whether to extract the allocated memory
+     */
+    public AllocationsExtractor(JFRAnalysisContext context, boolean countAllocations, boolean sumAllocatedMemory) {
         super(context, INTERESTED);
+        this.countAllocations = countAllocations;
+        this.sumAllocatedMemory = sumAllocatedMemory;
         try {
             this.useObjectAllocationSample = this.context.getActiveSettingBool(OBJECT_ALLOCATION_SAMPLE, "enabled");
         } catch (Exception e) {
@@ -69,7 +107,7 @@ public class AllocationsExtractor extends Extractor {
         if (useObjectAllocationSample) {
             return;
         }
-        visitEvent(event);
+        visitEvent(event, "tlabSize");
     }
 
     @Override
@@ -77,27 +115,78 @@ public class AllocationsExtractor extends Extractor {
         if (useObjectAllocationSample) {
             return;
         }
-        this.visitEvent(event);
+        this.visitEvent(event, "allocationSize");
     }
 
     @Override
     void visitObjectAllocationSample(RecordedEvent event) {
-        this.visitEvent(event);
+        this.visitEvent(event, "weight");
     }
 
-    void visitEvent(RecordedEvent event) {
+    void visitEvent(RecordedEvent event, String sizeFieldName) {
         RecordedStackTrace stackTrace = event.getStackTrace();
         if (stackTrace == null) {
             stackTrace = StackTraceUtil.DUMMY_STACK_TRACE;
         }
 
         AllocTaskData allocThreadData = getThreadData(event.getThread());
-        if (allocThreadData.getSamples() == null) {
-            allocThreadData.setSamples(new HashMap<>());
+        int classId = classIdOf(event.getClassName("objectClass"));
+
+        int stackTraceId = -1;
+        if (countAllocations) {
+            stackTraceId = addSample(event, allocThreadData, stackTrace, 1);
+            allocThreadData.allocations += 1;
+            samplesOf(allocThreadData.classAllocations, classId).add(stackTraceId, 1);
         }
 
-        allocThreadData.getSamples().compute(stackTrace, (k, count) -> count == null ? 1 : count + 1);
-        allocThreadData.allocations += 1;
+        if (sumAllocatedMemory) {
+            if (stackTraceId < 0) {
+                stackTraceId = context.getStackTraces().idOf(stackTrace);
+            }
+            long eventTotal = event.getLong(sizeFieldName);
+            if (allocThreadData.memorySamples == null) {
+                allocThreadData.memorySamples = new IntLongMap();
+            }
+            allocThreadData.memorySamples.add(stackTraceId, eventTotal);
+            memorySampleIndex.add(event.getStartTimeNanos(), allocThreadData.getThread().getJavaThreadId(),
+                                  stackTraceId, eventTotal);
+            allocThreadData.allocatedMemory += eventTotal;
+            samplesOf(allocThreadData.classAllocatedMemory, classId).add(stackTraceId, eventTotal);
+        }
+    }
+
+    private int classIdOf(String className) {
+        return classIds.computeIfAbsent(className != null ? className : UNKNOWN_CLASS, name -> {
+            classNames.add(name);
+            return classNames.size() - 1;
+        });
+    }
+
+    private static IntLongMap samplesOf(List<IntLongMap> classSamples, int classId) {
+        while (classSamples.size() <= classId) {
+            classSamples.add(null);
+        }
+        IntLongMap samples = classSamples.get(classId);
+        if (samples == null) {
+            samples = new IntLongMap();
+            classSamples.set(classId, samples);
+        }
+        return samples;
+    }
+
+    private void fillClassSamples(ClassAllocationSamples task, List<IntLongMap> classSamples) {
+        for (int i = 0; i < classSamples.size(); i++) {
+            if (classSamples.get(i) != null) {
+                task.getClassSamples().put(classNames.get(i), context.getStackTraces().samplesOf(classSamples.get(i)));
+            }
+        }
+    }
+
+    private static Task taskOf(AllocTaskData data) {
+        Task ta = new Task();
+        ta.setId(data.getThread().getJavaThreadId());
+        ta.setName(data.getThread().getJavaName());
+        return ta;
     }
 
     private List<TaskAllocations> buildThreadAllocations() {
@@ -108,19 +197,12 @@ public class AllocationsExtractor extends Extractor {
             }
 
             TaskAllocations threadAllocation = new TaskAllocations();
-            Task ta = new Task();
-            ta.setId(data.getThread().getJavaThreadId());
-            ta.setName(data.getThread().getJavaName());
-            threadAllocation.setTask(ta);
+            threadAllocation.setTask(taskOf(data));
 
             if (data.getSamples() != null) {
                 threadAllocation.setAllocations(data.allocations);
-                threadAllocation.setSamples(data.getSamples().entrySet().stream().collect(
-                        Collectors.toMap(
-                                e -> StackTraceUtil.build(e.getKey(), context.getSymbols()),
-                                Map.Entry::getValue,
-                                Long::sum)
-                ));
+                threadAllocation.setSamples(context.getStackTraces().samplesOf(data.getSamples()));
+                fillClassSamples(threadAllocation, data.classAllocations);
             }
 
             taskAllocations.add(threadAllocation);
@@ -134,10 +216,47 @@ public class AllocationsExtractor extends Extractor {
         return taskAllocations;
     }
 
+    private List<TaskAllocatedMemory> buildThreadAllocatedMemory() {
+        List<TaskAllocatedMemory> taskAllocatedMemoryList = new ArrayList<>();
+
+        for (AllocTaskData data : this.data.values()) {
+            if (data.allocatedMemory == 0) {
+                continue;
+            }
+
+            TaskAllocatedMemory taskAllocatedMemory = new TaskAllocatedMemory();
+            taskAllocatedMemory.setTask(taskOf(data));
+
+            if (data.memorySamples != null) {
+                taskAllocatedMemory.setAllocatedMemory(data.allocatedMemory);
+                taskAllocatedMemory.setSamples(context.getStackTraces().samplesOf(data.memorySamples));
+                fillClassSamples(taskAllocatedMemory, data.classAllocatedMemory);
+            }
+
+            taskAllocatedMemoryList.add(taskAllocatedMemory);
+        }
+
+        taskAllocatedMemoryList.sort((o1, o2) -> {
+            long delta = o2.getAllocatedMemory() - o1.getAllocatedMemory();
+            return delta > 0 ? 1 : (delta == 0 ? 0 : -1);
+        });
+
+        return taskAllocatedMemoryList;
+    }
+
     @Override
     public void fillResult(AnalysisResult result) {
-        DimensionResult<TaskAllocations> allocResult = new DimensionResult<>();
-        allocResult.setList(buildThreadAllocations());
-        result.setAllocations(allocResult);
+        if (countAllocations) {
+            DimensionResult<TaskAllocations> allocResult = new DimensionResult<>();
+            allocResult.setList(buildThreadAllocations());
+            allocResult.setSampleIndex(buildSampleIndex());
+            result.setAllocations(allocResult);
+        }
+        if (sumAllocatedMemory) {
+            DimensionResult<TaskAllocatedMemory> memResult = new DimensionResult<>();
+            memResult.setList(buildThreadAllocatedMemory());
+            memResult.setSampleIndex(memorySampleIndex.build(context.getStackTraces()));
+            result.setAllocatedMemory(memResult);
+        }
     }
 }
@@ -64,6 +64,7 @@ public class CPUSampleExtractor extends CountExtractor {
     public void fillResult(AnalysisResult result) {
         DimensionResult<TaskCount> tsResult = new DimensionResult<>();
         tsResult.setList(buildTaskCounts());
+        tsResult.setSampleIndex(buildSampleIndex());
         result.setCpuSample(tsResult);
     }
 }
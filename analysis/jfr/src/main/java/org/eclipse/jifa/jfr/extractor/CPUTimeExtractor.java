@@ -16,6 +16,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.eclipse.jifa.jfr.common.EventConstant;
 import org.eclipse.jifa.jfr.model.jfr.*;
 import org.eclipse.jifa.jfr.model.*;
+import org.eclipse.jifa.jfr.model.symbol.StackTracePool;
 import org.eclipse.jifa.jfr.util.GCUtil;
 import org.eclipse.jifa.jfr.util.StackTraceUtil;
 import org.eclipse.jifa.jfr.util.TimeUtil;
@@ -25,7 +26,6 @@ import org.eclipse.jifa.jfr.model.JavaThreadCPUTime;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Slf4j
 public class CPUTimeExtractor extends Extractor {
@@ -210,11 +210,7 @@ public class CPUTimeExtractor extends Extractor {
         }
         CpuTaskData cpuTaskData = getThreadData(thread);
 
-        if (cpuTaskData.getSamples() == null) {
-            cpuTaskData.setSamples(new HashMap<>());
-        }
-
-        cpuTaskData.getSamples().compute(stackTrace, (k, count) -> count == null ? 1 : count + 1);
+        addSample(event, cpuTaskData, stackTrace, 1);
         cpuTaskData.sampleCount++;
     }
 
@@ -251,12 +247,7 @@ public class CPUTimeExtractor extends Extractor {
                     threadCPUTime.setSystem(0);
                 }
 
-                threadCPUTime.setSamples(data.getSamples().entrySet().stream().collect(
-                        Collectors.toMap(
-                                e -> StackTraceUtil.build(e.getKey(), context.getSymbols()),
-                                Map.Entry::getValue,
-                                Long::sum)
-                ));
+                threadCPUTime.setSamples(context.getStackTraces().samplesOf(data.getSamples()));
             }
 
             threadCPUTimes.add(threadCPUTime);
@@ -269,7 +260,8 @@ public class CPUTimeExtractor extends Extractor {
                 gc.setTask(context.getThread(GC_THREAD));
                 gc.setUser(gcTime);
                 Map<StackTrace, Long> gcSamples = new HashMap<>();
-                gcSamples.put(StackTraceUtil.build(StackTraceUtil.newDummyStackTrace("", "JVM", "GC"), context.getSymbols()), 1L);
+                StackTracePool stackTraces = context.getStackTraces();
+                gcSamples.put(stackTraces.stackTraceOf(stackTraces.idOf(StackTraceUtil.newDummyStackTrace("", "JVM", "GC"))), 1L);
                 gc.setSamples(gcSamples);
                 threadCPUTimes.add(gc);
             }
@@ -296,6 +288,7 @@ public class CPUTimeExtractor extends Extractor {
         DimensionResult<TaskCPUTime> cpuResult = new DimensionResult<>();
         List<TaskCPUTime> list = buildThreadCPUTime();
         cpuResult.setList(list);
+        cpuResult.setSampleIndex(buildSampleIndex());
         result.setCpuTime(cpuResult);
     }
 
@@ -42,6 +42,7 @@ public class ClassLoadCountExtractor extends CountExtractor {
     public void fillResult(AnalysisResult result) {
         DimensionResult<TaskCount> tsResult = new DimensionResult<>();
         tsResult.setList(buildTaskCounts());
+        tsResult.setSampleIndex(buildSampleIndex());
         result.setClassLoadCount(tsResult);
     }
 }
@@ -42,6 +42,7 @@ public class ClassLoadWallTimeExtractor extends SumExtractor {
     public void fillResult(AnalysisResult result) {
         DimensionResult<TaskSum> tsResult = new DimensionResult<>();
         tsResult.setList(buildTaskSums());
+        tsResult.setSampleIndex(buildSampleIndex());
         result.setClassLoadWallTime(tsResult);
     }
 }
@@ -12,7 +12,6 @@
  ********************************************************************************/
 package org.eclipse.jifa.jfr.extractor;
 
-import org.eclipse.jifa.jfr.util.StackTraceUtil;
 import org.eclipse.jifa.jfr.model.TaskData;
 import org.eclipse.jifa.jfr.model.jfr.RecordedEvent;
 import org.eclipse.jifa.jfr.model.jfr.RecordedStackTrace;
@@ -24,7 +23,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 public abstract class CountExtractor extends Extractor {
     CountExtractor(JFRAnalysisContext context, List<String> interested) {
@@ -41,6 +39,12 @@ public abstract class CountExtractor extends Extractor {
 
     protected final Map<Long, TaskCountData> data = new HashMap<>();
 
+    // the events are only summed up per task and stack trace
+    @Override
+    public boolean isOrderSensitive() {
+        return false;
+    }
+
     TaskCountData getTaskCountData(RecordedThread thread) {
         return data.computeIfAbsent(thread.getJavaThreadId(), i -> new TaskCountData(thread));
     }
@@ -52,11 +56,8 @@ public abstract class CountExtractor extends Extractor {
         }
 
         TaskCountData data = getTaskCountData(event.getThread());
-        if (data.getSamples() == null) {
-            data.setSamples(new HashMap<>());
-        }
 
-        data.getSamples().compute(stackTrace, (k, tmp) -> tmp == null ? 1 : tmp + 1);
+        addSample(event, data, stackTrace, 1);
         data.count += 1;
     }
 
@@ -75,12 +76,7 @@ public abstract class CountExtractor extends Extractor {
 
             if (data.getSamples() != null) {
                 ts.setCount(data.count);
-                ts.setSamples(data.getSamples().entrySet().stream().collect(
-                        Collectors.toMap(
-                                e -> StackTraceUtil.build(e.getKey(), context.getSymbols()),
-                                Map.Entry::getValue,
-                                Long::sum)
-                ));
+                ts.setSamples(context.getStackTraces().samplesOf(data.getSamples()));
             }
 
             counts.add(ts);
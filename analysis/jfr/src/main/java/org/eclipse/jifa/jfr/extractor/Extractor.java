@@ -13,9 +13,15 @@
 package org.eclipse.jifa.jfr.extractor;
 
 import org.eclipse.jifa.jfr.common.EventConstant;
+import org.eclipse.jifa.jfr.model.jfr.EventType;
 import org.eclipse.jifa.jfr.model.jfr.RecordedEvent;
 import org.eclipse.jifa.jfr.model.AnalysisResult;
+import org.eclipse.jifa.jfr.model.SampleIndex;
+import org.eclipse.jifa.jfr.model.TaskData;
+import org.eclipse.jifa.jfr.model.jfr.RecordedStackTrace;
+import org.eclipse.jifa.jfr.util.IntLongMap;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -58,22 +64,69 @@ public abstract class Extractor extends EventVisitor {
 
     final JFRAnalysisContext context;
 
-    private final List<String> interested;
+    private final int[] interestedTypeIds;
 
+    // the visitors of the interested event types, indexed by the id of the event type
+    private final BiConsumer<Extractor, RecordedEvent>[] visitors;
+
+    // the samples in the order of time, so that the samples of a time window can be aggregated
+    private final SampleIndex.Builder sampleIndex = new SampleIndex.Builder();
+
+    @SuppressWarnings("unchecked")
     Extractor(JFRAnalysisContext context, List<String> interested) {
         this.context = context;
-        this.interested = interested;
+        this.interestedTypeIds = interested.stream().mapToInt(name -> EventType.of(name).id()).distinct().toArray();
+        this.visitors = new BiConsumer[Arrays.stream(interestedTypeIds).max().orElse(-1) + 1];
+        for (String name : interested) {
+            visitors[EventType.of(name).id()] = DISPATCHER.get(name);
+        }
+    }
+
+    /**
+     * @return the ids of the event types that any extractor may be interested in
+     */
+    public static int[] getVisitableTypeIds() {
+        return DISPATCHER.keySet().stream().mapToInt(name -> EventType.of(name).id()).toArray();
+    }
+
+    /**
+     * @return the ids of the event types that this extractor is interested in
+     */
+    public int[] getInterestedTypeIds() {
+        return interestedTypeIds;
     }
 
-    private boolean accept(RecordedEvent event) {
-        return interested.contains(event.getEventType().name());
+    /**
+     * @return false if the result does not depend on the order of the events, such extractors can consume the
+     * events as they are read
+     */
+    public boolean isOrderSensitive() {
+        return true;
     }
 
     public void process(RecordedEvent event) {
-        if (accept(event)) {
-            DISPATCHER.get(event.getEventType().name()).accept(this, event);
+        int id = event.getEventType().id();
+        if (id < visitors.length && visitors[id] != null) {
+            visitors[id].accept(this, event);
         }
     }
 
     public abstract void fillResult(AnalysisResult result);
+
+    /**
+     * @return the id of the stack trace
+     */
+    int addSample(RecordedEvent event, TaskData data, RecordedStackTrace stackTrace, long value) {
+        if (data.getSamples() == null) {
+            data.setSamples(new IntLongMap());
+        }
+        int id = context.getStackTraces().idOf(stackTrace);
+        data.getSamples().add(id, value);
+        sampleIndex.add(event.getStartTimeNanos(), data.getThread().getJavaThreadId(), id, value);
+        return id;
+    }
+
+    SampleIndex buildSampleIndex() {
+        return sampleIndex.build(context.getStackTraces());
+    }
 }
@@ -59,6 +59,7 @@ public class FileIOTimeExtractor extends SumExtractor {
     public void fillResult(AnalysisResult result) {
         DimensionResult<TaskSum> tsResult = new DimensionResult<>();
         tsResult.setList(buildTaskSums());
+        tsResult.setSampleIndex(buildSampleIndex());
         result.setFileIOTime(tsResult);
     }
 }
@@ -43,6 +43,7 @@ public class FileReadExtractor extends FileIOExtractor {
     public void fillResult(AnalysisResult result) {
         DimensionResult<TaskSum> tsResult = new DimensionResult<>();
         tsResult.setList(buildTaskSums());
+        tsResult.setSampleIndex(buildSampleIndex());
         result.setFileReadSize(tsResult);
     }
 }
\ No newline at end of file
@@ -43,6 +43,7 @@ public class FileWriteExtractor extends FileIOExtractor {
     public void fillResult(AnalysisResult result) {
         DimensionResult<TaskSum> tsResult = new DimensionResult<>();
         tsResult.setList(buildTaskSums());
+        tsResult.setSampleIndex(buildSampleIndex());
         result.setFileWriteSize(tsResult);
     }
 }
\ No newline at end of file
@@ -14,14 +14,17 @@ package org.eclipse.jifa.jfr.extractor;
 
 import lombok.Getter;
 import org.eclipse.jifa.jfr.common.EventConstant;
+import org.eclipse.jifa.jfr.model.jfr.EventType;
 import org.eclipse.jifa.jfr.model.jfr.RecordedEvent;
 import org.eclipse.jifa.jfr.model.jfr.RecordedThread;
 import org.eclipse.jifa.jfr.model.JavaThread;
 import org.eclipse.jifa.jfr.request.AnalysisRequest;
+import org.eclipse.jifa.jfr.model.symbol.StackTracePool;
 import org.eclipse.jifa.jfr.model.symbol.SymbolBase;
 import org.eclipse.jifa.jfr.model.symbol.SymbolTable;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 import static org.eclipse.jifa.jfr.common.EventConstant.OBJECT_ALLOCATION_SAMPLE;
 
@@ -31,10 +34,14 @@ public class JFRAnalysisContext {
     private final Map<Long, JavaThread> threads = new HashMap<>();
     private final Map<String, Long> threadNameMap = new HashMap<>();
     @Getter
-    private final List<RecordedEvent> events = new ArrayList<>();
+    private List<RecordedEvent> events = new ArrayList<>();
+    // the events of each type in the order of the events, indexed by the id of the event type
+    private EventBucket[] buckets = new EventBucket[0];
     @Getter
     private final SymbolTable<SymbolBase> symbols = new SymbolTable<>();
     @Getter
+    private final StackTracePool stackTraces = new StackTracePool(symbols);
+    @Getter
     private final AnalysisRequest request;
     @Getter
     private final Set<Long> executionSampleEventTypeIds = new HashSet<>();
@@ -94,4 +101,92 @@ public class JFRAnalysisContext {
     public synchronized void addEvent(RecordedEvent event) {
         this.events.add(event);
     }
+
+    /**
+     * Move the events into the buckets of their types, should be called once all the events are added and sorted.
+     */
+    public synchronized void indexEvents() {
+        int[] counts = new int[EventType.count()];
+        for (RecordedEvent event : events) {
+            counts[event.getEventType().id()]++;
+        }
+        EventBucket[] buckets = new EventBucket[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                buckets[i] = new EventBucket(counts[i]);
+            }
+        }
+        for (int i = 0; i < events.size(); i++) {
+            RecordedEvent event = events.get(i);
+            buckets[event.getEventType().id()].add(event, i);
+        }
+        this.buckets = buckets;
+        this.events = new ArrayList<>(0);
+    }
+
+    /**
+     * Release all the events, the results that are already extracted are not affected.
+     */
+    public synchronized void releaseEvents() {
+        this.events = new ArrayList<>(0);
+        this.buckets = new EventBucket[0];
+    }
+
+    /**
+     * Visit the events of the given types in the order of the events.
+     *
+     * @param typeIds the ids of the event types
+     * @param visitor the visitor
+     */
+    public void forEachEvent(int[] typeIds, Consumer<RecordedEvent> visitor) {
+        EventBucket[] buckets = this.buckets;
+        List<EventBucket> selected = new ArrayList<>(typeIds.length);
+        for (int id : typeIds) {
+            if (id < buckets.length && buckets[id] != null) {
+                selected.add(buckets[id]);
+            }
+        }
+        if (selected.size() == 1) {
+            EventBucket bucket = selected.get(0);
+            for (int i = 0; i < bucket.size; i++) {
+                visitor.accept(bucket.events[i]);
+            }
+            return;
+        }
+
+        // merge the buckets by the positions of the events, the number of buckets is small
+        int[] cursors = new int[selected.size()];
+        while (true) {
+            int next = -1;
+            int position = Integer.MAX_VALUE;
+            for (int i = 0; i < cursors.length; i++) {
+                EventBucket bucket = selected.get(i);
+                if (cursors[i] < bucket.size && bucket.positions[cursors[i]] < position) {
+                    next = i;
+                    position = bucket.positions[cursors[i]];
+                }
+            }
+            if (next < 0) {
+                return;
+            }
+            visitor.accept(selected.get(next).events[cursors[next]++]);
+        }
+    }
+
+    private static class EventBucket {
+        private final RecordedEvent[] events;
+        // the positions of the events in all the events
+        private final int[] positions;
+        private int size;
+
+        EventBucket(int capacity) {
+            events = new RecordedEvent[capacity];
+            positions = new int[capacity];
+        }
+
+        void add(RecordedEvent event, int position) {
+            events[size] = event;
+            positions[size++] = position;
+        }
+    }
 }
@@ -47,6 +47,7 @@ public class SocketReadSizeExtractor extends SumExtractor {
     public void fillResult(AnalysisResult result) {
         DimensionResult<TaskSum> tsResult = new DimensionResult<>();
         tsResult.setList(buildTaskSums());
+        tsResult.setSampleIndex(buildSampleIndex());
         result.setSocketReadSize(tsResult);
     }
 }
@@ -47,6 +47,7 @@ public class SocketReadTimeExtractor extends SumExtractor {
     public void fillResult(AnalysisResult result) {
         DimensionResult<TaskSum> tsResult = new DimensionResult<>();
         tsResult.setList(buildTaskSums());
+        tsResult.setSampleIndex(buildSampleIndex());
         result.setSocketReadTime(tsResult);
     }
 }
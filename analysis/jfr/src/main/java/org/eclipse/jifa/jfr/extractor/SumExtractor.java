@@ -12,7 +12,6 @@
  ********************************************************************************/
 package org.eclipse.jifa.jfr.extractor;
 
-import org.eclipse.jifa.jfr.util.StackTraceUtil;
 import org.eclipse.jifa.jfr.model.TaskData;
 import org.eclipse.jifa.jfr.model.jfr.RecordedEvent;
 import org.eclipse.jifa.jfr.model.jfr.RecordedStackTrace;
@@ -22,7 +21,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import org.eclipse.jifa.jfr.model.Task;
 import org.eclipse.jifa.jfr.model.TaskSum;
@@ -42,6 +40,12 @@ public abstract class SumExtractor extends Extractor {
 
     protected final Map<Long, TaskSumData> data = new HashMap<>();
 
+    // the events are only summed up per task and stack trace
+    @Override
+    public boolean isOrderSensitive() {
+        return false;
+    }
+
     TaskSumData getTaskSumData(RecordedThread thread) {
         return data.computeIfAbsent(thread.getJavaThreadId(), i -> new TaskSumData(thread));
     }
@@ -53,11 +57,8 @@ public abstract class SumExtractor extends Extractor {
         }
 
         TaskSumData data = getTaskSumData(event.getThread());
-        if (data.getSamples() == null) {
-            data.setSamples(new HashMap<>());
-        }
 
-        data.getSamples().compute(stackTrace, (k, tmp) -> tmp == null ? eventValue : tmp + eventValue);
+        addSample(event, data, stackTrace, eventValue);
         data.sum += eventValue;
     }
 
@@ -76,12 +77,7 @@ public abstract class SumExtractor extends Extractor {
 
             if (data.getSamples() != null) {
                 ts.setSum(data.sum);
-                ts.setSamples(data.getSamples().entrySet().stream().collect(
-                        Collectors.toMap(
-                                e -> StackTraceUtil.build(e.getKey(), context.getSymbols()),
-                                Map.Entry::getValue,
-                                Long::sum)
-                ));
+                ts.setSamples(context.getStackTraces().samplesOf(data.getSamples()));
             }
 
             sums.add(ts);
@@ -18,13 +18,12 @@ import org.eclipse.jifa.jfr.model.AnalysisResult;
 import org.eclipse.jifa.jfr.model.jfr.RecordedEvent;
 import org.eclipse.jifa.jfr.model.jfr.RecordedStackTrace;
 import org.eclipse.jifa.jfr.model.jfr.RecordedThread;
-import org.eclipse.jifa.jfr.util.StackTraceUtil;
 import org.eclipse.jifa.jfr.model.DimensionResult;
+import org.eclipse.jifa.jfr.model.StackTrace;
 import org.eclipse.jifa.jfr.model.TaskData;
 import org.eclipse.jifa.jfr.model.TaskSum;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Slf4j
 public class WallClockExtractor extends Extractor {
@@ -111,12 +110,8 @@ public class WallClockExtractor extends Extractor {
             return;
         }
         TaskWallClockData taskWallClockData = getThreadData(thread);
-
-        if (taskWallClockData.getSamples() == null) {
-            taskWallClockData.setSamples(new HashMap<>());
-        }
         taskWallClockData.updateTime(event.getStartTimeNanos());
-        taskWallClockData.getSamples().compute(stackTrace, (k, count) -> count == null ? 1 : count + 1);
+        addSample(event, taskWallClockData, stackTrace, 1);
         taskWallClockData.sampleCount++;
     }
 
@@ -138,13 +133,9 @@ public class WallClockExtractor extends Extractor {
             TaskSum taskSum = new TaskSum();
             taskSum.setTask(context.getThread(data.getThread()));
             taskSum.setSum(data.sampleCount > 1 ? data.getDuration() : this.interval);
-            data.getSamples().replaceAll((k, v) -> v * (taskSum.getSum() / data.sampleCount));
-            taskSum.setSamples(data.getSamples().entrySet().stream().collect(
-                    Collectors.toMap(
-                            e -> StackTraceUtil.build(e.getKey(), context.getSymbols()),
-                            Map.Entry::getValue,
-                            Long::sum)
-            ));
+            Map<StackTrace, Long> samples = context.getStackTraces().samplesOf(data.getSamples());
+            samples.replaceAll((k, v) -> v * (taskSum.getSum() / data.sampleCount));
+            taskSum.setSamples(samples);
             map.put(data.getThread().getJavaThreadId(), taskSum);
         }
 
@@ -164,6 +155,7 @@ public class WallClockExtractor extends Extractor {
     public void fillResult(AnalysisResult result) {
         DimensionResult<TaskSum> wallClockResult = new DimensionResult<>();
         wallClockResult.setList(buildThreadWallClock());
+        wallClockResult.setSampleIndex(buildSampleIndex());
         result.setWallClock(wallClockResult);
     }
 }
@@ -17,6 +17,7 @@ import lombok.Setter;
 import org.eclipse.jifa.jfr.model.*;
 
 import java.util.List;
+import java.util.Map;
 
 @Setter
 @Getter
@@ -60,4 +61,7 @@ public class AnalysisResult {
     private DimensionResult<TaskSum> threadSleepTime;
 
     private List<Problem> problems;
+
+    // unit: ms, the wall time of the evaluation of each jmc rule by the id of the rule
+    private Map<String, Long> ruleEvaluationTimes;
 }
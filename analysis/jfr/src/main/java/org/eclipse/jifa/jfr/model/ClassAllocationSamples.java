@@ -0,0 +1,26 @@
+/********************************************************************************
+ * Copyright (c) 2024 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.jifa.jfr.model;
+
+import java.util.Map;
+
+/**
+ * The result of a task of an allocation dimension, whose samples are also aggregated by the allocated class.
+ */
+public interface ClassAllocationSamples {
+
+    /**
+     * @return the samples of each allocated class by the name of the class
+     */
+    Map<String, Map<StackTrace, Long>> getClassSamples();
+}
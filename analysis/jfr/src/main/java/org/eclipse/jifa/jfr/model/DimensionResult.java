@@ -24,6 +24,9 @@ public class DimensionResult<T> {
 
     private List<T> list;
 
+    // the samples of the list in the order of time, null if not indexed
+    private SampleIndex sampleIndex;
+
     public void add(T t) {
         if (list == null) {
             list = new ArrayList<>();
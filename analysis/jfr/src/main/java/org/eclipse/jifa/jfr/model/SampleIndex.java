@@ -0,0 +1,274 @@
+/********************************************************************************
+ * Copyright (c) 2024 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.jifa.jfr.model;
+
+import org.eclipse.jifa.jfr.model.symbol.StackTracePool;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * The samples of a dimension in the order of time, so that the samples of a time window can be aggregated without
+ * rescanning the events.
+ * <p>
+ * The samples are grouped into buckets of the same time width, and the samples of each bucket are also aggregated
+ * by task and stack trace. A window is answered by the aggregates of the buckets it fully covers plus the samples of
+ * the partially covered buckets at both ends, which are located by binary search.
+ */
+public class SampleIndex {
+
+    private static final int BUCKET_COUNT = 256;
+
+    // the samples, sorted by time
+    private final long[] times;
+
+    private final int[] tasks;
+
+    // the ids of the stack traces in StackTracePool
+    private final int[] stackTraces;
+
+    private final long[] values;
+
+    private final long[] taskIds;
+
+    // the converted stack traces by id, only the ones of the samples are present
+    private final StackTrace[] stackTraceTable;
+
+    // the total value of each task
+    private final Map<Long, Long> taskValues = new HashMap<>();
+
+    // the index of the first sample of each bucket, the last element is the number of the samples
+    private final int[] bucketStarts;
+
+    // the keys (task << 32 | stack trace) and the values of the aggregated samples of each bucket
+    private final long[][] bucketKeys;
+
+    private final long[][] bucketValues;
+
+    private SampleIndex(long[] times, int[] tasks, int[] stackTraces, long[] values, long[] taskIds,
+                        StackTrace[] stackTraceTable) {
+        this.times = times;
+        this.tasks = tasks;
+        this.stackTraces = stackTraces;
+        this.values = values;
+        this.taskIds = taskIds;
+        this.stackTraceTable = stackTraceTable;
+
+        for (int i = 0; i < values.length; i++) {
+            taskValues.merge(taskIds[tasks[i]], values[i], Long::sum);
+        }
+
+        int size = times.length;
+        int bucketCount = size == 0 ? 0 : BUCKET_COUNT;
+        bucketStarts = new int[bucketCount + 1];
+        bucketKeys = new long[bucketCount][];
+        bucketValues = new long[bucketCount][];
+        if (size == 0) {
+            return;
+        }
+        long origin = times[0];
+        long width = (times[size - 1] - origin) / bucketCount + 1;
+        int start = 0;
+        for (int b = 0; b < bucketCount; b++) {
+            long bucketEnd = origin + (b + 1) * width;
+            int end = b == bucketCount - 1 ? size : lowerBound(times, start, size, bucketEnd);
+            bucketStarts[b] = start;
+
+            Map<Long, Long> aggregated = new HashMap<>();
+            for (int i = start; i < end; i++) {
+                aggregated.merge(((long) tasks[i] << 32) | stackTraces[i], values[i], Long::sum);
+            }
+            long[] keys = new long[aggregated.size()];
+            long[] sums = new long[aggregated.size()];
+            int j = 0;
+            for (Map.Entry<Long, Long> entry : aggregated.entrySet()) {
+                keys[j] = entry.getKey();
+                sums[j++] = entry.getValue();
+            }
+            bucketKeys[b] = keys;
+            bucketValues[b] = sums;
+            start = end;
+        }
+        bucketStarts[bucketCount] = size;
+    }
+
+    /**
+     * @param taskId the id of the task
+     * @return the total value of the samples of the task
+     */
+    public long valueOf(long taskId) {
+        return taskValues.getOrDefault(taskId, 0L);
+    }
+
+    /**
+     * @param startTime the start of the window in epoch nanoseconds, inclusive
+     * @param endTime   the end of the window in epoch nanoseconds, exclusive
+     * @return the values of the samples in the window, by task id and stack trace
+     */
+    public Map<Long, Map<StackTrace, Long>> aggregate(long startTime, long endTime) {
+        Map<Long, Map<StackTrace, Long>> result = new HashMap<>();
+        int size = times.length;
+        int from = lowerBound(times, 0, size, startTime);
+        int to = lowerBound(times, from, size, endTime);
+        if (from >= to) {
+            return result;
+        }
+
+        // the buckets in [first, last) are fully covered by the window
+        int first = lowerBound(bucketStarts, from);
+        int last = upperBound(bucketStarts, to) - 1;
+        if (first >= last) {
+            addSamples(result, from, to);
+            return result;
+        }
+        addSamples(result, from, bucketStarts[first]);
+        for (int b = first; b < last; b++) {
+            long[] keys = bucketKeys[b];
+            long[] sums = bucketValues[b];
+            for (int i = 0; i < keys.length; i++) {
+                add(result, (int) (keys[i] >>> 32), (int) keys[i], sums[i]);
+            }
+        }
+        addSamples(result, bucketStarts[last], to);
+        return result;
+    }
+
+    private void addSamples(Map<Long, Map<StackTrace, Long>> result, int from, int to) {
+        for (int i = from; i < to; i++) {
+            add(result, tasks[i], stackTraces[i], values[i]);
+        }
+    }
+
+    private void add(Map<Long, Map<StackTrace, Long>> result, int task, int stackTrace, long value) {
+        result.computeIfAbsent(taskIds[task], k -> new HashMap<>())
+              .merge(stackTraceTable[stackTrace], value, Long::sum);
+    }
+
+    // the index of the first element that is not less than the key
+    private static int lowerBound(long[] array, int from, int to, long key) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (array[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int lowerBound(int[] array, int key) {
+        int low = 0;
+        int high = array.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (array[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // the index of the first element that is greater than the key
+    private static int upperBound(int[] array, int key) {
+        int low = 0;
+        int high = array.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (array[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Collects the samples in any order.
+     */
+    public static class Builder {
+
+        private final Map<Long, Integer> taskIndexes = new HashMap<>();
+
+        private long[] times = new long[1024];
+
+        private int[] tasks = new int[1024];
+
+        private int[] stackTraces = new int[1024];
+
+        private long[] values = new long[1024];
+
+        private int size;
+
+        public void add(long time, long taskId, int stackTraceId, long value) {
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size * 2);
+                tasks = Arrays.copyOf(tasks, size * 2);
+                stackTraces = Arrays.copyOf(stackTraces, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            times[size] = time;
+            tasks[size] = taskIndexes.computeIfAbsent(taskId, k -> taskIndexes.size());
+            stackTraces[size] = stackTraceId;
+            values[size++] = value;
+        }
+
+        public SampleIndex build(StackTracePool pool) {
+            long[] ids = new long[taskIndexes.size()];
+            taskIndexes.forEach((id, index) -> ids[index] = id);
+            int max = -1;
+            for (int i = 0; i < size; i++) {
+                max = Math.max(max, stackTraces[i]);
+            }
+            StackTrace[] table = new StackTrace[max + 1];
+            for (int i = 0; i < size; i++) {
+                if (table[stackTraces[i]] == null) {
+                    table[stackTraces[i]] = pool.stackTraceOf(stackTraces[i]);
+                }
+            }
+
+            // the samples are usually added in the order of time
+            boolean sorted = true;
+            for (int i = 1; i < size && sorted; i++) {
+                sorted = times[i - 1] <= times[i];
+            }
+            if (sorted) {
+                return new SampleIndex(Arrays.copyOf(times, size), Arrays.copyOf(tasks, size),
+                                       Arrays.copyOf(stackTraces, size), Arrays.copyOf(values, size), ids, table);
+            }
+            int[] order = IntStream.range(0, size).boxed()
+                                   .sorted(Comparator.comparingLong(i -> times[i]))
+                                   .mapToInt(Integer::intValue)
+                                   .toArray();
+            long[] t = new long[size];
+            int[] ts = new int[size];
+            int[] ss = new int[size];
+            long[] vs = new long[size];
+            for (int i = 0; i < size; i++) {
+                t[i] = times[order[i]];
+                ts[i] = tasks[order[i]];
+                ss[i] = stackTraces[order[i]];
+                vs[i] = values[order[i]];
+            }
+            return new SampleIndex(t, ts, ss, vs, ids, table);
+        }
+    }
+}
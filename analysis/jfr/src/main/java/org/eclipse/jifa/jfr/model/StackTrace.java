@@ -27,6 +27,9 @@ public class StackTrace extends SymbolBase {
 
     private boolean truncated;
 
+    // the ids of the frames assigned by StackTracePool, not part of the identity and not persisted
+    private transient int[] frameIds;
+
     public int genHashCode() {
         return Objects.hash(truncated, Arrays.hashCode(frames));
     }
@@ -15,12 +15,17 @@ package org.eclipse.jifa.jfr.model;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @Setter
 @Getter
-public class TaskAllocatedMemory extends TaskSum {
+public class TaskAllocatedMemory extends TaskSum implements ClassAllocationSamples {
     public TaskAllocatedMemory() {
         super(null);
     }
 
     private long allocatedMemory;
+
+    private Map<String, Map<StackTrace, Long>> classSamples = new HashMap<>();
 }
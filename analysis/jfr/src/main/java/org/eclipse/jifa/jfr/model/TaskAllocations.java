@@ -15,8 +15,13 @@ package org.eclipse.jifa.jfr.model;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @Setter
 @Getter
-public class TaskAllocations extends TaskCount {
+public class TaskAllocations extends TaskCount implements ClassAllocationSamples {
     private long allocations;
+
+    private Map<String, Map<StackTrace, Long>> classSamples = new HashMap<>();
 }
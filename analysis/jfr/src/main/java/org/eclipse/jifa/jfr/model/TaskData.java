@@ -14,10 +14,8 @@ package org.eclipse.jifa.jfr.model;
 
 import lombok.Getter;
 import lombok.Setter;
-import org.eclipse.jifa.jfr.model.jfr.RecordedStackTrace;
 import org.eclipse.jifa.jfr.model.jfr.RecordedThread;
-
-import java.util.Map;
+import org.eclipse.jifa.jfr.util.IntLongMap;
 
 @Setter
 @Getter
@@ -28,5 +26,6 @@ public class TaskData {
 
     private RecordedThread thread;
 
-    private Map<RecordedStackTrace, Long> samples;
+    // the values by the ids of the stack traces in StackTracePool
+    private IntLongMap samples;
 }
\ No newline at end of file
@@ -12,5 +12,29 @@
  ********************************************************************************/
 package org.eclipse.jifa.jfr.model.jfr;
 
-public record EventType(String name) {
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Event types are interned, each of them is assigned a dense id so that events can be indexed by their types.
+ */
+public record EventType(String name, int id) {
+    private static final Map<String, EventType> TYPES = new ConcurrentHashMap<>();
+
+    public static EventType of(String name) {
+        EventType type = TYPES.get(name);
+        if (type != null) {
+            return type;
+        }
+        synchronized (TYPES) {
+            return TYPES.computeIfAbsent(name, n -> new EventType(n, TYPES.size()));
+        }
+    }
+
+    /**
+     * @return the number of the event types, all the ids are less than it
+     */
+    public static int count() {
+        return TYPES.size();
+    }
 }
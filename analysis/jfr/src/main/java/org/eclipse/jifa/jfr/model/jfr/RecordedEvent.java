@@ -15,6 +15,7 @@ package org.eclipse.jifa.jfr.model.jfr;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.jifa.jfr.model.symbol.SymbolBase;
+import org.eclipse.jifa.jfr.model.symbol.StackTracePool;
 import org.eclipse.jifa.jfr.model.symbol.SymbolTable;
 
 import org.eclipse.jifa.jfr.common.EventConstant;
@@ -51,17 +52,35 @@ public class RecordedEvent {
     @Getter
     private ActiveSetting activeSetting = null;
 
-    public static RecordedEvent newInstance(IItem item, SymbolTable<SymbolBase> symbols) {
+    public static RecordedEvent newInstance(IItem item, SymbolTable<SymbolBase> symbols, StackTracePool stackTraces) {
         RecordedEvent event = new RecordedEvent(item);
-        event.init(symbols);
+        event.init(symbols, stackTraces);
         return event;
     }
 
+    /**
+     * @param itemTypeId the identifier of the item type given by JDK Mission Control
+     * @return the name of the event type
+     */
+    public static String normalizeTypeId(String itemTypeId) {
+        // fix for JDK Mission Control lib
+        if ((itemTypeId.startsWith(EventConstant.EXECUTION_SAMPLE) && !itemTypeId.equals(EventConstant.EXECUTION_SAMPLE))) {
+            return EventConstant.EXECUTION_SAMPLE;
+        } else if (itemTypeId.startsWith(EventConstant.OBJECT_ALLOCATION_OUTSIDE_TLAB)
+                && !itemTypeId.equals(EventConstant.OBJECT_ALLOCATION_OUTSIDE_TLAB)) {
+            return EventConstant.OBJECT_ALLOCATION_OUTSIDE_TLAB;
+        } else if (itemTypeId.startsWith(EventConstant.OBJECT_ALLOCATION_IN_NEW_TLAB)
+                && !itemTypeId.equals(EventConstant.OBJECT_ALLOCATION_IN_NEW_TLAB)) {
+            return EventConstant.OBJECT_ALLOCATION_IN_NEW_TLAB;
+        }
+        return itemTypeId;
+    }
+
     private RecordedEvent(IItem item) {
         this.item = item;
     }
 
-    private void init(SymbolTable<SymbolBase> symbols) {
+    private void init(SymbolTable<SymbolBase> symbols, StackTracePool stackTraces) {
         IMCThread imcThread = getValue("eventThread");
         if (imcThread == null) {
             imcThread = getValue("sampledThread");
@@ -78,20 +97,7 @@ public class RecordedEvent {
         }
 
         IType<IItem> itemType = ItemToolkit.getItemType(item);
-        String itemTypeId = itemType.getIdentifier();
-
-        // fix for JDK Mission Control lib
-        if ((itemTypeId.startsWith(EventConstant.EXECUTION_SAMPLE) && !itemTypeId.equals(EventConstant.EXECUTION_SAMPLE))) {
-            itemTypeId = EventConstant.EXECUTION_SAMPLE;
-        } else if (itemTypeId.startsWith(EventConstant.OBJECT_ALLOCATION_OUTSIDE_TLAB)
-                && !itemTypeId.equals(EventConstant.OBJECT_ALLOCATION_OUTSIDE_TLAB)) {
-            itemTypeId = EventConstant.OBJECT_ALLOCATION_OUTSIDE_TLAB;
-        } else if (itemTypeId.startsWith(EventConstant.OBJECT_ALLOCATION_IN_NEW_TLAB)
-                && !itemTypeId.equals(EventConstant.OBJECT_ALLOCATION_IN_NEW_TLAB)) {
-            itemTypeId = EventConstant.OBJECT_ALLOCATION_IN_NEW_TLAB;
-        }
-
-        this.eventType = new EventType(itemTypeId);
+        this.eventType = EventType.of(normalizeTypeId(itemType.getIdentifier()));
 
         IMCStackTrace s = getValue("stackTrace");
         if (s != null) {
@@ -109,39 +115,22 @@ public class RecordedEvent {
                 RecordedClass c = new RecordedClass();
                 c.setName(type.getTypeName());
                 c.setPackageName(type.getPackage().getName());
-                if (symbols.isContains(c)) {
-                    c = (RecordedClass) symbols.get(c);
-                } else {
-                    symbols.put(c);
-                }
+                c = symbols.intern(c);
                 m.setType(c);
                 m.setName(method.getMethodName());
-                if (symbols.isContains(m)) {
-                    m = (RecordedMethod) symbols.get(m);
-                } else {
-                    symbols.put(m);
-                }
+                m = symbols.intern(m);
 
                 RecordedFrame f = new RecordedFrame();
                 f.setMethod(m);
                 f.setBytecodeIndex(frame.getBCI());
                 f.setType(frame.getType().getName());
 
-                if (symbols.isContains(f)) {
-                    f = (RecordedFrame) symbols.get(f);
-                } else {
-                    symbols.put(f);
-                }
+                f = symbols.intern(f);
 
                 list.add(f);
             });
             st.setFrames(list);
-            if (symbols.isContains(st)) {
-                st = (RecordedStackTrace) symbols.get(st);
-            } else {
-                symbols.put(st);
-            }
-            stackTrace = st;
+            stackTrace = stackTraces.intern(st);
         }
 
         if (ACTIVE_SETTING.equals(itemType.getIdentifier())) {
@@ -221,6 +210,15 @@ public class RecordedEvent {
         }
     }
 
+    /**
+     * @param name the name of a field of the class type
+     * @return the fully qualified name of the class, null if absent
+     */
+    public String getClassName(String name) {
+        IMCType type = getValue(name);
+        return type == null ? null : type.getFullName();
+    }
+
     public RecordedThread getThread(String key) {
         IMCThread imcThread = getValue(key);
         return imcThread == null ? null : new RecordedThread(imcThread);
@@ -0,0 +1,130 @@
+/********************************************************************************
+ * Copyright (c) 2024 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.jifa.jfr.model.symbol;
+
+import org.eclipse.jifa.jfr.model.Frame;
+import org.eclipse.jifa.jfr.model.StackTrace;
+import org.eclipse.jifa.jfr.model.jfr.RecordedStackTrace;
+import org.eclipse.jifa.jfr.util.IntLongMap;
+import org.eclipse.jifa.jfr.util.StackTraceUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The dictionary of the stack traces of a recording.
+ * <p>
+ * A stack trace is assigned a dense id when it is interned during parsing, so that the samples can be kept in
+ * primitive maps keyed by the id. Each stack trace is converted to {@link StackTrace} only once, and the frames of
+ * the converted stack traces are assigned dense ids, so that the consumers can cache the data of a frame by id.
+ */
+public class StackTracePool {
+
+    private final SymbolTable<SymbolBase> symbols;
+
+    private final Map<RecordedStackTrace, Integer> ids = new ConcurrentHashMap<>();
+
+    private final List<RecordedStackTrace> stackTraces = new ArrayList<>();
+
+    private StackTrace[] converted = new StackTrace[0];
+
+    // the frames are interned, so they are identified by reference
+    private final Map<Frame, Integer> frameIds = new IdentityHashMap<>();
+
+    public StackTracePool(SymbolTable<SymbolBase> symbols) {
+        this.symbols = symbols;
+        intern(StackTraceUtil.DUMMY_STACK_TRACE);
+    }
+
+    /**
+     * @param stackTrace the stack trace
+     * @return the interned stack trace that equals to the given one
+     */
+    public RecordedStackTrace intern(RecordedStackTrace stackTrace) {
+        RecordedStackTrace interned = symbols.intern(stackTrace);
+        if (interned == stackTrace) {
+            register(interned);
+        }
+        return interned;
+    }
+
+    private synchronized int register(RecordedStackTrace stackTrace) {
+        Integer id = ids.get(stackTrace);
+        if (id == null) {
+            id = stackTraces.size();
+            stackTraces.add(stackTrace);
+            ids.put(stackTrace, id);
+        }
+        return id;
+    }
+
+    /**
+     * @param stackTrace the stack trace
+     * @return the id of the stack trace
+     */
+    public int idOf(RecordedStackTrace stackTrace) {
+        Integer id = ids.get(stackTrace);
+        // the stack traces that are not from the events, such as the dummy ones, are registered on first use
+        return id != null ? id : register(symbols.intern(stackTrace));
+    }
+
+    /**
+     * @param id the id of a stack trace
+     * @return the converted stack trace
+     */
+    public synchronized StackTrace stackTraceOf(int id) {
+        if (id >= converted.length) {
+            converted = Arrays.copyOf(converted, Math.max(stackTraces.size(), id + 1));
+        }
+        StackTrace stackTrace = converted[id];
+        if (stackTrace == null) {
+            stackTrace = StackTraceUtil.build(stackTraces.get(id), symbols);
+            assignFrameIds(stackTrace);
+            converted[id] = stackTrace;
+        }
+        return stackTrace;
+    }
+
+    /**
+     * Assign the ids to the frames of a stack trace if absent, the stack traces that are not converted by this pool,
+     * such as the persisted ones, also get the ids in this way.
+     *
+     * @param stackTrace the stack trace
+     */
+    public synchronized void assignFrameIds(StackTrace stackTrace) {
+        if (stackTrace.getFrameIds() == null) {
+            Frame[] frames = stackTrace.getFrames();
+            int[] ids = new int[frames.length];
+            for (int i = 0; i < frames.length; i++) {
+                ids[i] = frameIds.computeIfAbsent(frames[i], f -> frameIds.size());
+            }
+            stackTrace.setFrameIds(ids);
+        }
+    }
+
+    /**
+     * @param samples the values by the ids of the stack traces
+     * @return the values by the converted stack traces
+     */
+    public Map<StackTrace, Long> samplesOf(IntLongMap samples) {
+        Map<StackTrace, Long> result = new HashMap<>(samples.size() * 2);
+        // different recorded stack traces may be converted to the same stack trace
+        samples.forEach((id, value) -> result.merge(stackTraceOf(id), value, Long::sum));
+        return result;
+    }
+}
@@ -30,6 +30,16 @@ public class SymbolTable<T> {
         return table.put(s, s);
     }
 
+    /**
+     * @param s the symbol
+     * @return the symbol in the table that equals to the given symbol, the given symbol is put if there is no such one
+     */
+    @SuppressWarnings("unchecked")
+    public <S extends T> S intern(S s) {
+        T existing = table.putIfAbsent(s, s);
+        return existing != null ? (S) existing : s;
+    }
+
     public void clear() {
         this.table.clear();
     }
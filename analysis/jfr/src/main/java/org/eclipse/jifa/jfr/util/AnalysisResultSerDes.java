@@ -0,0 +1,141 @@
+/********************************************************************************
+ * Copyright (c) 2024 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.jifa.jfr.util;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.ByteBufferInput;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.util.DefaultInstantiatorStrategy;
+import org.eclipse.jifa.jfr.model.AnalysisResult;
+import org.eclipse.jifa.jfr.model.DimensionResult;
+import org.eclipse.jifa.jfr.model.Frame;
+import org.eclipse.jifa.jfr.model.JavaFrame;
+import org.eclipse.jifa.jfr.model.JavaMethod;
+import org.eclipse.jifa.jfr.model.JavaThread;
+import org.eclipse.jifa.jfr.model.JavaThreadCPUTime;
+import org.eclipse.jifa.jfr.model.Method;
+import org.eclipse.jifa.jfr.model.Problem;
+import org.eclipse.jifa.jfr.model.SampleIndex;
+import org.eclipse.jifa.jfr.model.StackTrace;
+import org.eclipse.jifa.jfr.model.Task;
+import org.eclipse.jifa.jfr.model.TaskAllocatedMemory;
+import org.eclipse.jifa.jfr.model.TaskAllocations;
+import org.eclipse.jifa.jfr.model.TaskCPUTime;
+import org.eclipse.jifa.jfr.model.TaskCount;
+import org.eclipse.jifa.jfr.model.TaskSum;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Persists the result of the analysis of a recording to a binary file next to the recording, so that the recording
+ * does not need to be analyzed again when it is reopened.
+ * <p>
+ * The file starts with a header of the format version, the size and the last modified time of the recording and the
+ * dimensions in the result, the file is ignored if the header does not match.
+ */
+public final class AnalysisResultSerDes {
+
+    private static final int MAGIC = 0x4A464652;
+
+    // must be increased once the classes of the result are changed
+    private static final int VERSION = 4;
+
+    // the classes that may be found in a result, the ids of the classes depend on the order
+    private static final Class<?>[] CLASSES = {
+            AnalysisResult.class, DimensionResult.class, SampleIndex.class, Problem.class,
+            TaskCPUTime.class, JavaThreadCPUTime.class, TaskCount.class, TaskSum.class, TaskAllocations.class, TaskAllocatedMemory.class,
+            Task.class, JavaThread.class,
+            StackTrace.class, StackTrace[].class, Frame.class, Frame[].class, JavaFrame.class, JavaFrame.Type.class,
+            Method.class, JavaMethod.class,
+            ArrayList.class, HashMap.class,
+            int[].class, long[].class, long[][].class,
+    };
+
+    private static final ThreadLocal<Kryo> KRYO = ThreadLocal.withInitial(() -> {
+        Kryo kryo = new Kryo();
+        // only the classes of the result can be instantiated from a file
+        kryo.setRegistrationRequired(true);
+        for (Class<?> clazz : CLASSES) {
+            kryo.register(clazz);
+        }
+        // the symbols are shared by the stack traces of all the dimensions
+        kryo.setReferences(true);
+        // some classes of the result have no no-arg constructor, which is safe as only the classes above are allowed
+        kryo.setInstantiatorStrategy(new DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+        return kryo;
+    });
+
+    /**
+     * @param dimensions the dimensions in the result
+     * @param result     the result
+     */
+    public record Snapshot(int dimensions, AnalysisResult result) {
+    }
+
+    private AnalysisResultSerDes() {
+    }
+
+    public static Path sidecarOf(Path recording) {
+        return recording.resolveSibling(recording.getFileName() + ".kryo");
+    }
+
+    /**
+     * @param recording the recording
+     * @return the persisted result of the recording, null if absent or outdated
+     */
+    public static Snapshot read(Path recording) throws IOException {
+        Path sidecar = sidecarOf(recording);
+        if (!Files.exists(sidecar)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(sidecar, StandardOpenOption.READ);
+             ByteBufferInput input = new ByteBufferInput(channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                                                     channel.size()))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION
+                || input.readLong() != Files.size(recording)
+                || input.readLong() != Files.getLastModifiedTime(recording).toMillis()) {
+                return null;
+            }
+            int dimensions = input.readInt();
+            return new Snapshot(dimensions, KRYO.get().readObject(input, AnalysisResult.class));
+        }
+    }
+
+    /**
+     * @param recording  the recording
+     * @param dimensions the dimensions in the result
+     * @param result     the result
+     */
+    public static void write(Path recording, int dimensions, AnalysisResult result) throws IOException {
+        Path sidecar = sidecarOf(recording);
+        // a partially written file is never read
+        Path temp = sidecar.resolveSibling(sidecar.getFileName() + ".tmp");
+        try (Output output = new Output(Files.newOutputStream(temp))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(Files.size(recording));
+            output.writeLong(Files.getLastModifiedTime(recording).toMillis());
+            output.writeInt(dimensions);
+            KRYO.get().writeObject(output, result);
+        }
+        Files.move(temp, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,110 @@
+/********************************************************************************
+ * Copyright (c) 2024 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.jifa.jfr.util;
+
+import java.util.Arrays;
+
+/**
+ * A map from non-negative int keys to long values with open addressing, no key or value is boxed.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class IntLongMap {
+
+    private static final int EMPTY = -1;
+
+    private int[] keys;
+
+    private long[] values;
+
+    private int size;
+
+    public IntLongMap() {
+        this(16);
+    }
+
+    public IntLongMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+        keys = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new long[capacity];
+    }
+
+    /**
+     * Add the delta to the value of the key, the value of an absent key is 0.
+     *
+     * @param key   the key, must not be negative
+     * @param delta the delta
+     */
+    public void add(int key, long delta) {
+        int slot = slotOf(key);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            if (++size * 2 > keys.length) {
+                values[slot] = delta;
+                rehash();
+                return;
+            }
+        }
+        values[slot] += delta;
+    }
+
+    /**
+     * @param key the key
+     * @return the value of the key, 0 if absent
+     */
+    public long get(int key) {
+        int slot = slotOf(key);
+        return keys[slot] == EMPTY ? 0 : values[slot];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void forEach(Visitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                visitor.visit(keys[i], values[i]);
+            }
+        }
+    }
+
+    private int slotOf(int key) {
+        int mask = keys.length - 1;
+        int slot = (key * 0x9E3779B9) >>> 1 & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        values = new long[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    public interface Visitor {
+        void visit(int key, long value);
+    }
+}
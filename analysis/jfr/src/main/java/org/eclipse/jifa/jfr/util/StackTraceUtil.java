@@ -29,7 +29,6 @@ import java.util.List;
 public class StackTraceUtil {
     public static final RecordedStackTrace DUMMY_STACK_TRACE = StackTraceUtil.newDummyStackTrace("", "", "NO Frame");
 
-    // FIXME: need cache
     public static StackTrace build(RecordedStackTrace stackTrace, SymbolTable<SymbolBase> symbols) {
         StackTrace result = new StackTrace();
         result.setTruncated(stackTrace.isTruncated());
@@ -58,31 +57,17 @@ public class StackTraceUtil {
 
             dstMethod.setModifiers(method.getModifiers());
             dstMethod.setHidden(method.isHidden());
-            if (symbols.isContains(dstMethod)) {
-                dstMethod = (JavaMethod) symbols.get(dstMethod);
-            } else {
-                symbols.put(dstMethod);
-            }
+            dstMethod = symbols.intern(dstMethod);
 
             dstFrame.setMethod(dstMethod);
             dstFrame.setLine(frame.getLineNumber());
-            if (symbols.isContains(dstFrame)) {
-                dstFrame = (Frame) symbols.get(dstFrame);
-            } else {
-                symbols.put(dstFrame);
-            }
+            dstFrame = symbols.intern(dstFrame);
 
             dstFrames[i] = dstFrame;
         }
 
         result.setFrames(dstFrames);
-        if (symbols.isContains(result)) {
-            result = (StackTrace) symbols.get(result);
-        } else {
-            symbols.put(result);
-        }
-
-        return result;
+        return symbols.intern(result);
     }
 
     public static RecordedStackTrace newDummyStackTrace(String packageName, String className, String methodName) {
@@ -0,0 +1,47 @@
+/********************************************************************************
+ * Copyright (c) 2024 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.jifa.jfr.vo;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A flame graph whose stacks are merged into a prefix tree.
+ * <p>
+ * The nodes of the tree are stored in the parallel arrays {@link #frames}, {@link #parents} and {@link #weights},
+ * the parent of a node always precedes the node.
+ */
+@Setter
+@Getter
+public class CompactFlameGraph {
+
+    // the names of the frames, indexed by the frame id
+    private String[] symbols = new String[0];
+
+    // the frame id of each node
+    private int[] frames = new int[0];
+
+    // the index of the parent of each node, -1 for the roots
+    private int[] parents = new int[0];
+
+    // the total weight of each node, including the weights of its children
+    private long[] weights = new long[0];
+
+    // the total weight of all the stacks, including the pruned ones
+    private long totalWeight;
+
+    private Map<String, Long> threadSplit = new HashMap<>();
+}
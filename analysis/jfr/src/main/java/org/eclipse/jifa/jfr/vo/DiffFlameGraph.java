@@ -0,0 +1,46 @@
+/********************************************************************************
+ * Copyright (c) 2024 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.jifa.jfr.vo;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * The difference between the flame graphs of two recordings, in the same form as {@link CompactFlameGraph}.
+ * <p>
+ * The stacks of both recordings are merged into one prefix tree, the frames of the two recordings are matched by
+ * name. A node that only exists in the baseline has a weight of 0 and a negative delta.
+ */
+@Setter
+@Getter
+public class DiffFlameGraph {
+
+    // the names of the frames, indexed by the frame id
+    private String[] symbols = new String[0];
+
+    // the frame id of each node
+    private int[] frames = new int[0];
+
+    // the index of the parent of each node, -1 for the roots
+    private int[] parents = new int[0];
+
+    // the total weight of each node in the target recording
+    private long[] weights = new long[0];
+
+    // the weight of each node in the target recording minus the weight in the baseline recording
+    private long[] deltas = new long[0];
+
+    private long totalWeight;
+
+    private long baselineTotalWeight;
+}
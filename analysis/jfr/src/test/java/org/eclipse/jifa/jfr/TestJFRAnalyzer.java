@@ -20,8 +20,12 @@ import org.eclipse.jifa.jfr.common.ProfileDimension;
 import org.eclipse.jifa.jfr.model.AnalysisResult;
 import org.eclipse.jifa.jfr.model.JavaThreadCPUTime;
 import org.eclipse.jifa.jfr.request.DimensionBuilder;
+import org.eclipse.jifa.jfr.util.AnalysisResultSerDes;
 import org.eclipse.jifa.jfr.helper.SimpleFlameGraph;
 import org.eclipse.jifa.jfr.model.*;
+import org.eclipse.jifa.jfr.vo.AllocatedClass;
+import org.eclipse.jifa.jfr.vo.CompactFlameGraph;
+import org.eclipse.jifa.jfr.vo.DiffFlameGraph;
 import org.eclipse.jifa.jfr.vo.Metadata;
 import org.eclipse.jifa.jfr.vo.FlameGraph;
 import org.junit.jupiter.api.Assertions;
@@ -32,7 +36,9 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 public class TestJFRAnalyzer {
 
@@ -313,6 +319,46 @@ public class TestJFRAnalyzer {
         Assertions.assertFalse(result.getAllocatedMemory().getList().isEmpty());
     }
 
+    @Test
+    public void testAllocatedClasses() throws IOException {
+        Path path = createTmpFileForResource("object-allocation-sample.jfr");
+        JFRAnalyzerImpl analyzer = new JFRAnalyzerImpl(path, DimensionBuilder.ALLOC | DimensionBuilder.MEM, null,
+                                                        ProgressListener.NoOpProgressListener);
+        AnalysisResult result = analyzer.getResult();
+
+        // the same as the dimensions extracted separately
+        TaskAllocations allocations = result.getAllocations().getList().stream()
+                                            .filter(item -> item.getTask().getName().equals("main")).findAny().get();
+        Assertions.assertEquals(327, SimpleFlameGraph.parse(allocations).totalSampleValue.intValue());
+        TaskAllocatedMemory memory = result.getAllocatedMemory().getList().stream()
+                                           .filter(item -> item.getTask().getName().equals("main")).findAny().get();
+        Assertions.assertEquals(12638637000L, SimpleFlameGraph.parse(memory).totalSampleValue.longValue());
+
+        for (ProfileDimension dimension : new ProfileDimension[]{ProfileDimension.ALLOC, ProfileDimension.MEM}) {
+            List<AllocatedClass> classes = analyzer.getAllocatedClasses(dimension.getKey(), false, null);
+            Assertions.assertFalse(classes.isEmpty());
+            for (int i = 1; i < classes.size(); i++) {
+                Assertions.assertTrue(classes.get(i - 1).getWeight() >= classes.get(i).getWeight());
+            }
+            long total = analyzer.getFlameGraph(dimension.getKey(), false, null).getThreadSplit().values().stream()
+                                 .mapToLong(Long::longValue).sum();
+            Assertions.assertEquals(total, classes.stream().mapToLong(AllocatedClass::getWeight).sum());
+
+            AllocatedClass top = classes.get(0);
+            FlameGraph fg = analyzer.getFlameGraphOfAllocatedClass(dimension.getKey(), top.getName(), false, null);
+            Assertions.assertEquals(top.getWeight(),
+                                    fg.getThreadSplit().values().stream().mapToLong(Long::longValue).sum());
+
+            List<String> main = List.of("main");
+            long mainWeight = analyzer.getAllocatedClasses(dimension.getKey(), true, main).stream()
+                                      .mapToLong(AllocatedClass::getWeight).sum();
+            Assertions.assertEquals(dimension == ProfileDimension.ALLOC ? 327 : 12638637000L, mainWeight);
+        }
+
+        Assertions.assertThrows(RuntimeException.class,
+                                () -> analyzer.getAllocatedClasses(ProfileDimension.CPU.getKey(), false, null));
+    }
+
     @Test
     public void testFileIO() throws IOException {
         Path path = createTmpFileForResource("jfr.jfr");
@@ -622,9 +668,229 @@ public class TestJFRAnalyzer {
         Assertions.assertTrue(result.getCpuSample().getList().isEmpty());
     }
 
+    @Test
+    public void testLazyDimensions() throws IOException {
+        Path path = createTmpFileForResource("jfr.jfr");
+        // the dimensions are processed on first request
+        JFRAnalyzerImpl all = new JFRAnalyzerImpl(path, DimensionBuilder.ALL, null, ProgressListener.NoOpProgressListener);
+        JFRAnalyzerImpl one = new JFRAnalyzerImpl(path, DimensionBuilder.CPU_SAMPLE, null, ProgressListener.NoOpProgressListener);
+        String dimension = ProfileDimension.CPU_SAMPLE.getKey();
+        FlameGraph expected = one.getFlameGraph(dimension, false, null);
+        FlameGraph actual = all.getFlameGraph(dimension, false, null);
+        Assertions.assertTrue(expected.getData().length > 0);
+        Assertions.assertEquals(expected.getData().length, actual.getData().length);
+        Assertions.assertEquals(expected.getThreadSplit(), actual.getThreadSplit());
+        Assertions.assertEquals(actual.getThreadSplit(), all.getFlameGraph(dimension, false, null).getThreadSplit());
+
+        Assertions.assertNotNull(all.getResult().getCpuTime());
+        Assertions.assertNotNull(all.getResult().getThreadSleepTime());
+    }
+
+    @Test
+    public void testStreaming() throws IOException {
+        for (String resource : new String[]{"jfr.jfr", "ap-wall-default.jfr", "object-allocation-sample.jfr"}) {
+            Path path = createTmpFileForResource(resource);
+            JFRAnalyzerImpl expected = new JFRAnalyzerImpl(path, null, ProgressListener.NoOpProgressListener);
+            // a separate copy, so that the result persisted by the other analyzer is not reused
+            Path copy = createTmpFileForResource(resource);
+            JFRAnalyzerImpl actual = new JFRAnalyzerImpl(copy, Map.of(JFRAnalyzerImpl.STREAMING_OPTION, "true"),
+                                                         ProgressListener.NoOpProgressListener);
+            for (ProfileDimension dimension : new ProfileDimension[]{ProfileDimension.CPU, ProfileDimension.CPU_SAMPLE,
+                    ProfileDimension.WALL_CLOCK, ProfileDimension.ALLOC, ProfileDimension.MEM}) {
+                FlameGraph e = expected.getFlameGraph(dimension.getKey(), false, null);
+                FlameGraph a = actual.getFlameGraph(dimension.getKey(), false, null);
+                Assertions.assertEquals(e.getData().length, a.getData().length);
+                Assertions.assertEquals(e.getThreadSplit(), a.getThreadSplit());
+            }
+        }
+    }
+
+    @Test
+    public void testParallelism() throws IOException {
+        Path path = createTmpFileForResource("jfr.jfr");
+        JFRAnalyzerImpl serial = new JFRAnalyzerImpl(path, Map.of(JFRAnalyzerImpl.PARALLELISM_OPTION, "1"),
+                                                     ProgressListener.NoOpProgressListener);
+        JFRAnalyzerImpl parallel = new JFRAnalyzerImpl(createTmpFileForResource("jfr.jfr"),
+                                                       Map.of(JFRAnalyzerImpl.PARALLELISM_OPTION, "4"),
+                                                       ProgressListener.NoOpProgressListener);
+        for (ProfileDimension dimension : new ProfileDimension[]{ProfileDimension.CPU, ProfileDimension.CPU_SAMPLE,
+                ProfileDimension.ALLOC, ProfileDimension.MEM, ProfileDimension.THREAD_SLEEP}) {
+            FlameGraph e = serial.getFlameGraph(dimension.getKey(), false, null);
+            FlameGraph a = parallel.getFlameGraph(dimension.getKey(), false, null);
+            Assertions.assertEquals(e.getData().length, a.getData().length);
+            Assertions.assertEquals(e.getThreadSplit(), a.getThreadSplit());
+        }
+
+        Assertions.assertThrows(RuntimeException.class,
+                                () -> new JFRAnalyzerImpl(path, Map.of(JFRAnalyzerImpl.PARALLELISM_OPTION, "x"),
+                                                          ProgressListener.NoOpProgressListener));
+    }
+
+    @Test
+    public void testProblems() throws IOException {
+        int dimensions = DimensionBuilder.CPU | ProfileDimension.PROBLEMS.getValue();
+        AnalysisResult serial = new JFRAnalyzerImpl(createTmpFileForResource("jfr.jfr"), dimensions,
+                                                    Map.of(JFRAnalyzerImpl.PARALLELISM_OPTION, "1"),
+                                                    ProgressListener.NoOpProgressListener).getResult();
+        AnalysisResult parallel = new JFRAnalyzerImpl(createTmpFileForResource("jfr.jfr"), dimensions,
+                                                      Map.of(JFRAnalyzerImpl.PARALLELISM_OPTION, "4"),
+                                                      ProgressListener.NoOpProgressListener).getResult();
+        Assertions.assertFalse(serial.getRuleEvaluationTimes().isEmpty());
+        Assertions.assertEquals(serial.getRuleEvaluationTimes().keySet(), parallel.getRuleEvaluationTimes().keySet());
+        Assertions.assertEquals(serial.getProblems().stream().map(Problem::getSummary).toList(),
+                                parallel.getProblems().stream().map(Problem::getSummary).toList());
+        Assertions.assertNotNull(serial.getCpuTime());
+    }
+
+    @Test
+    public void testCompactFlameGraph() throws IOException {
+        Path path = createTmpFileForResource("jfr.jfr");
+        JFRAnalyzerImpl analyzer = new JFRAnalyzerImpl(path, DimensionBuilder.CPU_SAMPLE, null, ProgressListener.NoOpProgressListener);
+        String dimension = ProfileDimension.CPU_SAMPLE.getKey();
+        FlameGraph fg = analyzer.getFlameGraph(dimension, false, null);
+        CompactFlameGraph compact = analyzer.getCompactFlameGraph(dimension, false, null, 0, 0, 0);
+
+        long total = 0;
+        for (Object[] row : fg.getData()) {
+            total += (Long) row[1];
+        }
+        Assertions.assertTrue(total > 0);
+        Assertions.assertEquals(total, compact.getTotalWeight());
+        Assertions.assertEquals(fg.getThreadSplit(), compact.getThreadSplit());
+        long rootWeight = 0;
+        for (int i = 0; i < compact.getParents().length; i++) {
+            Assertions.assertTrue(compact.getParents()[i] < i);
+            if (compact.getParents()[i] < 0) {
+                rootWeight += compact.getWeights()[i];
+            }
+        }
+        Assertions.assertEquals(total, rootWeight);
+
+        CompactFlameGraph pruned = analyzer.getCompactFlameGraph(dimension, false, null, 0.1, 0, 0);
+        Assertions.assertTrue(pruned.getFrames().length < compact.getFrames().length);
+        Assertions.assertTrue(pruned.getSymbols().length <= compact.getSymbols().length);
+        for (int i = 0; i < pruned.getFrames().length; i++) {
+            Assertions.assertTrue(pruned.getWeights()[i] >= total * 0.1);
+            Assertions.assertTrue(pruned.getFrames()[i] < pruned.getSymbols().length);
+        }
+    }
+
+    @Test
+    public void testDiffFlameGraph() throws IOException {
+        Path path = createTmpFileForResource("ap-cpu-20.jfr");
+        Path other = createTmpFileForResource("ap-cpu-default.jfr");
+        JFRAnalyzerImpl analyzer = new JFRAnalyzerImpl(path, DimensionBuilder.CPU_SAMPLE, null, ProgressListener.NoOpProgressListener);
+        String dimension = ProfileDimension.CPU_SAMPLE.getKey();
+
+        DiffFlameGraph self = analyzer.getDiffFlameGraph(dimension, path);
+        CompactFlameGraph compact = analyzer.getCompactFlameGraph(dimension, false, null, 0, 0, 0);
+        Assertions.assertEquals(compact.getFrames().length, self.getFrames().length);
+        Assertions.assertEquals(compact.getTotalWeight(), self.getBaselineTotalWeight());
+        for (long delta : self.getDeltas()) {
+            Assertions.assertEquals(0, delta);
+        }
+
+        DiffFlameGraph diff = analyzer.getDiffFlameGraph(dimension, other);
+        Assertions.assertEquals(Set.of(diff.getSymbols()).size(), diff.getSymbols().length);
+        long rootWeight = 0;
+        long rootDelta = 0;
+        for (int i = 0; i < diff.getFrames().length; i++) {
+            Assertions.assertTrue(diff.getParents()[i] < i);
+            if (diff.getParents()[i] < 0) {
+                rootWeight += diff.getWeights()[i];
+                rootDelta += diff.getDeltas()[i];
+            }
+        }
+        Assertions.assertEquals(diff.getTotalWeight(), rootWeight);
+        Assertions.assertEquals(diff.getTotalWeight() - diff.getBaselineTotalWeight(), rootDelta);
+        Assertions.assertTrue(diff.getFrames().length >= compact.getFrames().length);
+    }
+
+    @Test
+    public void testPersistedResult() throws IOException {
+        Path path = createTmpFileForResource("jfr.jfr");
+        String cpu = ProfileDimension.CPU.getKey();
+        String cpuSample = ProfileDimension.CPU_SAMPLE.getKey();
+        JFRAnalyzerImpl analyzer = new JFRAnalyzerImpl(path, null, ProgressListener.NoOpProgressListener);
+        CompactFlameGraph expected = analyzer.getCompactFlameGraph(cpuSample, false, null, 0, 0, 0);
+        CompactFlameGraph expectedCpu = analyzer.getCompactFlameGraph(cpu, false, null, 0, 0, 0);
+        // the result of the dimensions is persisted in the background
+        analyzer.awaitPersisting();
+        Assertions.assertTrue(Files.exists(AnalysisResultSerDes.sidecarOf(path)));
+
+        // the recording can not be parsed any more, but the persisted result still matches it
+        FileTime lastModified = Files.getLastModifiedTime(path);
+        Files.write(path, new byte[(int) Files.size(path)]);
+        Files.setLastModifiedTime(path, lastModified);
+        JFRAnalyzerImpl reopened = new JFRAnalyzerImpl(path, null, ProgressListener.NoOpProgressListener);
+        for (String dimension : new String[]{cpuSample, cpu}) {
+            CompactFlameGraph actual = reopened.getCompactFlameGraph(dimension, false, null, 0, 0, 0);
+            CompactFlameGraph e = dimension.equals(cpu) ? expectedCpu : expected;
+            Assertions.assertEquals(e.getTotalWeight(), actual.getTotalWeight());
+            Assertions.assertEquals(e.getThreadSplit(), actual.getThreadSplit());
+            Assertions.assertEquals(e.getFrames().length, actual.getFrames().length);
+            Assertions.assertEquals(Set.of(e.getSymbols()), Set.of(actual.getSymbols()));
+        }
+        FlameGraph window = reopened.getFlameGraph(cpuSample, false, null, 1, Long.MAX_VALUE);
+        Assertions.assertTrue(window.getData().length > 0);
+
+        // an outdated result is ignored
+        Files.setLastModifiedTime(path, FileTime.fromMillis(lastModified.toMillis() + 1000));
+        Assertions.assertThrows(RuntimeException.class,
+                                () -> new JFRAnalyzerImpl(path, null, ProgressListener.NoOpProgressListener));
+    }
+
+    @Test
+    public void testConcurrentRequests() throws IOException {
+        Path path = createTmpFileForResource("jfr.jfr");
+        JFRAnalyzerImpl analyzer = new JFRAnalyzerImpl(path, DimensionBuilder.CPU | DimensionBuilder.CPU_SAMPLE, null,
+                                                       ProgressListener.NoOpProgressListener);
+        String[] dimensions = {ProfileDimension.CPU.getKey(), ProfileDimension.CPU_SAMPLE.getKey()};
+        List<CompletableFuture<FlameGraph>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            String dimension = dimensions[i % 2];
+            futures.add(CompletableFuture.supplyAsync(() -> analyzer.getFlameGraph(dimension, false, null)));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            FlameGraph expected = analyzer.getFlameGraph(dimensions[i % 2], false, null);
+            Assertions.assertEquals(expected.getData().length, futures.get(i).join().getData().length);
+            Assertions.assertEquals(expected.getThreadSplit(), futures.get(i).join().getThreadSplit());
+        }
+
+        // the events are released once the requested dimensions are processed, and loaded again for the others
+        FlameGraph wall = analyzer.getFlameGraph(ProfileDimension.WALL_CLOCK.getKey(), false, null);
+        Assertions.assertNotNull(wall);
+        analyzer.awaitPersisting();
+    }
+
+    @Test
+    public void testTimeWindow() throws IOException {
+        Path path = createTmpFileForResource("jfr.jfr");
+        JFRAnalyzerImpl analyzer = new JFRAnalyzerImpl(path, DimensionBuilder.CPU | DimensionBuilder.CPU_SAMPLE, null, ProgressListener.NoOpProgressListener);
+        for (ProfileDimension dimension : new ProfileDimension[]{ProfileDimension.CPU, ProfileDimension.CPU_SAMPLE}) {
+            FlameGraph full = analyzer.getFlameGraph(dimension.getKey(), false, null);
+            Assertions.assertTrue(full.getData().length > 0);
+
+            // a window that covers the whole recording, the GC time of the CPU dimension has no time
+            FlameGraph all = analyzer.getFlameGraph(dimension.getKey(), false, null, 1, Long.MAX_VALUE / 1000_000);
+            if (dimension == ProfileDimension.CPU) {
+                Assertions.assertTrue(all.getData().length > 0);
+                Assertions.assertTrue(full.getThreadSplit().entrySet().containsAll(all.getThreadSplit().entrySet()));
+            } else {
+                Assertions.assertEquals(full.getData().length, all.getData().length);
+                Assertions.assertEquals(full.getThreadSplit(), all.getThreadSplit());
+            }
+
+            // a window before the recording
+            FlameGraph none = analyzer.getFlameGraph(dimension.getKey(), false, null, 1, 2);
+            Assertions.assertEquals(0, none.getData().length);
+        }
+    }
+
     public static Path createTmpFileForResource(String resource) throws IOException {
         Path path = Files.createTempFile("temp", ".jfr");
         path.toFile().deleteOnExit();
+        AnalysisResultSerDes.sidecarOf(path).toFile().deleteOnExit();
         FileUtils.copyInputStreamToFile(Objects.requireNonNull(
                         TestJFRAnalyzer.class.getClassLoader().getResourceAsStream(resource)),
                 path.toFile());
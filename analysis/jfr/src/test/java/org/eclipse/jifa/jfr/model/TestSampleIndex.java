@@ -0,0 +1,81 @@
+/********************************************************************************
+ * Copyright (c) 2024 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.jifa.jfr.model;
+
+import org.eclipse.jifa.jfr.model.jfr.RecordedStackTrace;
+import org.eclipse.jifa.jfr.model.symbol.StackTracePool;
+import org.eclipse.jifa.jfr.model.symbol.SymbolBase;
+import org.eclipse.jifa.jfr.model.symbol.SymbolTable;
+import org.eclipse.jifa.jfr.util.StackTraceUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class TestSampleIndex {
+
+    @Test
+    public void testAggregate() {
+        SymbolTable<SymbolBase> symbols = new SymbolTable<>();
+        StackTracePool pool = new StackTracePool(symbols);
+        RecordedStackTrace[] stackTraces = new RecordedStackTrace[5];
+        int[] stackTraceIds = new int[stackTraces.length];
+        for (int i = 0; i < stackTraces.length; i++) {
+            stackTraces[i] = StackTraceUtil.newDummyStackTrace("", "C", "m" + i);
+            stackTraceIds[i] = pool.idOf(stackTraces[i]);
+        }
+
+        Random random = new Random(0);
+        int count = 10000;
+        long[] times = new long[count];
+        long[] tasks = new long[count];
+        int[] stacks = new int[count];
+        long[] values = new long[count];
+        SampleIndex.Builder builder = new SampleIndex.Builder();
+        for (int i = 0; i < count; i++) {
+            // not in the order of time
+            times[i] = 1000 + random.nextInt(100000);
+            tasks[i] = random.nextInt(7);
+            stacks[i] = random.nextInt(stackTraces.length);
+            values[i] = 1 + random.nextInt(10);
+            builder.add(times[i], tasks[i], stackTraceIds[stacks[i]], values[i]);
+        }
+        SampleIndex index = builder.build(pool);
+
+        for (int w = 0; w < 200; w++) {
+            long start = random.nextInt(110000);
+            long end = start + random.nextInt(w < 100 ? 1000 : 110000);
+            Map<Long, Map<StackTrace, Long>> expected = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                if (times[i] >= start && times[i] < end) {
+                    expected.computeIfAbsent(tasks[i], k -> new HashMap<>())
+                            .merge(StackTraceUtil.build(stackTraces[stacks[i]], symbols), values[i], Long::sum);
+                }
+            }
+            Assertions.assertEquals(expected, index.aggregate(start, end));
+        }
+
+        long total = 0;
+        for (long task = 0; task < 7; task++) {
+            total += index.valueOf(task);
+        }
+        long expectedTotal = 0;
+        for (long value : values) {
+            expectedTotal += value;
+        }
+        Assertions.assertEquals(expectedTotal, total);
+        Assertions.assertTrue(new SampleIndex.Builder().build(pool).aggregate(0, Long.MAX_VALUE).isEmpty());
+    }
+}
@@ -0,0 +1,45 @@
+/********************************************************************************
+ * Copyright (c) 2024 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.jifa.jfr.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class TestIntLongMap {
+    @Test
+    public void testAdd() {
+        IntLongMap map = new IntLongMap();
+        Map<Integer, Long> expected = new HashMap<>();
+        Random random = new Random(0);
+        for (int i = 0; i < 100000; i++) {
+            int key = random.nextInt(5000);
+            long delta = random.nextInt(100);
+            map.add(key, delta);
+            expected.merge(key, delta, Long::sum);
+        }
+
+        Assertions.assertEquals(expected.size(), map.size());
+        for (Map.Entry<Integer, Long> entry : expected.entrySet()) {
+            Assertions.assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        Assertions.assertEquals(0, map.get(5000));
+
+        Map<Integer, Long> visited = new HashMap<>();
+        map.forEach(visited::put);
+        Assertions.assertEquals(expected, visited);
+    }
+}
@@ -12,16 +12,14 @@
  ********************************************************************************/
 package org.eclipse.jifa.analysis;
 
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.benmanes.caffeine.cache.RemovalListener;
-import com.github.benmanes.caffeine.cache.Scheduler;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.eclipse.jifa.analysis.annotation.ApiMeta;
 import org.eclipse.jifa.analysis.annotation.ApiParameterMeta;
 import org.eclipse.jifa.analysis.annotation.Exclude;
+import org.eclipse.jifa.analysis.cache.CacheStatistics;
+import org.eclipse.jifa.analysis.cache.ProxyBuilder;
 import org.eclipse.jifa.analysis.listener.DefaultProgressListener;
 import org.eclipse.jifa.analysis.listener.ProgressListener;
 import org.eclipse.jifa.analysis.support.MethodNameConverter;
@@ -40,17 +38,20 @@ import java.lang.reflect.Parameter;
 import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
 
 import static org.eclipse.jifa.analysis.enums.AnalysisErrorCode.FILE_NOT_FOUND;
 import static org.eclipse.jifa.analysis.listener.ProgressListener.NoOpProgressListener;
@@ -58,19 +59,28 @@ import static org.eclipse.jifa.analysis.listener.ProgressListener.NoOpProgressLi
 @Slf4j
 public abstract class AbstractApiExecutor<Analyzer> implements ApiExecutor {
 
+    private static final int MAX_ACQUIRE_ATTEMPTS = 3;
+
     private Set<Api> apis;
 
     private final Map<String, Method> apiMethodMap = new HashMap<>();
 
     private final Set<String> predefinedApiNames = new HashSet<>();
 
+    // the indexes of the comparison target parameters of the api methods that have any
+    private final Map<Method, int[]> comparisonTargetIndexes = new HashMap<>();
+
     private final Map<ExecutionContext, CompletableFuture<?>> activeContext = new ConcurrentHashMap<>();
 
     private final Map<Path, CompletableFuture<Analyzer>> buildingAnalyzer = new ConcurrentHashMap<>();
 
     private final Map<Path, ProgressListener> buildingAnalyzerListeners = new ConcurrentHashMap<>();
 
-    private final Cache<Path, Analyzer> cachedAnalyzer;
+    // the targets whose analyses are canceled, until they are analyzed or cleaned again
+    private final Set<Path> canceledTargets = ConcurrentHashMap.newKeySet();
+
+    // the targets to be analyzed again once their canceled builds exit
+    private final Set<Path> pendingTargets = ConcurrentHashMap.newKeySet();
 
     private final java.util.concurrent.Executor executor;
 
@@ -78,13 +88,6 @@ public abstract class AbstractApiExecutor<Analyzer> implements ApiExecutor {
         loadApi();
 
         executor = ExecutorFactory.newExecutor(this.getClass().getSimpleName() + " Executor");
-
-        cachedAnalyzer = Caffeine.newBuilder()
-                                 .scheduler(Scheduler.systemScheduler())
-                                 .softValues()
-                                 .expireAfterAccess(getCacheDuration(), TimeUnit.MINUTES)
-                                 .removalListener((RemovalListener<Object, Analyzer>) (key, analyzer, cause) -> cachedAnalyzerRemoved(analyzer))
-                                 .build();
     }
 
     @Override
@@ -102,24 +105,84 @@ public abstract class AbstractApiExecutor<Analyzer> implements ApiExecutor {
         }
 
         return activeContext.computeIfAbsent(context, ignored -> {
-            boolean isPredefinedApi = predefinedApiNames.contains(context.api());
-            CompletableFuture<?> receiver = isPredefinedApi
-                    ? CompletableFuture.completedFuture(this)
-                    : buildAnalyzer(context.target(), Collections.emptyMap());
-            return receiver.thenApplyAsync(r -> {
+            if (predefinedApiNames.contains(context.api())) {
+                return CompletableFuture.completedFuture(this).thenApplyAsync(r -> {
+                    try {
+                        return invoke(method, r, context);
+                    } finally {
+                        activeContext.remove(context);
+                    }
+                }, executor);
+            }
+            // the analyzers of the target and the comparison targets are pinned to prevent them from being evicted
+            // while serving the request, and the invocation is scheduled once all of them are acquired, so no worker
+            // waits for a build
+            List<Path> targets = targetsOf(method, context);
+            List<CompletableFuture<Analyzer>> analyzers = new ArrayList<>(targets.size());
+            for (Path target : targets) {
+                analyzers.add(acquireAnalyzer(target, MAX_ACQUIRE_ATTEMPTS));
+            }
+            CompletableFuture<Analyzer> receiver = analyzers.size() == 1
+                                                   ? analyzers.get(0)
+                                                   : CompletableFuture.allOf(analyzers.toArray(new CompletableFuture[0]))
+                                                                      .thenApply(v -> analyzers.get(0).join());
+            // whoever claims the invocation first releases the pins, the invocation or its cancellation
+            AtomicBoolean claimed = new AtomicBoolean(false);
+            CompletableFuture<?> result = receiver.thenApplyAsync(r -> {
+                if (!claimed.compareAndSet(false, true)) {
+                    throw new CancellationException("Api invocation is canceled");
+                }
                 try {
-                    return checkApiReturnValue(method.invoke(r, context.arguments()));
-                } catch (RuntimeException re) {
-                    throw re;
-                } catch (Throwable t) {
-                    throw new CompletionException(t);
+                    return invoke(method, r, context);
                 } finally {
+                    release(targets, analyzers);
                     activeContext.remove(context);
                 }
             }, executor);
+            result.whenComplete((r, t) -> {
+                if (claimed.compareAndSet(false, true)) {
+                    // not invoked, each pin is taken once its analyzer is acquired
+                    release(targets, analyzers);
+                }
+            });
+            return result;
         });
     }
 
+    /**
+     * @return the target of the context followed by the comparison targets of the api
+     */
+    private List<Path> targetsOf(Method method, ExecutionContext context) {
+        List<Path> targets = new ArrayList<>();
+        targets.add(context.target());
+        int[] indexes = comparisonTargetIndexes.get(method);
+        if (indexes != null) {
+            for (int index : indexes) {
+                Path other = (Path) context.arguments()[index];
+                checkExists(other);
+                targets.add(other);
+            }
+        }
+        return targets;
+    }
+
+    private void release(List<Path> targets, List<CompletableFuture<Analyzer>> analyzers) {
+        for (int i = 0; i < targets.size(); i++) {
+            Path target = targets.get(i);
+            analyzers.get(i).thenAccept(analyzer -> AnalyzerCache.release(this, target, analyzer));
+        }
+    }
+
+    private Object invoke(Method method, Object receiver, ExecutionContext context) {
+        try {
+            return checkApiReturnValue(method.invoke(receiver, context.arguments()));
+        } catch (RuntimeException re) {
+            throw re;
+        } catch (Throwable t) {
+            throw new CompletionException(t);
+        }
+    }
+
     private void loadApi() {
         this.apis = new HashSet<>();
 
@@ -129,7 +192,9 @@ public abstract class AbstractApiExecutor<Analyzer> implements ApiExecutor {
         fillPredefinedApis("progressOfAnalysis", Path.class);
         fillPredefinedApis("release", Path.class);
         fillPredefinedApis("clean", Path.class);
+        fillPredefinedApis("cancel", Path.class);
         fillPredefinedApis("errorLog", Path.class);
+        fillPredefinedApis("cacheStats", Path.class);
 
         // load apis from analyzer class
         Class<Analyzer> analyzerClass = analyzerClass();
@@ -160,6 +225,12 @@ public abstract class AbstractApiExecutor<Analyzer> implements ApiExecutor {
             }
 
             ApiParameter[] apiParameters = buildApiParameters(method);
+            int[] comparisonTargets = IntStream.range(0, apiParameters.length)
+                                               .filter(i -> apiParameters[i].comparisonTargetPath())
+                                               .toArray();
+            if (comparisonTargets.length > 0) {
+                comparisonTargetIndexes.put(method, comparisonTargets);
+            }
 
             Set<String> aliasesSet = aliases != null ? Set.of(aliases) : Collections.emptySet();
             Api api = new Api(name, aliasesSet, apiParameters);
@@ -220,36 +291,120 @@ public abstract class AbstractApiExecutor<Analyzer> implements ApiExecutor {
         return apiParameters;
     }
 
-    private CompletableFuture<Analyzer> buildAnalyzer(Path target, Map<String, String> options) {
-        Analyzer analyzer = cachedAnalyzer.getIfPresent(target);
+    /**
+     * Get the analyzer of the target and pin it, the analyzer is built if absent.
+     * <p>
+     * The analyzer is acquired again if it is removed from the cache before being pinned, which only happens if
+     * pinning is disabled or the analyzer is taken from a build that has already released its pin.
+     *
+     * @param target   the analysis target
+     * @param attempts the number of attempts to acquire the analyzer
+     * @return the analyzer
+     */
+    private CompletableFuture<Analyzer> acquireAnalyzer(Path target, int attempts) {
+        Analyzer analyzer = acquireCachedAnalyzer(target);
+        if (analyzer != null) {
+            return CompletableFuture.completedFuture(analyzer);
+        }
+        // not async, so that the waiters registered before the build completes pin the analyzer before the build
+        // releases its pin
+        return buildAnalyzer(target, Collections.emptyMap(), false).thenCompose(built -> {
+            Analyzer acquired = acquireCachedAnalyzer(target);
+            if (acquired != null) {
+                return CompletableFuture.completedFuture(acquired);
+            }
+            if (attempts <= 1) {
+                return CompletableFuture.failedFuture(
+                        new IllegalStateException("The analyzer of " + target + " is removed before being used"));
+            }
+            return acquireAnalyzer(target, attempts - 1);
+        });
+    }
+
+    /**
+     * Build the analyzer if it is neither cached nor being built. A build stays registered until its task exits,
+     * even if it is canceled, so that two builds of a target never run at the same time.
+     *
+     * @param logError whether to write the error log of the target if the build fails
+     */
+    private CompletableFuture<Analyzer> buildAnalyzer(Path target, Map<String, String> options, boolean logError) {
+        Analyzer analyzer = getCachedAnalyzer(target);
 
         if (analyzer != null) {
             return CompletableFuture.completedFuture(analyzer);
         }
 
-        AtomicBoolean puttedByMe = new AtomicBoolean(false);
-        CompletableFuture<Analyzer> analyzerFuture = buildingAnalyzer.computeIfAbsent(target, ignored -> {
+        return buildingAnalyzer.computeIfAbsent(target, ignored -> {
             CompletableFuture<Analyzer> f = new CompletableFuture<>();
-            executor.execute(() -> {
-                try {
-                    Analyzer r = cachedAnalyzer.getIfPresent(target);
-                    if (r == null) {
-                        ProgressListener listener = this.buildingAnalyzerListeners.get(target);
-                        r = buildAnalyzer(target, options, listener != null ? listener : NoOpProgressListener);
-                        cachedAnalyzer.put(target, r);
-                    }
-                    f.complete(r);
-                } catch (Throwable e) {
-                    f.completeExceptionally(e);
-                }
-            });
-            puttedByMe.set(true);
+            // the builds not started by analyze, such as those of the comparison targets, are reported and
+            // canceled in the same way
+            ProgressListener listener = new DefaultProgressListener();
+            buildingAnalyzerListeners.put(target, listener);
+            canceledTargets.remove(target);
+            BuildScheduler.submit(this, target, estimateBuildMemoryCost(target), executor,
+                                  () -> runBuild(target, options, listener, logError, f));
             return f;
         });
-        if (puttedByMe.get()) {
-            analyzerFuture.whenComplete((r, t) -> buildingAnalyzer.remove(target));
+    }
+
+    private void runBuild(Path target, Map<String, String> options, ProgressListener listener, boolean logError,
+                          CompletableFuture<Analyzer> f) {
+        Analyzer analyzer = null;
+        boolean pinned = false;
+        Throwable error = null;
+        try {
+            analyzer = getCachedAnalyzer(target);
+            if (analyzer == null) {
+                listener.checkCanceled();
+                analyzer = buildAnalyzer(target, options, listener);
+                if (listener.isCanceled()) {
+                    // canceled after the analyzer has been built, free it instead of caching it
+                    cachedAnalyzerRemoved(analyzer);
+                    throw new CancellationException("Analysis is canceled");
+                }
+                // cached pinned, so that the analyzer is not evicted before the waiters pin it
+                AnalyzerCache.put(this, target, analyzer, estimateRetainedSize(target, analyzer), true);
+                pinned = true;
+            }
+        } catch (Throwable t) {
+            error = t;
+            if (listener.isCanceled()) {
+                // reported by the progress instead of the error log
+                log.info("Analysis of {} is canceled", target);
+            } else if (logError) {
+                writeErrorLog(target, listener, t);
+            }
+        } finally {
+            // unregistered before the waiters are notified, so that they can build the target again at once
+            buildingAnalyzerListeners.remove(target, listener);
+            buildingAnalyzer.remove(target, f);
+        }
+
+        if (error != null) {
+            f.completeExceptionally(error);
+            return;
+        }
+        try {
+            f.complete(analyzer);
+        } finally {
+            if (pinned) {
+                AnalyzerCache.release(this, target, analyzer);
+            }
+        }
+    }
+
+    private void writeErrorLog(Path target, ProgressListener listener, Throwable throwable) {
+        try {
+            log.error("Error occurred while building Analyzer: {}", throwable.getMessage());
+
+            File log = errorLogFile(target);
+            FileUtils.writeStringToFile(log, listener.log(), StandardCharsets.UTF_8, false);
+
+            StringWriter sw = new StringWriter();
+            throwable.printStackTrace(new PrintWriter(sw));
+            FileUtils.writeStringToFile(log, sw.toString(), StandardCharsets.UTF_8, true);
+        } catch (Throwable ignored) {
         }
-        return analyzerFuture;
     }
 
     protected MethodNameConverter methodNameConverter() {
@@ -261,6 +416,44 @@ public abstract class AbstractApiExecutor<Analyzer> implements ApiExecutor {
     protected void cachedAnalyzerRemoved(Analyzer analyzer) {
     }
 
+    /**
+     * @return the factor applied to the size of the target file to estimate the memory cost of building an analyzer
+     */
+    protected double buildMemoryCostFactor() {
+        return 1.0;
+    }
+
+    private long estimateBuildMemoryCost(Path target) {
+        return (long) (target.toFile().length() * buildMemoryCostFactor());
+    }
+
+    /**
+     * Estimate the retained size of the analyzer, which is used to keep the cached analyzers
+     * within the memory budget of {@link AnalyzerCache}.
+     *
+     * @param target   the analysis target
+     * @param analyzer the analyzer
+     * @return the estimated retained size in bytes, the size of the target file by default
+     */
+    protected long estimateRetainedSize(Path target, Analyzer analyzer) {
+        return target.toFile().length();
+    }
+
+    @SuppressWarnings("unchecked")
+    final void analyzerRemoved(Object analyzer) {
+        cachedAnalyzerRemoved((Analyzer) analyzer);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Analyzer getCachedAnalyzer(Path target) {
+        return (Analyzer) AnalyzerCache.get(this, target);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Analyzer acquireCachedAnalyzer(Path target) {
+        return (Analyzer) AnalyzerCache.acquire(this, target);
+    }
+
     private Object checkApiReturnValue(Object rv) {
         if (rv instanceof Future<?>) {
             throw new IllegalStateException("Analysis api must not return a Future");
@@ -280,53 +473,63 @@ public abstract class AbstractApiExecutor<Analyzer> implements ApiExecutor {
 
     public final void analyze(@ApiParameterMeta(targetPath = true) Path target,
                               @ApiParameterMeta(required = false) Map<String, String> options) {
-        if (cachedAnalyzer.getIfPresent(target) != null) {
+        if (getCachedAnalyzer(target) != null) {
             return;
         }
 
         checkExists(target);
 
-        ProgressListener progressListener = new DefaultProgressListener();
-
-        boolean puttedByMe = buildingAnalyzerListeners.putIfAbsent(target, progressListener) == null;
-
-        if (puttedByMe) {
-            CompletableFuture<Analyzer> future = buildAnalyzer(target, options);
-            future.whenComplete((analyzer, throwable) -> {
-                try {
-                    if (throwable != null) {
-                        try {
-                            log.error("Error occurred while building Analyzer: {}", throwable.getMessage());
-
-                            File log = errorLogFile(target);
-                            FileUtils.writeStringToFile(log, progressListener.log(), StandardCharsets.UTF_8, false);
-
-                            StringWriter sw = new StringWriter();
-                            throwable.printStackTrace(new PrintWriter(sw));
-                            FileUtils.writeStringToFile(log, sw.toString(), StandardCharsets.UTF_8, true);
-                        } catch (Throwable ignored) {
+        CompletableFuture<Analyzer> building = buildingAnalyzer.get(target);
+        if (building != null) {
+            if (canceledTargets.remove(target) && pendingTargets.add(target)) {
+                // the canceled build has not exited yet, analyze again once it exits
+                building.whenComplete((analyzer, throwable) -> {
+                    try {
+                        if (!canceledTargets.contains(target)) {
+                            analyze(target, options);
                         }
+                    } finally {
+                        pendingTargets.remove(target);
                     }
-                } finally {
-                    buildingAnalyzerListeners.remove(target);
-                }
-            });
+                });
+            }
+            return;
         }
+
+        buildAnalyzer(target, options, true);
     }
 
     public final Progress progressOfAnalysis(@ApiParameterMeta(targetPath = true) Path target) throws IOException {
-        if (cachedAnalyzer.getIfPresent(target) != null) {
+        if (getCachedAnalyzer(target) != null) {
             Progress progress = new Progress();
             progress.setPercent(1);
             progress.setState(Progress.State.SUCCESS);
             return progress;
         }
+        // a canceled build may still be running until its next check of the cancellation
+        if (canceledTargets.contains(target)) {
+            Progress progress = new Progress();
+            progress.setState(Progress.State.CANCELED);
+            progress.setMessage("Analysis is canceled");
+            return progress;
+        }
         ProgressListener listener = this.buildingAnalyzerListeners.get(target);
+        if (listener == null && pendingTargets.contains(target)) {
+            Progress progress = new Progress();
+            progress.setState(Progress.State.IN_PROGRESS);
+            return progress;
+        }
         if (listener != null) {
             Progress progress = new Progress();
             progress.setState(Progress.State.IN_PROGRESS);
-            progress.setMessage(listener.log());
-            progress.setPercent(listener.percent());
+            int queuePosition = BuildScheduler.positionOf(this, target);
+            if (queuePosition > 0) {
+                progress.setQueuePosition(queuePosition);
+                progress.setMessage("Waiting for other analyses to complete, position in queue: " + queuePosition);
+            } else {
+                progress.setMessage(listener.log());
+                progress.setPercent(listener.percent());
+            }
             return progress;
         }
         checkExists(target);
@@ -345,6 +548,7 @@ public abstract class AbstractApiExecutor<Analyzer> implements ApiExecutor {
 
     public void clean(@ApiParameterMeta(targetPath = true) Path target) {
         cleanAndDisposeAnalyzerCache(target);
+        canceledTargets.remove(target);
         File errorLog = errorLogFile(target);
         if (errorLog.exists()) {
             if (!errorLog.delete()) {
@@ -353,20 +557,82 @@ public abstract class AbstractApiExecutor<Analyzer> implements ApiExecutor {
         }
     }
 
+    /**
+     * Cancel the building of the analyzer and the pending api invocations of the target.
+     * The partially built analyzer is discarded, and the analysis is reported as canceled by
+     * {@link #progressOfAnalysis} at once, though a running build only exits at its next check of the cancellation.
+     * An analysis requested before that starts once the canceled build exits.
+     * <p>
+     * The api invocations that are already running are not interrupted, since the api methods of the analyzers
+     * have no progress listener to check the cancellation, they just complete with a cancellation exception.
+     */
+    public void cancel(@ApiParameterMeta(targetPath = true) Path target) {
+        ProgressListener listener = buildingAnalyzerListeners.get(target);
+        if (listener != null) {
+            listener.cancel();
+            canceledTargets.add(target);
+        }
+
+        if (BuildScheduler.cancel(this, target)) {
+            log.info("Canceled the queued build of {}", target);
+            // the queued build never runs, a running build is unregistered by itself once it exits
+            if (listener != null) {
+                buildingAnalyzerListeners.remove(target, listener);
+            }
+            CompletableFuture<Analyzer> future = buildingAnalyzer.remove(target);
+            if (future != null) {
+                future.completeExceptionally(new CancellationException("Analysis is canceled"));
+            }
+        }
+
+        activeContext.forEach((context, f) -> {
+            if (target.equals(context.target()) && !predefinedApiNames.contains(context.api())) {
+                // a canceled invocation that has not started never removes itself
+                activeContext.remove(context, f);
+                f.cancel(false);
+            }
+        });
+    }
+
     public String errorLog(@ApiParameterMeta(targetPath = true) Path target) throws IOException {
         return FileUtils.readFileToString(errorLogFile(target), StandardCharsets.UTF_8);
     }
 
+    /**
+     * @return the statistics of the result caches of the analyzer keyed by the cacheable method,
+     * empty if the analyzer is not built or has no cacheable method
+     */
+    public Map<String, CacheStatistics> cacheStats(@ApiParameterMeta(targetPath = true) Path target) {
+        Analyzer analyzer = getCachedAnalyzer(target);
+        return analyzer != null ? ProxyBuilder.statistics(analyzer) : Collections.emptyMap();
+    }
+
     protected File errorLogFile(Path path) {
         return path.resolveSibling(path.getFileName() + "-error.log").toFile();
     }
 
+    /**
+     * Get the analyzer of a comparison target of the api being invoked. The analyzer is acquired and pinned before
+     * the invocation, it is built with the default options if absent.
+     *
+     * @param target the comparison target
+     * @return the analyzer of the target
+     * @throws IllegalStateException if the target is not a comparison target of the api being invoked
+     */
+    protected final Analyzer analyzerOf(Path target) {
+        Analyzer analyzer = getCachedAnalyzer(target);
+        if (analyzer == null) {
+            throw new IllegalStateException("The analyzer of " + target + " is not acquired");
+        }
+        return analyzer;
+    }
+
     protected final boolean isActive(Path target) {
-        return cachedAnalyzer.getIfPresent(target) != null || buildingAnalyzer.containsKey(target);
+        return getCachedAnalyzer(target) != null || buildingAnalyzer.containsKey(target);
     }
 
     /**
-     * @return cache duration in minutes
+     * @return duration in minutes after which an idle analyzer is removed from the cache
      */
     protected int getCacheDuration() {
         return 8;
@@ -380,8 +646,7 @@ public abstract class AbstractApiExecutor<Analyzer> implements ApiExecutor {
 
     private void cleanAndDisposeAnalyzerCache(Path target) {
         // Dispose snapshot synchronized to prevent from some problem caused by data inconsistency.
-        Analyzer analyzer = cachedAnalyzer.getIfPresent(target);
-        cachedAnalyzer.invalidate(target);
+        Analyzer analyzer = (Analyzer) AnalyzerCache.remove(this, target);
         if (analyzer != null) {
             cachedAnalyzerRemoved(analyzer);
         }
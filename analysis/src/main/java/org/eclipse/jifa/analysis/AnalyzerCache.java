@@ -0,0 +1,239 @@
+/********************************************************************************
+ * Copyright (c) 2024 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.jifa.analysis;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The analyzer cache shared by all api executors.
+ * <p>
+ * The cache is a Caffeine cache bounded by a global memory budget. Each analyzer is weighed by the retained size
+ * estimated by its executor, and Caffeine evicts analyzers by its size-based policy when the budget is exceeded.
+ * Idle analyzers expire after the cache duration of their executors.
+ * <p>
+ * Analyzers that are serving requests can optionally be pinned, pinned analyzers are neither evicted nor expired.
+ * A pinned entry weighs nothing and never expires, so the expiration is defined by an {@link Expiry} that is
+ * equivalent to expireAfterAccess for the unpinned entries, whose duration also varies by executor.
+ */
+@Slf4j
+public final class AnalyzerCache {
+
+    private static final double DEFAULT_MEMORY_BUDGET_RATIO = 0.6;
+
+    // the weights are in kilobytes, since the weight of an entry is an int
+    private static final int WEIGHT_SHIFT = 10;
+
+    private static volatile Cache<Key, Entry> CACHE;
+
+    private static long MEMORY_BUDGET;
+
+    private static boolean PIN_ACTIVE_ANALYZERS;
+
+    private static volatile boolean initialized;
+
+    private AnalyzerCache() {
+    }
+
+    /**
+     * set the memory budget of the cache
+     *
+     * @param memoryBudget       memory budget in bytes, a non-positive value means using the default budget
+     *                           which is 60% of the max heap size
+     * @param pinActiveAnalyzers whether to pin analyzers while they are in use
+     */
+    public static synchronized void initialize(long memoryBudget, boolean pinActiveAnalyzers) {
+        if (initialized) {
+            throw new IllegalStateException("AnalyzerCache is already configured");
+        }
+
+        doInitialize(memoryBudget, pinActiveAnalyzers);
+    }
+
+    /**
+     * @return the memory budget in bytes
+     */
+    public static long memoryBudget() {
+        ensureInitialized();
+        return MEMORY_BUDGET;
+    }
+
+    /**
+     * @return the estimated retained size in bytes of all cached analyzers
+     */
+    public static long retainedSize() {
+        ensureInitialized();
+        return CACHE.asMap().values().stream().mapToLong(Entry::retainedSize).sum();
+    }
+
+    static Object get(AbstractApiExecutor<?> executor, Path target) {
+        ensureInitialized();
+        Entry entry = CACHE.getIfPresent(new Key(executor, target));
+        return entry != null ? entry.analyzer() : null;
+    }
+
+    /**
+     * Get the analyzer and pin it in one atomic operation, so that it cannot be evicted between being taken from
+     * the cache and being used. The analyzer is not pinned if pinning is disabled.
+     *
+     * @return the analyzer, null if absent
+     */
+    static Object acquire(AbstractApiExecutor<?> executor, Path target) {
+        ensureInitialized();
+        Key key = new Key(executor, target);
+        Entry entry = PIN_ACTIVE_ANALYZERS
+                      ? CACHE.asMap().computeIfPresent(key, (k, e) -> e.pin())
+                      : CACHE.getIfPresent(key);
+        return entry != null ? entry.analyzer() : null;
+    }
+
+    /**
+     * Put the analyzer into the cache.
+     *
+     * @param pinned whether to put the analyzer pinned, so that it cannot be evicted before the first user pins it
+     *               as well, the pin should be released by {@link #release}
+     */
+    static void put(AbstractApiExecutor<?> executor, Path target, Object analyzer, long estimatedRetainedSize,
+                    boolean pinned) {
+        ensureInitialized();
+        log.debug("Caching analyzer of {}, estimated retained size: {} bytes", target, estimatedRetainedSize);
+        Key key = new Key(executor, target);
+        Entry entry = new Entry(analyzer, Math.max(estimatedRetainedSize, 0), pinned && PIN_ACTIVE_ANALYZERS ? 1 : 0);
+        Entry old = CACHE.asMap().put(key, entry);
+        if (old != null && old.analyzer() != analyzer) {
+            notifyRemoved(key, old);
+        }
+    }
+
+    static Object remove(AbstractApiExecutor<?> executor, Path target) {
+        ensureInitialized();
+        Entry entry = CACHE.asMap().remove(new Key(executor, target));
+        return entry != null ? entry.analyzer() : null;
+    }
+
+    /**
+     * Release a pin of the analyzer acquired by {@link #acquire} or {@link #put}, the pin is ignored if the cached
+     * analyzer of the target has been replaced or removed.
+     */
+    static void release(AbstractApiExecutor<?> executor, Path target, Object analyzer) {
+        ensureInitialized();
+        if (!PIN_ACTIVE_ANALYZERS) {
+            return;
+        }
+        CACHE.asMap().computeIfPresent(new Key(executor, target),
+                                       (k, e) -> e.analyzer() == analyzer && e.pins() > 0 ? e.unpin() : e);
+    }
+
+    /**
+     * Perform the pending maintenance, such as the evictions.
+     */
+    static void cleanUp() {
+        ensureInitialized();
+        CACHE.cleanUp();
+    }
+
+    private static void notifyRemoved(Key key, Entry entry) {
+        try {
+            key.executor().analyzerRemoved(entry.analyzer());
+        } catch (Throwable t) {
+            log.error("Error occurred while removing analyzer of {}", key.target(), t);
+        }
+    }
+
+    private static void ensureInitialized() {
+        if (!initialized) {
+            doInitialize(0, true);
+        }
+    }
+
+    private static synchronized void doInitialize(long memoryBudget, boolean pinActiveAnalyzers) {
+        if (initialized) {
+            return;
+        }
+
+        MEMORY_BUDGET = memoryBudget > 0
+                        ? memoryBudget
+                        : (long) (Runtime.getRuntime().maxMemory() * DEFAULT_MEMORY_BUDGET_RATIO);
+        PIN_ACTIVE_ANALYZERS = pinActiveAnalyzers;
+        long maximumWeight = Math.max(MEMORY_BUDGET >>> WEIGHT_SHIFT, 1);
+        CACHE = Caffeine.newBuilder()
+                        .scheduler(Scheduler.systemScheduler())
+                        // run the maintenance and the removal listener in the calling thread
+                        .executor(Runnable::run)
+                        .maximumWeight(maximumWeight)
+                        // Caffeine evicts an entry heavier than the maximum weight at once, an analyzer that
+                        // alone exceeds the budget is weighed as the whole budget instead
+                        .weigher((Key key, Entry entry) -> entry.pins() > 0
+                                                           ? 0
+                                                           : (int) Math.min(entry.retainedSize() >>> WEIGHT_SHIFT,
+                                                                            Math.min(maximumWeight,
+                                                                                     Integer.MAX_VALUE)))
+                        .expireAfter(new Expiry<Key, Entry>() {
+                            @Override
+                            public long expireAfterCreate(Key key, Entry entry, long currentTime) {
+                                return durationOf(key, entry);
+                            }
+
+                            @Override
+                            public long expireAfterUpdate(Key key, Entry entry, long currentTime,
+                                                          long currentDuration) {
+                                return durationOf(key, entry);
+                            }
+
+                            @Override
+                            public long expireAfterRead(Key key, Entry entry, long currentTime,
+                                                        long currentDuration) {
+                                return durationOf(key, entry);
+                            }
+                        })
+                        .removalListener((Key key, Entry entry, RemovalCause cause) -> {
+                            // the removed and the replaced analyzers are disposed by the callers
+                            if (key != null && entry != null && cause.wasEvicted()) {
+                                log.info("Removed analyzer of {} from the cache, cause: {}", key.target(), cause);
+                                notifyRemoved(key, entry);
+                            }
+                        })
+                        .build();
+        log.info("Analyzer cache memory budget: {} MB, pin active analyzers: {}",
+                 MEMORY_BUDGET >>> 20, PIN_ACTIVE_ANALYZERS);
+        initialized = true;
+    }
+
+    private static long durationOf(Key key, Entry entry) {
+        return entry.pins() > 0 ? Long.MAX_VALUE : TimeUnit.MINUTES.toNanos(key.executor().getCacheDuration());
+    }
+
+    private record Key(AbstractApiExecutor<?> executor, Path target) {
+    }
+
+    /**
+     * The entries are immutable, a pin or an unpin replaces the entry so that Caffeine weighs it again.
+     */
+    private record Entry(Object analyzer, long retainedSize, int pins) {
+
+        Entry pin() {
+            return new Entry(analyzer, retainedSize, pins + 1);
+        }
+
+        Entry unpin() {
+            return new Entry(analyzer, retainedSize, pins - 1);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/********************************************************************************
+ * Copyright (c) 2024 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.jifa.analysis;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * The scheduler of analyzer builds shared by all api executors.
+ * <p>
+ * Each build is admitted against its estimated memory cost, builds that do not fit in the remaining memory budget
+ * are queued in FIFO order until enough running builds complete. A build is always admitted when no other build
+ * is running, so a build whose cost exceeds the whole budget runs alone.
+ * <p>
+ * Only builds go through this scheduler, queries on built analyzers are executed directly.
+ */
+@Slf4j
+public final class BuildScheduler {
+
+    private static final double DEFAULT_MEMORY_BUDGET_RATIO = 0.5;
+
+    private static final Deque<Task> QUEUE = new ArrayDeque<>();
+
+    private static long MEMORY_BUDGET;
+
+    private static long admittedCost;
+
+    private static int running;
+
+    private static volatile boolean initialized;
+
+    private BuildScheduler() {
+    }
+
+    /**
+     * set the memory budget of concurrent builds
+     *
+     * @param memoryBudget memory budget in bytes, a non-positive value means using the default budget
+     *                     which is 50% of the max heap size
+     */
+    public static synchronized void initialize(long memoryBudget) {
+        if (initialized) {
+            throw new IllegalStateException("BuildScheduler is already configured");
+        }
+
+        doInitialize(memoryBudget);
+    }
+
+    /**
+     * @return the memory budget in bytes
+     */
+    public static long memoryBudget() {
+        ensureInitialized();
+        return MEMORY_BUDGET;
+    }
+
+    /**
+     * Submit a build, it is executed by the given executor once admitted.
+     *
+     * @param owner    the api executor which owns the build
+     * @param target   the analysis target
+     * @param cost     the estimated memory cost in bytes
+     * @param executor the executor to run the build
+     * @param build    the build
+     */
+    static void submit(AbstractApiExecutor<?> owner, Path target, long cost, Executor executor, Runnable build) {
+        ensureInitialized();
+        Task task = new Task(owner, target, Math.max(cost, 0), executor, build);
+        boolean admitted;
+        synchronized (BuildScheduler.class) {
+            admitted = QUEUE.isEmpty() && canAdmit(task);
+            if (admitted) {
+                admit(task);
+            } else {
+                QUEUE.addLast(task);
+                log.info("Queued the build of {}, estimated cost: {} MB, queue length: {}",
+                         target, task.cost() >>> 20, QUEUE.size());
+            }
+        }
+        if (admitted) {
+            run(task);
+        }
+    }
+
+    /**
+     * @param owner  the api executor which owns the build
+     * @param target the analysis target
+     * @return the 1-based position of the build in the queue, or 0 if the build is not queued
+     */
+    static synchronized int positionOf(AbstractApiExecutor<?> owner, Path target) {
+        int position = 0;
+        for (Task task : QUEUE) {
+            position++;
+            if (task.owner() == owner && task.target().equals(target)) {
+                return position;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Remove the build from the queue if it has not been admitted.
+     *
+     * @param owner  the api executor which owns the build
+     * @param target the analysis target
+     * @return true if the build was queued and has been removed
+     */
+    static synchronized boolean cancel(AbstractApiExecutor<?> owner, Path target) {
+        return QUEUE.removeIf(task -> task.owner() == owner && task.target().equals(target));
+    }
+
+    private static boolean canAdmit(Task task) {
+        return running == 0 || admittedCost + task.cost() <= MEMORY_BUDGET;
+    }
+
+    private static void admit(Task task) {
+        running++;
+        admittedCost += task.cost();
+    }
+
+    private static void run(Task task) {
+        try {
+            task.executor().execute(() -> {
+                try {
+                    task.build().run();
+                } finally {
+                    complete(task);
+                }
+            });
+        } catch (Throwable t) {
+            complete(task);
+            throw t;
+        }
+    }
+
+    private static void complete(Task task) {
+        List<Task> admitted = new ArrayList<>();
+        synchronized (BuildScheduler.class) {
+            running--;
+            admittedCost -= task.cost();
+            while (!QUEUE.isEmpty() && canAdmit(QUEUE.peekFirst())) {
+                Task next = QUEUE.pollFirst();
+                admit(next);
+                admitted.add(next);
+            }
+        }
+        for (Task next : admitted) {
+            run(next);
+        }
+    }
+
+    private static void ensureInitialized() {
+        if (!initialized) {
+            doInitialize(0);
+        }
+    }
+
+    private static synchronized void doInitialize(long memoryBudget) {
+        if (initialized) {
+            return;
+        }
+
+        MEMORY_BUDGET = memoryBudget > 0
+                        ? memoryBudget
+                        : (long) (Runtime.getRuntime().maxMemory() * DEFAULT_MEMORY_BUDGET_RATIO);
+        log.info("Analyzer build memory budget: {} MB", MEMORY_BUDGET >>> 20);
+        initialized = true;
+    }
+
+    private record Task(AbstractApiExecutor<?> owner, Path target, long cost, Executor executor, Runnable build) {
+    }
+}
@@ -1,5 +1,5 @@
 /********************************************************************************
- * Copyright (c) 2020, 2023 Contributors to the Eclipse Foundation
+ * Copyright (c) 2020, 2024 Contributors to the Eclipse Foundation
  *
  * See the NOTICE file(s) distributed with this work for additional
  * information regarding copyright ownership.
@@ -28,6 +28,11 @@ public class Progress {
 
     private String message;
 
+    /**
+     * 1-based position in the build queue, 0 if the build is not queued
+     */
+    private int queuePosition;
+
     public enum State {
 
         IN_PROGRESS,
@@ -35,5 +40,7 @@ public class Progress {
         SUCCESS,
 
         FAILURE,
+
+        CANCELED,
     }
 }
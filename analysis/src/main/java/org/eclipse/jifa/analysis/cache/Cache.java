@@ -1,5 +1,5 @@
 /********************************************************************************
- * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ * Copyright (c) 2021, 2024 Contributors to the Eclipse Foundation
  *
  * See the NOTICE file(s) distributed with this work for additional
  * information regarding copyright ownership.
@@ -10,48 +10,102 @@
  *
  * SPDX-License-Identifier: EPL-2.0
  ********************************************************************************/
-
 package org.eclipse.jifa.analysis.cache;
 
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import org.eclipse.jifa.common.domain.exception.CommonException;
+import org.eclipse.jifa.common.domain.vo.PageView;
 
-import java.lang.reflect.Method;
+import java.lang.reflect.Array;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * The result cache of a cacheable method, bounded by the total weight of the results.
+ * <p>
+ * A result heavier than the maximum weight is weighed as the maximum weight, so it is still cached, alone.
+ */
 class Cache {
 
-    private final com.google.common.cache.Cache<CacheKey, Object> cache;
+    private final com.google.common.cache.Cache<CacheKey, Weighted> cache;
+
+    private final long maximumWeight;
 
-    Cache() {
+    Cache(long maximumWeight) {
+        this.maximumWeight = maximumWeight;
         cache = CacheBuilder
                 .newBuilder()
                 .softValues()
+                // a single segment so that the maximum weight is shared by all results
+                .concurrencyLevel(1)
+                .maximumWeight(maximumWeight)
+                .weigher((CacheKey key, Weighted value) -> value.weight())
                 .recordStats()
                 .expireAfterAccess(10, TimeUnit.MINUTES)
                 .build();
     }
 
+    /**
+     * @param weigher the weigher of the results that the cache does not know how to weigh, may be null
+     */
     @SuppressWarnings("unchecked")
-    <V> V load(CacheKey key, Callable<V> loader) {
+    <V> V load(CacheKey key, Callable<V> loader, Weigher weigher) {
         try {
-            return (V) cache.get(key, loader);
+            return (V) cache.get(key, () -> {
+                V value = loader.call();
+                return new Weighted(value, (int) Math.min(weigh(value, weigher), Math.min(maximumWeight,
+                                                                                           Integer.MAX_VALUE)));
+            }).value();
         } catch (ExecutionException e) {
             throw new CommonException(e);
         }
     }
 
-    static class CacheKey {
+    CacheStatistics statistics() {
+        CacheStats stats = cache.stats();
+        CacheStatistics statistics = new CacheStatistics();
+        statistics.setHitCount(stats.hitCount());
+        statistics.setMissCount(stats.missCount());
+        statistics.setHitRate(stats.hitRate());
+        statistics.setEvictionCount(stats.evictionCount());
+        statistics.setAverageLoadPenalty(stats.averageLoadPenalty());
+        statistics.setSize(cache.size());
+        return statistics;
+    }
 
-        Method method;
+    /**
+     * @return the weight of the result, which is the number of its elements if known, otherwise 1
+     */
+    static long weigh(Object value, Weigher weigher) {
+        long weight = weigher != null ? weigher.weigh(value) : 0;
+        if (weight > 0) {
+            return weight;
+        }
+        if (value instanceof Collection<?> c) {
+            weight = c.size();
+        } else if (value instanceof Map<?, ?> m) {
+            weight = m.size();
+        } else if (value instanceof PageView<?> p) {
+            weight = p.getData() != null ? p.getData().size() : 0;
+        } else if (value != null && value.getClass().isArray()) {
+            weight = Array.getLength(value);
+        }
+        return Math.max(1, weight);
+    }
+
+    private record Weighted(Object value, int weight) {
+    }
+
+    static class CacheKey {
 
         Object[] args;
 
-        CacheKey(Method method, Object[] args) {
-            this.method = method;
+        CacheKey(Object[] args) {
             this.args = args;
         }
 
@@ -62,13 +116,12 @@ class Cache {
             if (o == null || getClass() != o.getClass())
                 return false;
             CacheKey cacheKey = (CacheKey) o;
-            return method.equals(cacheKey.method) && Arrays.equals(args, cacheKey.args);
+            return Arrays.deepEquals(args, cacheKey.args);
         }
 
         @Override
         public int hashCode() {
-            int hash = method.hashCode();
-            return hash * 31 ^ Arrays.hashCode(args);
+            return Arrays.deepHashCode(args);
         }
     }
 }
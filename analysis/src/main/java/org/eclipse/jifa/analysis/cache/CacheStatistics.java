@@ -0,0 +1,42 @@
+/********************************************************************************
+ * Copyright (c) 2024 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.jifa.analysis.cache;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Statistics of the result cache of a cacheable method
+ */
+@Getter
+@Setter
+public class CacheStatistics {
+
+    private long hitCount;
+
+    private long missCount;
+
+    private double hitRate;
+
+    private long evictionCount;
+
+    /**
+     * average time in nanoseconds spent computing a result that is not cached
+     */
+    private double averageLoadPenalty;
+
+    /**
+     * number of cached results
+     */
+    private long size;
+}
@@ -1,5 +1,5 @@
 /********************************************************************************
- * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ * Copyright (c) 2021, 2024 Contributors to the Eclipse Foundation
  *
  * See the NOTICE file(s) distributed with this work for additional
  * information regarding copyright ownership.
@@ -25,4 +25,17 @@ import static java.lang.annotation.RetentionPolicy.RUNTIME;
 @Retention(value = RUNTIME)
 @Target(ElementType.METHOD)
 public @interface Cacheable {
+
+    /**
+     * @return the maximum total weight of the cached results of the annotated method, the weight of a result is
+     * the number of its elements if it is a collection, a map, an array or a page view, or the weight given by the
+     * object if it is a {@link Weigher}, otherwise 1. A result heavier than the maximum weight is cached alone.
+     */
+    long maximumWeight() default 10000;
+
+    /**
+     * @return whether the results are also persisted into the {@link ResultStore} of the object if the object is a
+     * {@link ResultStore.Owner}, so that they survive restarts
+     */
+    boolean persistent() default false;
 }
@@ -1,5 +1,5 @@
 /********************************************************************************
- * Copyright (c) 2021, 2022 Contributors to the Eclipse Foundation
+ * Copyright (c) 2021, 2024 Contributors to the Eclipse Foundation
  *
  * See the NOTICE file(s) distributed with this work for additional
  * information regarding copyright ownership.
@@ -10,7 +10,6 @@
  *
  * SPDX-License-Identifier: EPL-2.0
  ********************************************************************************/
-
 package org.eclipse.jifa.analysis.cache;
 
 import net.sf.cglib.proxy.MethodInterceptor;
@@ -18,53 +17,59 @@ import net.sf.cglib.proxy.MethodProxy;
 import org.eclipse.jifa.common.domain.exception.CommonException;
 
 import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
-import java.util.ArrayList;
-import java.util.List;
+import java.lang.reflect.Type;
 
+/**
+ * The interceptor of a single cacheable method.
+ * <p>
+ * Methods are bound to their handlers by {@link ProxyBuilder} when the proxy class is generated,
+ * so no lookup is needed on invocation.
+ */
 class Handler implements MethodInterceptor {
 
+    private final String name;
+
     private final Cache cache;
 
-    private final List<Method> cacheableMethods;
+    private final Type resultType;
 
-    public Handler(Class<?> target) {
-        cache = new Cache();
-        cacheableMethods = new ArrayList<>();
+    private final boolean persistent;
 
-        try {
-            Method[] methods = target.getDeclaredMethods();
-            for (Method method : methods) {
-                if (method.getAnnotation(Cacheable.class) != null) {
-                    method.setAccessible(true);
-                    int mod = method.getModifiers();
-                    if (Modifier.isAbstract(mod) || Modifier.isFinal(mod) ||
-                        !(Modifier.isPublic(mod) || Modifier.isProtected(mod))) {
-                        throw new CommonException("Illegal method modifier: " + method);
-                    }
-                    cacheableMethods.add(method);
-                }
-            }
-        } catch (Exception exception) {
-            throw new CommonException(exception);
-        }
+    Handler(Method method) {
+        name = ProxyBuilder.nameOf(method);
+        Cacheable cacheable = method.getAnnotation(Cacheable.class);
+        cache = new Cache(cacheable.maximumWeight());
+        resultType = method.getGenericReturnType();
+        persistent = cacheable.persistent();
+    }
+
+    String name() {
+        return name;
+    }
+
+    CacheStatistics statistics() {
+        return cache.statistics();
     }
 
     @Override
-    public Object intercept(Object obj, Method method, Object[] args, MethodProxy proxy) throws Throwable {
-        if (cacheableMethods.contains(method)) {
-            return cache.load(new Cache.CacheKey(method, args),
-                              () -> {
-                                  try {
-                                      return proxy.invokeSuper(obj, args);
-                                  } catch (Throwable throwable) {
-                                      if (throwable instanceof RuntimeException) {
-                                          throw (RuntimeException) throwable;
-                                      }
-                                      throw new CommonException(throwable);
-                                  }
-                              });
+    public Object intercept(Object obj, Method method, Object[] args, MethodProxy proxy) {
+        return cache.load(new Cache.CacheKey(args), () -> {
+            ResultStore store = persistent && obj instanceof ResultStore.Owner owner ? owner.resultStore() : null;
+            if (store != null) {
+                return store.load(name, args, resultType, () -> invokeSuper(obj, args, proxy));
+            }
+            return invokeSuper(obj, args, proxy);
+        }, obj instanceof Weigher weigher ? weigher : null);
+    }
+
+    private static Object invokeSuper(Object obj, Object[] args, MethodProxy proxy) {
+        try {
+            return proxy.invokeSuper(obj, args);
+        } catch (Throwable throwable) {
+            if (throwable instanceof RuntimeException) {
+                throw (RuntimeException) throwable;
+            }
+            throw new CommonException(throwable);
         }
-        return proxy.invokeSuper(obj, args);
     }
 }
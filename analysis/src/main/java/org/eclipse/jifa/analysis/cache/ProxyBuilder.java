@@ -1,5 +1,5 @@
 /********************************************************************************
- * Copyright (c) 2021, 2022 Contributors to the Eclipse Foundation
+ * Copyright (c) 2021, 2024 Contributors to the Eclipse Foundation
  *
  * See the NOTICE file(s) distributed with this work for additional
  * information regarding copyright ownership.
@@ -10,23 +10,81 @@
  *
  * SPDX-License-Identifier: EPL-2.0
  ********************************************************************************/
-
 package org.eclipse.jifa.analysis.cache;
 
+import net.sf.cglib.proxy.Callback;
+import net.sf.cglib.proxy.CallbackFilter;
 import net.sf.cglib.proxy.Enhancer;
+import net.sf.cglib.proxy.Factory;
+import net.sf.cglib.proxy.NoOp;
+import org.eclipse.jifa.common.domain.exception.CommonException;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Proxy builder for building a proxy for a class that has cacheable methods.
+ * <p>
+ * Each cacheable method is bound to its own {@link Handler} by a {@link CallbackFilter} when the proxy class is
+ * generated, other methods are not intercepted at all.
  */
 public class ProxyBuilder {
 
     private static <T> Enhancer buildEnhancer(Class<T> clazz) {
+        List<Method> cacheableMethods = cacheableMethods(clazz);
+        Callback[] callbacks = new Callback[cacheableMethods.size() + 1];
+        callbacks[0] = NoOp.INSTANCE;
+        for (int i = 0; i < cacheableMethods.size(); i++) {
+            callbacks[i + 1] = new Handler(cacheableMethods.get(i));
+        }
+
         Enhancer e = new Enhancer();
         e.setSuperclass(clazz);
-        e.setCallback(new Handler(clazz));
+        e.setCallbackFilter(new Filter(clazz, cacheableMethods));
+        e.setCallbacks(callbacks);
         return e;
     }
 
+    private static List<Method> cacheableMethods(Class<?> clazz) {
+        List<Method> cacheableMethods = new ArrayList<>();
+        try {
+            Method[] methods = clazz.getDeclaredMethods();
+            for (Method method : methods) {
+                if (method.getAnnotation(Cacheable.class) != null) {
+                    method.setAccessible(true);
+                    int mod = method.getModifiers();
+                    if (Modifier.isAbstract(mod) || Modifier.isFinal(mod) ||
+                        !(Modifier.isPublic(mod) || Modifier.isProtected(mod))) {
+                        throw new CommonException("Illegal method modifier: " + method);
+                    }
+                    cacheableMethods.add(method);
+                }
+            }
+        } catch (CommonException ce) {
+            throw ce;
+        } catch (Exception exception) {
+            throw new CommonException(exception);
+        }
+        // the generated proxy class is shared by all the proxies of the class, so the order must be stable
+        cacheableMethods.sort(Comparator.comparing(Method::toGenericString));
+        return cacheableMethods;
+    }
+
+    static String nameOf(Method method) {
+        return method.getName() + Arrays.stream(method.getParameterTypes())
+                                        .map(Class::getSimpleName)
+                                        .collect(Collectors.joining(",", "(", ")"));
+    }
+
     /**
      * @param clazz the class
      * @param <T>   the type
@@ -48,4 +106,56 @@ public class ProxyBuilder {
     public static <T> T build(Class<T> clazz, Class<?>[] argTypes, Object[] args) {
         return (T) buildEnhancer(clazz).create(argTypes, args);
     }
+
+    /**
+     * @param object the object
+     * @return the cache statistics of each cacheable method keyed by the method signature,
+     * or an empty map if the object is not a proxy built by this builder
+     */
+    public static Map<String, CacheStatistics> statistics(Object object) {
+        if (!(object instanceof Factory factory)) {
+            return Collections.emptyMap();
+        }
+        Map<String, CacheStatistics> statistics = new LinkedHashMap<>();
+        for (Callback callback : factory.getCallbacks()) {
+            if (callback instanceof Handler handler) {
+                statistics.put(handler.name(), handler.statistics());
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * Maps each cacheable method to the index of its handler, 0 is the index of {@link NoOp}.
+     * <p>
+     * cglib reuses a generated class only if the filters are equal, so the equality is based on the class.
+     */
+    private static class Filter implements CallbackFilter {
+
+        private final Class<?> clazz;
+
+        private final Map<Method, Integer> indexes = new HashMap<>();
+
+        Filter(Class<?> clazz, List<Method> cacheableMethods) {
+            this.clazz = clazz;
+            for (int i = 0; i < cacheableMethods.size(); i++) {
+                indexes.put(cacheableMethods.get(i), i + 1);
+            }
+        }
+
+        @Override
+        public int accept(Method method) {
+            return indexes.getOrDefault(method, 0);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Filter f && clazz == f.clazz;
+        }
+
+        @Override
+        public int hashCode() {
+            return clazz.hashCode();
+        }
+    }
 }
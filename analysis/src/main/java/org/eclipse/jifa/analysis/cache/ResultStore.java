@@ -0,0 +1,354 @@
+/********************************************************************************
+ * Copyright (c) 2024 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.jifa.analysis.cache;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * A persistent store of the results of expensive queries, kept beside the analysis target so that the results
+ * survive restarts.
+ * <p>
+ * The store is an append-only file that begins with a header recording the format version, the version of the
+ * results given by the owner, and the length and the last modified time of the source file the results are computed
+ * from. The store is discarded if any of them does not match when opened. Each record consists of the key, the
+ * result serialized as json and the checksum of the result.
+ * <p>
+ * The records found when the store is opened are read from a memory mapping of the file, the records appended later
+ * are read from the channel, so the file is never mapped again while it grows. The size of the file is limited, no
+ * more result is stored once the limit is reached. The store is recreated by the next analysis of the source.
+ * <p>
+ * Errors of the store never fail the queries, the results are computed as if there were no store.
+ */
+@Slf4j
+public class ResultStore implements Closeable {
+
+    /**
+     * The object that owns a result store, the results of its methods annotated with
+     * {@link Cacheable#persistent()} are persisted into the store.
+     */
+    public interface Owner {
+
+        /**
+         * @return the result store, or null if the results should not be persisted
+         */
+        ResultStore resultStore();
+    }
+
+    /**
+     * The suffix of the file name of a result store
+     */
+    public static final String FILE_NAME_SUFFIX = "results.store";
+
+    private static final long MAGIC = 0x4A49464152455354L;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int HEADER_SIZE = Long.BYTES + Integer.BYTES * 2 + Long.BYTES * 2;
+
+    /**
+     * The default maximum size of the file of a store
+     */
+    public static final long DEFAULT_MAX_SIZE = 256L << 20;
+
+    // the results are read and written as they are, unlike the gson used by the apis
+    private static final Gson GSON = new GsonBuilder().serializeSpecialFloatingPointValues().create();
+
+    private final Path file;
+
+    private final FileChannel channel;
+
+    private final long maxSize;
+
+    // key -> offset of the value length
+    private final Map<String, Long> offsets = new HashMap<>();
+
+    // the records existing when the store is opened
+    private MappedByteBuffer mapped;
+
+    // the end of the records that are read from the mapping
+    private long mappedSize;
+
+    private long size;
+
+    private boolean broken;
+
+    private boolean full;
+
+    private ResultStore(Path file, FileChannel channel, long maxSize) {
+        this.file = file;
+        this.channel = channel;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Open the store, the stored results are discarded if the store was created by another format, by another
+     * version of the results, or for another source file.
+     *
+     * @param file    the file of the store
+     * @param source  the file that the results are computed from
+     * @param version the version of the results, should be increased if the types of the results change
+     * @return the store, or null if the store cannot be opened
+     */
+    public static ResultStore open(Path file, Path source, int version) {
+        return open(file, source, version, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Open the store with the given size limit.
+     *
+     * @param file    the file of the store
+     * @param source  the file that the results are computed from
+     * @param version the version of the results, should be increased if the types of the results change
+     * @param maxSize the maximum size in bytes of the file, at most 2GB
+     * @return the store, or null if the store cannot be opened
+     * @see #open(Path, Path, int)
+     */
+    public static ResultStore open(Path file, Path source, int version, long maxSize) {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                       StandardOpenOption.WRITE);
+            // a mapping is limited to 2GB
+            ResultStore store = new ResultStore(file, channel, Math.min(maxSize, Integer.MAX_VALUE));
+            store.initialize(version, Files.size(source), Files.getLastModifiedTime(source).toMillis());
+            return store;
+        } catch (Throwable t) {
+            log.warn("Failed to open result store {}: {}", file, t.getMessage());
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Get the stored result, or compute and store it if absent.
+     *
+     * @param name   the name of the query
+     * @param args   the arguments of the query
+     * @param type   the type of the result
+     * @param loader the loader to compute the result
+     * @param <V>    the type of the result
+     * @return the result
+     */
+    public <V> V load(String name, Object[] args, Type type, Supplier<V> loader) {
+        String key;
+        try {
+            key = name + GSON.toJson(normalize(args));
+        } catch (Throwable t) {
+            log.debug("Unsupported arguments of {}: {}", name, t.getMessage());
+            return loader.get();
+        }
+
+        V value = read(key, type);
+        if (value != null) {
+            return value;
+        }
+        value = loader.get();
+        if (value != null) {
+            write(key, value);
+        }
+        return value;
+    }
+
+    @Override
+    public synchronized void close() {
+        broken = true;
+        mapped = null;
+        offsets.clear();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Failed to close result store {}", file, e);
+        }
+    }
+
+    private void initialize(int version, long sourceLength, long sourceLastModified) throws IOException {
+        long fileSize = channel.size();
+        if (fileSize >= HEADER_SIZE) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            header.flip();
+            if (header.getLong() == MAGIC && header.getInt() == FORMAT_VERSION && header.getInt() == version &&
+                header.getLong() == sourceLength && header.getLong() == sourceLastModified) {
+                size = HEADER_SIZE;
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+                scan(fileSize);
+                mappedSize = size;
+                if (size < fileSize) {
+                    // drop the incomplete record written by an interrupted process
+                    channel.truncate(size);
+                }
+                log.info("Opened result store {} with {} results", file, offsets.size());
+                return;
+            }
+        }
+
+        // create or recreate the store
+        channel.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putLong(MAGIC).putInt(FORMAT_VERSION).putInt(version)
+              .putLong(sourceLength).putLong(sourceLastModified);
+        header.flip();
+        writeFully(header, 0);
+        size = HEADER_SIZE;
+    }
+
+    private void scan(long fileSize) {
+        long position = HEADER_SIZE;
+        while (position + Integer.BYTES <= fileSize) {
+            int keyLength = mapped.getInt((int) position);
+            long valuePosition = position + Integer.BYTES + keyLength;
+            if (keyLength < 0 || valuePosition + Integer.BYTES > fileSize) {
+                break;
+            }
+            int valueLength = mapped.getInt((int) valuePosition);
+            long next = valuePosition + Integer.BYTES + valueLength + Long.BYTES;
+            if (valueLength < 0 || next > fileSize) {
+                break;
+            }
+            byte[] key = new byte[keyLength];
+            mapped.get((int) (position + Integer.BYTES), key);
+            offsets.put(new String(key, StandardCharsets.UTF_8), valuePosition);
+            position = next;
+        }
+        size = position;
+    }
+
+    private synchronized <V> V read(String key, Type type) {
+        Long offset = offsets.get(key);
+        if (offset == null || broken) {
+            return null;
+        }
+        try {
+            long position = offset;
+            int length;
+            byte[] value;
+            long checksum;
+            if (mapped != null && position < mappedSize) {
+                length = mapped.getInt((int) position);
+                value = new byte[length];
+                mapped.get((int) position + Integer.BYTES, value);
+                checksum = mapped.getLong((int) position + Integer.BYTES + length);
+            } else {
+                ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES);
+                readFully(buffer, position);
+                length = buffer.flip().getInt();
+                buffer = ByteBuffer.allocate(length + Long.BYTES);
+                readFully(buffer, position + Integer.BYTES);
+                buffer.flip();
+                value = new byte[length];
+                buffer.get(value);
+                checksum = buffer.getLong();
+            }
+            if (checksum != checksum(value)) {
+                log.warn("Corrupted result in store {}: {}", file, key);
+                offsets.remove(key);
+                return null;
+            }
+            return GSON.fromJson(new String(value, StandardCharsets.UTF_8), type);
+        } catch (Throwable t) {
+            log.warn("Failed to read result from store {}: {}", file, t.getMessage());
+            offsets.remove(key);
+            return null;
+        }
+    }
+
+    private synchronized void write(String key, Object value) {
+        if (broken || full || offsets.containsKey(key)) {
+            return;
+        }
+        try {
+            byte[] k = key.getBytes(StandardCharsets.UTF_8);
+            byte[] v = GSON.toJson(value).getBytes(StandardCharsets.UTF_8);
+            long recordSize = Integer.BYTES * 2L + k.length + v.length + Long.BYTES;
+            if (size + recordSize > maxSize) {
+                log.info("Result store {} reaches the size limit of {} bytes, no more result is stored", file,
+                         maxSize);
+                full = true;
+                return;
+            }
+            ByteBuffer record = ByteBuffer.allocate((int) recordSize);
+            record.putInt(k.length).put(k).putInt(v.length).put(v).putLong(checksum(v));
+            record.flip();
+            writeFully(record, size);
+            offsets.put(key, size + Integer.BYTES + k.length);
+            size += recordSize;
+        } catch (Throwable t) {
+            log.warn("Failed to write result to store {}, the store is disabled", file, t);
+            broken = true;
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            position += n;
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static long checksum(byte[] bytes) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(bytes);
+        return crc32.getValue();
+    }
+
+    private static Object[] normalize(Object[] args) {
+        if (args == null) {
+            return new Object[0];
+        }
+        Object[] normalized = new Object[args.length];
+        for (int i = 0; i < args.length; i++) {
+            Object arg = args[i];
+            if (arg instanceof Map<?, ?> map && !(arg instanceof SortedMap)) {
+                // the order of the entries does not matter
+                Map<String, Object> sorted = new TreeMap<>();
+                map.forEach((k, v) -> sorted.put(String.valueOf(k), v));
+                arg = sorted;
+            }
+            normalized[i] = arg;
+        }
+        return normalized;
+    }
+}
@@ -0,0 +1,26 @@
+/********************************************************************************
+ * Copyright (c) 2024 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.jifa.analysis.cache;
+
+/**
+ * The object that weighs the results of its cacheable methods, for the results that the cache does not know how to
+ * weigh, such as the results of third-party libraries.
+ */
+public interface Weigher {
+
+    /**
+     * @param result the result of a cacheable method
+     * @return the weight of the result, a non-positive value means the default weight
+     */
+    long weigh(Object result);
+}
@@ -26,6 +26,8 @@ public class DefaultProgressListener implements ProgressListener {
 
     private String lastSubTask;
 
+    private volatile boolean canceled;
+
     private void append(String msg) {
         log.append(msg);
         log.append(System.lineSeparator());
@@ -75,6 +77,16 @@ public class DefaultProgressListener implements ProgressListener {
         this.total = this.done = 0;
     }
 
+    @Override
+    public void cancel() {
+        canceled = true;
+    }
+
+    @Override
+    public boolean isCanceled() {
+        return canceled;
+    }
+
     @Override
     public String log() {
         return log.toString();
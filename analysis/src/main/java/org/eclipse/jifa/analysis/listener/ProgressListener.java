@@ -13,6 +13,8 @@
 
 package org.eclipse.jifa.analysis.listener;
 
+import java.util.concurrent.CancellationException;
+
 /**
  * Progress listener of the analysis.
  * Currently, it is only used for the first analysis.
@@ -55,6 +57,30 @@ public interface ProgressListener {
     default void reset() {
     }
 
+    /**
+     * request the cancellation of the analysis
+     */
+    default void cancel() {
+    }
+
+    /**
+     * @return true if the cancellation of the analysis has been requested
+     */
+    default boolean isCanceled() {
+        return false;
+    }
+
+    /**
+     * Long-running loops of the analysis should invoke this method periodically.
+     *
+     * @throws CancellationException if the cancellation of the analysis has been requested
+     */
+    default void checkCanceled() {
+        if (isCanceled()) {
+            throw new CancellationException("Analysis is canceled");
+        }
+    }
+
     /**
      * @return the log
      */
@@ -0,0 +1,305 @@
+/********************************************************************************
+ * Copyright (c) 2024 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.jifa.analysis.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A scanner that reads the lines of a file on the memory-mapped bytes.
+ * <p>
+ * The current line can be matched on the raw bytes, a String is only created when {@link #line()} or
+ * {@link #trimmedLine()} is called, so that the lines that are skipped cost no allocation. The file is mapped
+ * window by window, so files larger than 2GB are supported.
+ * <p>
+ * Same as {@link java.io.BufferedReader#readLine()}, a line is terminated by '\n', '\r' or "\r\n", and the line
+ * terminator is not part of the line. Lines are decoded with the default charset, same as {@link java.io.FileReader},
+ * the bytes are matched as they are, so the charset must be ASCII compatible for the ASCII bytes to match.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class LineScanner implements Closeable {
+
+    private static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE - 8;
+
+    private final FileChannel channel;
+
+    private final long fileSize;
+
+    private int windowSize;
+
+    private MappedByteBuffer window;
+
+    // the position of the window in the file
+    private long windowPosition;
+
+    // the start (inclusive) and the end (exclusive) of the current line in the window
+    private int start;
+
+    private int end;
+
+    // the start of the next line in the window
+    private int next;
+
+    private int lineNumber;
+
+    private long markedPosition = -1;
+
+    private int markedLineNumber;
+
+    public LineScanner(Path path) throws IOException {
+        this(path, DEFAULT_WINDOW_SIZE);
+    }
+
+    LineScanner(Path path, int windowSize) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        fileSize = channel.size();
+        this.windowSize = windowSize;
+        map(0);
+    }
+
+    /**
+     * Advance to the next line.
+     *
+     * @return false if there are no more lines
+     */
+    public boolean next() throws IOException {
+        if (windowPosition + next >= fileSize) {
+            return false;
+        }
+        int eol;
+        // a '\r' at the end of the window may be followed by a '\n' in the next window
+        while (((eol = indexOfLineTerminator(next)) < 0 || eol == window.limit() - 1 && window.get(eol) == '\r')
+               && windowPosition + window.limit() < fileSize) {
+            // the line crosses the end of the window
+            if (next == 0) {
+                // the line is longer than the window
+                if (windowSize == MAX_WINDOW_SIZE) {
+                    throw new IOException("Line is too long at " + windowPosition);
+                }
+                windowSize = (int) Math.min((long) windowSize * 2, MAX_WINDOW_SIZE);
+            }
+            map(windowPosition + next);
+        }
+        start = next;
+        if (eol < 0) {
+            // the last line without line terminator
+            end = window.limit();
+            next = end;
+        } else {
+            end = eol;
+            next = eol + 1;
+            if (window.get(eol) == '\r' && next < window.limit() && window.get(next) == '\n') {
+                next++;
+            }
+        }
+        lineNumber++;
+        return true;
+    }
+
+    /**
+     * @return the number of the current line, starting from 1
+     */
+    public int lineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * @return the length of the current line in bytes
+     */
+    public int length() {
+        return end - start;
+    }
+
+    /**
+     * @param index the index in the current line
+     * @return the byte at the index
+     */
+    public byte byteAt(int index) {
+        return window.get(start + index);
+    }
+
+    /**
+     * @return true if the current line contains only white space
+     */
+    public boolean isBlank() {
+        for (int i = start; i < end; i++) {
+            if (!isWhitespace(window.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param prefix the prefix in bytes
+     * @return true if the current line starts with the prefix
+     */
+    public boolean startsWith(byte[] prefix) {
+        return regionMatches(0, prefix);
+    }
+
+    /**
+     * @param offset the offset in the current line
+     * @param bytes  the bytes
+     * @return true if the bytes are found at the offset of the current line
+     */
+    public boolean regionMatches(int offset, byte[] bytes) {
+        if (offset < 0 || offset + bytes.length > length()) {
+            return false;
+        }
+        int base = start + offset;
+        for (int i = 0; i < bytes.length; i++) {
+            if (window.get(base + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param b    the byte
+     * @param from the index to start from
+     * @return the index of the first occurrence of the byte in the current line, or -1 if not found
+     */
+    public int indexOf(byte b, int from) {
+        for (int i = start + Math.max(from, 0); i < end; i++) {
+            if (window.get(i) == b) {
+                return i - start;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param bytes the bytes
+     * @param from  the index to start from
+     * @return the index of the first occurrence of the bytes in the current line, or -1 if not found
+     */
+    public int indexOf(byte[] bytes, int from) {
+        int last = length() - bytes.length;
+        for (int i = Math.max(from, 0); i <= last; i++) {
+            if (regionMatches(i, bytes)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param bytes the bytes
+     * @return true if the current line contains the bytes
+     */
+    public boolean contains(byte[] bytes) {
+        return indexOf(bytes, 0) >= 0;
+    }
+
+    /**
+     * @return the current line
+     */
+    public String line() {
+        return decode(start, end);
+    }
+
+    /**
+     * @return the current line without leading and trailing white space, same as {@link String#trim()}
+     */
+    public String trimmedLine() {
+        int s = start;
+        int e = end;
+        while (s < e && isWhitespace(window.get(s))) {
+            s++;
+        }
+        while (e > s && isWhitespace(window.get(e - 1))) {
+            e--;
+        }
+        return decode(s, e);
+    }
+
+    /**
+     * Mark the current position, {@link #reset()} goes back to the line after the current line.
+     */
+    public void mark() {
+        markedPosition = windowPosition + next;
+        markedLineNumber = lineNumber;
+    }
+
+    /**
+     * Go back to the marked position.
+     */
+    public void reset() throws IOException {
+        if (markedPosition < 0) {
+            throw new IOException("Not marked");
+        }
+        if (markedPosition < windowPosition || markedPosition > windowPosition + window.limit()) {
+            map(markedPosition);
+        } else {
+            next = (int) (markedPosition - windowPosition);
+        }
+        start = end = next;
+        lineNumber = markedLineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    /**
+     * @param s the string
+     * @return the bytes of the string that can be matched with the lines
+     */
+    public static byte[] bytesOf(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void map(long position) throws IOException {
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowSize, fileSize - position));
+        windowPosition = position;
+        start = end = next = 0;
+    }
+
+    private int indexOfLineTerminator(int from) {
+        int limit = window.limit();
+        for (int i = from; i < limit; i++) {
+            byte b = window.get(i);
+            if (b == '\n' || b == '\r') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private String decode(int from, int to) {
+        if (from == to) {
+            return "";
+        }
+        byte[] bytes = new byte[to - from];
+        window.get(from, bytes);
+        return new String(bytes, Charset.defaultCharset());
+    }
+
+    private static boolean isWhitespace(byte b) {
+        // bytes of multibyte characters are negative
+        return b >= 0 && b <= ' ';
+    }
+}
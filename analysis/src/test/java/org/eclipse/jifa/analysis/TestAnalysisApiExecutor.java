@@ -1,5 +1,5 @@
 /********************************************************************************
- * Copyright (c) 2023 Contributors to the Eclipse Foundation
+ * Copyright (c) 2023, 2024 Contributors to the Eclipse Foundation
  *
  * See the NOTICE file(s) distributed with this work for additional
  * information regarding copyright ownership.
@@ -13,19 +13,25 @@
 package org.eclipse.jifa.analysis;
 
 import org.apache.commons.io.FileUtils;
+import org.eclipse.jifa.analysis.listener.ProgressListener;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class TestAnalysisApiExecutor {
@@ -61,4 +67,173 @@ public class TestAnalysisApiExecutor {
         line = (String) result.get();
         assertEquals("Hello Jifa", line);
     }
+
+    static class BlockingExecutor extends AbstractApiExecutor<TextAnalyzer> {
+
+        final CountDownLatch started = new CountDownLatch(1);
+
+        final CountDownLatch resumed = new CountDownLatch(1);
+
+        final AtomicInteger builds = new AtomicInteger();
+
+        final AtomicInteger running = new AtomicInteger();
+
+        final AtomicInteger maxRunning = new AtomicInteger();
+
+        @Override
+        protected TextAnalyzer buildAnalyzer(Path target, Map<String, String> options, ProgressListener listener) throws Throwable {
+            builds.incrementAndGet();
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                started.countDown();
+                resumed.await();
+                listener.checkCanceled();
+                return new TextAnalyzer(target, listener, this::analyzerOf);
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+
+        @Override
+        public String namespace() {
+            return "blocking-text";
+        }
+    }
+
+    static class ComparingExecutor extends AbstractApiExecutor<TextAnalyzer> {
+
+        final Path blocked;
+
+        final CountDownLatch started = new CountDownLatch(1);
+
+        final CountDownLatch resumed = new CountDownLatch(1);
+
+        ComparingExecutor(Path blocked) {
+            this.blocked = blocked;
+        }
+
+        @Override
+        protected TextAnalyzer buildAnalyzer(Path target, Map<String, String> options, ProgressListener listener) throws Throwable {
+            if (target.equals(blocked)) {
+                started.countDown();
+                resumed.await();
+                listener.checkCanceled();
+            }
+            return new TextAnalyzer(target, listener, this::analyzerOf);
+        }
+
+        @Override
+        public String namespace() {
+            return "comparing-text";
+        }
+    }
+
+    private static Path write(String content) throws IOException {
+        File tempFile = File.createTempFile("test", "txt");
+        tempFile.deleteOnExit();
+        FileUtils.writeStringToFile(tempFile, content, StandardCharsets.UTF_8);
+        return tempFile.toPath();
+    }
+
+    @Test
+    public void testComparison() throws Exception {
+        Path target = write("a\nb\nc");
+        Path baseline = write("a");
+        ComparingExecutor executor = new ComparingExecutor(baseline);
+
+        CompletableFuture<?> result =
+                executor.execute(new ExecutionContext(target, "getDifferenceOfTotalLines", new Object[]{baseline}));
+        executor.started.await();
+        // the invocation waits for the build of the baseline without occupying a worker
+        assertFalse(result.isDone());
+        assertEquals(Progress.State.IN_PROGRESS, executor.progressOfAnalysis(baseline).getState());
+        assertEquals(3L, executor.execute(new ExecutionContext(target, "getTotalLines", new Object[0])).get());
+
+        executor.resumed.countDown();
+        assertEquals(2L, result.get());
+        // the baseline is cached by the executor
+        assertEquals(Progress.State.SUCCESS, executor.progressOfAnalysis(baseline).getState());
+    }
+
+    @Test
+    public void testCancelComparison() throws Exception {
+        Path target = write("a\nb\nc");
+        Path baseline = write("a");
+        ComparingExecutor executor = new ComparingExecutor(baseline);
+
+        CompletableFuture<?> result =
+                executor.execute(new ExecutionContext(target, "getDifferenceOfTotalLines", new Object[]{baseline}));
+        executor.started.await();
+        // the build of the baseline is canceled like an analysis
+        executor.cancel(baseline);
+        executor.resumed.countDown();
+        assertThrows(ExecutionException.class, result::get);
+
+        Progress progress = executor.progressOfAnalysis(baseline);
+        while (progress.getState() == Progress.State.IN_PROGRESS) {
+            Thread.sleep(10);
+            progress = executor.progressOfAnalysis(baseline);
+        }
+        assertEquals(Progress.State.CANCELED, progress.getState());
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        File tempFile = File.createTempFile("test", "txt");
+        tempFile.deleteOnExit();
+        FileUtils.writeStringToFile(tempFile, "Hello Jifa", StandardCharsets.UTF_8);
+        Path target = tempFile.toPath();
+
+        BlockingExecutor executor = new BlockingExecutor();
+        executor.analyze(target, null);
+        executor.started.await();
+        assertEquals(Progress.State.IN_PROGRESS, executor.progressOfAnalysis(target).getState());
+
+        executor.cancel(target);
+        executor.resumed.countDown();
+        Progress progress = executor.progressOfAnalysis(target);
+        while (progress.getState() == Progress.State.IN_PROGRESS) {
+            Thread.sleep(10);
+            progress = executor.progressOfAnalysis(target);
+        }
+        // a canceled analysis is not a failure
+        assertEquals(Progress.State.CANCELED, progress.getState());
+
+        executor.clean(target);
+        // the canceled build is reported as in progress again until it exits
+        progress = executor.progressOfAnalysis(target);
+        while (progress.getState() == Progress.State.IN_PROGRESS) {
+            Thread.sleep(10);
+            progress = executor.progressOfAnalysis(target);
+        }
+        assertEquals(Progress.State.FAILURE, progress.getState());
+        assertFalse(executor.errorLogFile(target).exists());
+    }
+
+    @Test
+    public void testAnalyzeAfterCancel() throws Exception {
+        Path target = write("Hello Jifa");
+
+        BlockingExecutor executor = new BlockingExecutor();
+        executor.analyze(target, null);
+        executor.started.await();
+
+        executor.cancel(target);
+        // the canceled build is still running, it is reported as canceled at once
+        assertEquals(Progress.State.CANCELED, executor.progressOfAnalysis(target).getState());
+        executor.analyze(target, null);
+        executor.analyze(target, null);
+        assertEquals(1, executor.builds.get());
+
+        executor.resumed.countDown();
+        Progress progress = executor.progressOfAnalysis(target);
+        while (progress.getState() != Progress.State.SUCCESS) {
+            assertEquals(Progress.State.IN_PROGRESS, progress.getState());
+            Thread.sleep(10);
+            progress = executor.progressOfAnalysis(target);
+        }
+        // the target is analyzed again once the canceled build exits, never by two builds at the same time
+        assertEquals(2, executor.builds.get());
+        assertEquals(1, executor.maxRunning.get());
+    }
 }
@@ -0,0 +1,123 @@
+/********************************************************************************
+ * Copyright (c) 2024 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.jifa.analysis;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jifa.analysis.listener.ProgressListener;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.eclipse.jifa.analysis.listener.ProgressListener.NoOpProgressListener;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestAnalyzerCache {
+
+    static class RecordingExecutor extends AbstractApiExecutor<TextAnalyzer> {
+
+        final List<TextAnalyzer> removed = new CopyOnWriteArrayList<>();
+
+        @Override
+        protected TextAnalyzer buildAnalyzer(Path target, Map<String, String> options, ProgressListener listener) throws Throwable {
+            return new TextAnalyzer(target, listener, this::analyzerOf);
+        }
+
+        @Override
+        public String namespace() {
+            return "recording-text";
+        }
+
+        @Override
+        protected void cachedAnalyzerRemoved(TextAnalyzer analyzer) {
+            removed.add(analyzer);
+        }
+    }
+
+    @Test
+    public void test() throws IOException {
+        File file = File.createTempFile("test", "txt");
+        file.deleteOnExit();
+        FileUtils.writeStringToFile(file, "Hello Jifa", StandardCharsets.UTF_8);
+
+        RecordingExecutor executor = new RecordingExecutor();
+        long size = AnalyzerCache.memoryBudget() / 2 + (1 << 20);
+
+        Path a = Path.of("a");
+        Path b = Path.of("b");
+        TextAnalyzer analyzerA = new TextAnalyzer(file.toPath(), NoOpProgressListener, executor::analyzerOf);
+        TextAnalyzer analyzerB = new TextAnalyzer(file.toPath(), NoOpProgressListener, executor::analyzerOf);
+
+        // one of the analyzers is evicted once the budget is exceeded
+        AnalyzerCache.put(executor, a, analyzerA, size, false);
+        AnalyzerCache.put(executor, b, analyzerB, size, false);
+        AnalyzerCache.cleanUp();
+        assertEquals(1, cached(executor, a, b));
+        assertEquals(1, executor.removed.size());
+        AnalyzerCache.remove(executor, a);
+        AnalyzerCache.remove(executor, b);
+        executor.removed.clear();
+
+        // pinned analyzers are not evicted
+        AnalyzerCache.put(executor, a, analyzerA, size, false);
+        assertSame(analyzerA, AnalyzerCache.acquire(executor, a));
+        AnalyzerCache.put(executor, b, analyzerB, size, false);
+        AnalyzerCache.cleanUp();
+        assertSame(analyzerA, AnalyzerCache.get(executor, a));
+        assertSame(analyzerB, AnalyzerCache.get(executor, b));
+        assertTrue(executor.removed.isEmpty());
+
+        // the budget is enforced again once unpinned
+        AnalyzerCache.release(executor, a, analyzerA);
+        AnalyzerCache.cleanUp();
+        assertEquals(1, cached(executor, a, b));
+        assertEquals(1, executor.removed.size());
+        AnalyzerCache.remove(executor, a);
+        AnalyzerCache.remove(executor, b);
+        executor.removed.clear();
+
+        // an analyzer put pinned is not evicted before it is released
+        AnalyzerCache.put(executor, a, analyzerA, size, true);
+        AnalyzerCache.put(executor, b, analyzerB, size, false);
+        AnalyzerCache.cleanUp();
+        assertSame(analyzerA, AnalyzerCache.get(executor, a));
+
+        // a pin released with another analyzer than the cached one is ignored
+        AnalyzerCache.release(executor, a, analyzerB);
+        AnalyzerCache.cleanUp();
+        assertSame(analyzerA, AnalyzerCache.get(executor, a));
+
+        assertSame(analyzerA, AnalyzerCache.remove(executor, a));
+        assertNull(AnalyzerCache.get(executor, a));
+        assertNull(AnalyzerCache.acquire(executor, a));
+        AnalyzerCache.remove(executor, b);
+    }
+
+    private static int cached(RecordingExecutor executor, Path... targets) {
+        int count = 0;
+        for (Path target : targets) {
+            if (AnalyzerCache.get(executor, target) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
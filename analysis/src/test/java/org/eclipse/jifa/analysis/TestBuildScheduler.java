@@ -0,0 +1,72 @@
+/********************************************************************************
+ * Copyright (c) 2024 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.jifa.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestBuildScheduler {
+
+    @Test
+    public void test() throws InterruptedException {
+        TextAnalysisApiExecutor owner = new TextAnalysisApiExecutor();
+        Executor executor = Executors.newCachedThreadPool();
+        long budget = BuildScheduler.memoryBudget();
+
+        Path first = Path.of("first");
+        Path second = Path.of("second");
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        CountDownLatch secondDone = new CountDownLatch(1);
+
+        // a build whose cost exceeds the whole budget is admitted when nothing else is running
+        BuildScheduler.submit(owner, first, budget * 2, executor, () -> {
+            firstStarted.countDown();
+            try {
+                releaseFirst.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertTrue(firstStarted.await(10, TimeUnit.SECONDS));
+        assertEquals(0, BuildScheduler.positionOf(owner, first));
+
+        // the next one has to wait
+        BuildScheduler.submit(owner, second, 1, executor, secondDone::countDown);
+        assertEquals(1, BuildScheduler.positionOf(owner, second));
+        assertFalse(secondDone.await(100, TimeUnit.MILLISECONDS));
+
+        // a canceled build is removed from the queue and never runs
+        Path third = Path.of("third");
+        CountDownLatch thirdDone = new CountDownLatch(1);
+        BuildScheduler.submit(owner, third, 1, executor, thirdDone::countDown);
+        assertEquals(2, BuildScheduler.positionOf(owner, third));
+        assertTrue(BuildScheduler.cancel(owner, third));
+        assertFalse(BuildScheduler.cancel(owner, third));
+        assertEquals(0, BuildScheduler.positionOf(owner, third));
+
+        releaseFirst.countDown();
+        assertTrue(secondDone.await(10, TimeUnit.SECONDS));
+        assertEquals(0, BuildScheduler.positionOf(owner, second));
+        assertFalse(thirdDone.await(100, TimeUnit.MILLISECONDS));
+    }
+}
@@ -21,7 +21,7 @@ public class TextAnalysisApiExecutor extends AbstractApiExecutor<TextAnalyzer> {
 
     @Override
     protected TextAnalyzer buildAnalyzer(Path target, Map<String, String> options, ProgressListener listener) throws Throwable {
-        return new TextAnalyzer(target, listener);
+        return new TextAnalyzer(target, listener, this::analyzerOf);
     }
 
     @Override
@@ -1,5 +1,5 @@
 /********************************************************************************
- * Copyright (c) 2023 Contributors to the Eclipse Foundation
+ * Copyright (c) 2023, 2024 Contributors to the Eclipse Foundation
  *
  * See the NOTICE file(s) distributed with this work for additional
  * information regarding copyright ownership.
@@ -15,18 +15,24 @@ package org.eclipse.jifa.analysis;
 import com.google.common.collect.Lists;
 import org.apache.commons.io.FileUtils;
 import org.eclipse.jifa.analysis.annotation.ApiMeta;
+import org.eclipse.jifa.analysis.annotation.ApiParameterMeta;
 import org.eclipse.jifa.analysis.listener.ProgressListener;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.function.Function;
 
 public class TextAnalyzer {
 
     private final List<String> lines;
 
-    public TextAnalyzer(Path path, ProgressListener listener) throws IOException {
+    private final Function<Path, TextAnalyzer> analyzers;
+
+    public TextAnalyzer(Path path, ProgressListener listener, Function<Path, TextAnalyzer> analyzers)
+            throws IOException {
+        this.analyzers = analyzers;
         listener.beginTask("Parsing text", 100);
         String content = FileUtils.readFileToString(path.toFile(), StandardCharsets.UTF_8);
         listener.worked(80);
@@ -43,4 +49,8 @@ public class TextAnalyzer {
     public long getTotalLines() {
         return lines.size();
     }
+
+    public long getDifferenceOfTotalLines(@ApiParameterMeta(comparisonTargetPath = true) Path other) {
+        return getTotalLines() - analyzers.apply(other).getTotalLines();
+    }
 }
@@ -1,5 +1,5 @@
 /********************************************************************************
- * Copyright (c) 2023 Contributors to the Eclipse Foundation
+ * Copyright (c) 2023, 2024 Contributors to the Eclipse Foundation
  *
  * See the NOTICE file(s) distributed with this work for additional
  * information regarding copyright ownership.
@@ -12,9 +12,13 @@
  ********************************************************************************/
 package org.eclipse.jifa.analysis.cache;
 
+import org.eclipse.jifa.common.domain.vo.PageView;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 public class TestCache {
@@ -25,11 +29,75 @@ public class TestCache {
         public String randomString() {
             return UUID.randomUUID().toString();
         }
+
+        @Cacheable(maximumWeight = 4)
+        public List<String> randomStrings(int count) {
+            List<String> list = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                list.add(randomString(i));
+            }
+            return list;
+        }
+
+        public String randomString(int ignored) {
+            return UUID.randomUUID().toString();
+        }
+
+        @Cacheable(maximumWeight = 4)
+        public PageView<String> randomPage(int count) {
+            return new PageView<>(1, count, count, randomStrings(count));
+        }
+    }
+
+    public static class W implements Weigher {
+
+        @Cacheable(maximumWeight = 4)
+        public StringBuilder randomBuilder(int length) {
+            return new StringBuilder(UUID.randomUUID().toString().substring(0, length));
+        }
+
+        @Override
+        public long weigh(Object result) {
+            return result instanceof StringBuilder builder ? builder.length() : 0;
+        }
     }
 
     @Test
     public void test() {
         C c = ProxyBuilder.build(C.class);
         Assertions.assertEquals(c.randomString(), c.randomString());
+        Assertions.assertNotEquals(c.randomString(0), c.randomString(0));
+
+        Map<String, CacheStatistics> statistics = ProxyBuilder.statistics(c);
+        Assertions.assertEquals(3, statistics.size());
+        CacheStatistics randomString = statistics.get("randomString()");
+        Assertions.assertEquals(1, randomString.getHitCount());
+        Assertions.assertEquals(1, randomString.getMissCount());
+
+        // a result that exceeds the maximum weight is retained alone
+        List<String> five = c.randomStrings(5);
+        Assertions.assertEquals(five, c.randomStrings(5));
+        Assertions.assertEquals(c.randomStrings(2), c.randomStrings(2));
+        Assertions.assertNotEquals(five, c.randomStrings(5));
+        Assertions.assertEquals(2, ProxyBuilder.statistics(c).get("randomStrings(int)").getHitCount());
+
+        // a page view is weighed by its data
+        PageView<String> page = c.randomPage(3);
+        Assertions.assertSame(page, c.randomPage(3));
+        c.randomPage(2);
+        Assertions.assertNotSame(page, c.randomPage(3));
+
+        Assertions.assertTrue(ProxyBuilder.statistics(new C()).isEmpty());
+    }
+
+    @Test
+    public void testWeigher() {
+        W w = ProxyBuilder.build(W.class);
+        StringBuilder three = w.randomBuilder(3);
+        Assertions.assertSame(three, w.randomBuilder(3));
+        Assertions.assertSame(w.randomBuilder(1), w.randomBuilder(1));
+        // the results are weighed by the object, 3 + 2 exceeds the maximum weight
+        w.randomBuilder(2);
+        Assertions.assertNotSame(three, w.randomBuilder(3));
     }
 }
@@ -0,0 +1,116 @@
+/********************************************************************************
+ * Copyright (c) 2024 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.jifa.analysis.cache;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+public class TestResultStore {
+
+    public static class C implements ResultStore.Owner {
+
+        private final ResultStore store;
+
+        public C(ResultStore store) {
+            this.store = store;
+        }
+
+        @Override
+        public ResultStore resultStore() {
+            return store;
+        }
+
+        @Cacheable(persistent = true)
+        public List<String> randomStrings(String prefix, int[] ids, Map<String, Object> options) {
+            return List.of(prefix + UUID.randomUUID(), prefix + UUID.randomUUID());
+        }
+    }
+
+    @Test
+    public void test() throws IOException {
+        File source = File.createTempFile("test", "source");
+        source.deleteOnExit();
+        Files.writeString(source.toPath(), "Hello Jifa", StandardCharsets.UTF_8);
+        Path file = source.toPath().resolveSibling(source.getName() + "." + ResultStore.FILE_NAME_SUFFIX);
+        file.toFile().deleteOnExit();
+
+        Map<String, Object> options = new HashMap<>();
+        options.put("b", 2);
+        options.put("a", 1);
+        Map<String, Object> reordered = new LinkedHashMap<>();
+        reordered.put("b", 2);
+        reordered.put("a", 1);
+
+        List<String> result;
+        try (ResultStore store = ResultStore.open(file, source.toPath(), 1)) {
+            Assertions.assertNotNull(store);
+            C c = ProxyBuilder.build(C.class, new Class[]{ResultStore.class}, new Object[]{store});
+            result = c.randomStrings("x", new int[]{1, 2}, options);
+            Assertions.assertEquals(result, c.randomStrings("x", new int[]{1, 2}, reordered));
+            Assertions.assertNotEquals(result, c.randomStrings("y", new int[]{1, 2}, options));
+        }
+
+        // the result is read from the store by a new proxy, as if the process had been restarted
+        try (ResultStore store = ResultStore.open(file, source.toPath(), 1)) {
+            C c = ProxyBuilder.build(C.class, new Class[]{ResultStore.class}, new Object[]{store});
+            Assertions.assertEquals(result, c.randomStrings("x", new int[]{1, 2}, reordered));
+        }
+
+        // the results are discarded if the version changes
+        try (ResultStore store = ResultStore.open(file, source.toPath(), 2)) {
+            C c = ProxyBuilder.build(C.class, new Class[]{ResultStore.class}, new Object[]{store});
+            Assertions.assertNotEquals(result, c.randomStrings("x", new int[]{1, 2}, options));
+        }
+    }
+
+    @Test
+    public void testSizeLimit() throws IOException {
+        File source = File.createTempFile("test", "source");
+        source.deleteOnExit();
+        Files.writeString(source.toPath(), "Hello Jifa", StandardCharsets.UTF_8);
+        Path file = source.toPath().resolveSibling(source.getName() + "." + ResultStore.FILE_NAME_SUFFIX);
+        file.toFile().deleteOnExit();
+
+        List<String> first;
+        List<String> second;
+        try (ResultStore store = ResultStore.open(file, source.toPath(), 1, 256)) {
+            Assertions.assertNotNull(store);
+            C c = ProxyBuilder.build(C.class, new Class[]{ResultStore.class}, new Object[]{store});
+            first = c.randomStrings("x", new int[]{1}, Map.of());
+            // the results appended after the store is opened are read from the channel
+            Assertions.assertEquals("z", store.load("z", null, String.class, () -> "z"));
+            Assertions.assertEquals("z", store.load("z", null, String.class, Assertions::fail));
+            second = c.randomStrings("y", new int[]{1}, Map.of());
+            Assertions.assertEquals(second, c.randomStrings("y", new int[]{1}, Map.of()));
+        }
+
+        try (ResultStore store = ResultStore.open(file, source.toPath(), 1, 256)) {
+            C c = ProxyBuilder.build(C.class, new Class[]{ResultStore.class}, new Object[]{store});
+            // the first result is stored, the second one exceeds the limit
+            Assertions.assertEquals(first, c.randomStrings("x", new int[]{1}, Map.of()));
+            Assertions.assertNotEquals(second, c.randomStrings("y", new int[]{1}, Map.of()));
+        }
+        Assertions.assertTrue(Files.size(file) <= 256);
+    }
+}
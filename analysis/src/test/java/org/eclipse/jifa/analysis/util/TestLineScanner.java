@@ -0,0 +1,119 @@
+/********************************************************************************
+ * Copyright (c) 2024 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.jifa.analysis.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestLineScanner {
+
+    private static Path write(String content) throws IOException {
+        File file = File.createTempFile("test", "lines");
+        file.deleteOnExit();
+        Files.writeString(file.toPath(), content, StandardCharsets.UTF_8);
+        return file.toPath();
+    }
+
+    private static List<String> lines(Path path, int windowSize) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (LineScanner scanner = new LineScanner(path, windowSize)) {
+            while (scanner.next()) {
+                Assertions.assertEquals(lines.size() + 1, scanner.lineNumber());
+                lines.add(scanner.line());
+            }
+        }
+        return lines;
+    }
+
+    // the lines read by BufferedReader with the default charset, which the scanner is compatible with
+    private static List<String> readerLines(Path path) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(path.toFile()))) {
+            return reader.lines().toList();
+        }
+    }
+
+    @Test
+    public void testLines() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            String line = "line " + "中".repeat(i % 7) + "x".repeat(i);
+            expected.add(line);
+            sb.append(line).append(i % 3 == 0 ? "\r\n" : "\n");
+        }
+        expected.add("");
+        sb.append("\n");
+        expected.add("last");
+        sb.append("last");
+        Path path = write(sb.toString());
+
+        // small windows so that lines cross the windows and are longer than the windows
+        for (int windowSize : new int[]{1, 7, 64, 1024 * 1024}) {
+            Assertions.assertEquals(readerLines(path), lines(path, windowSize));
+        }
+        Assertions.assertEquals(expected.size(), lines(path, 64).size());
+
+        Assertions.assertEquals(List.of(), lines(write(""), 16));
+        Assertions.assertEquals(List.of("a"), lines(write("a\n"), 16));
+    }
+
+    @Test
+    public void testLineTerminators() throws IOException {
+        // a lone '\r' terminates a line as well, "\r\n" may cross the windows
+        Path path = write("a\rb\r\nc\n\rd\r\r\neee\r");
+        for (int windowSize = 1; windowSize <= 16; windowSize++) {
+            Assertions.assertEquals(List.of("a", "b", "c", "", "d", "", "eee"), lines(path, windowSize));
+        }
+        Assertions.assertEquals(readerLines(path), lines(path, 16));
+    }
+
+    @Test
+    public void testMatching() throws IOException {
+        try (LineScanner scanner = new LineScanner(write("\t at foo.Bar(Bar.java:1) \n  \nGC(1) Pause"))) {
+            Assertions.assertTrue(scanner.next());
+            Assertions.assertFalse(scanner.isBlank());
+            Assertions.assertFalse(scanner.startsWith(LineScanner.bytesOf("at")));
+            Assertions.assertTrue(scanner.regionMatches(2, LineScanner.bytesOf("at")));
+            Assertions.assertTrue(scanner.contains(LineScanner.bytesOf("Bar.java")));
+            Assertions.assertEquals(13, scanner.indexOf(LineScanner.bytesOf("Bar"), 10));
+            Assertions.assertEquals(-1, scanner.indexOf(LineScanner.bytesOf("Baz"), 0));
+            Assertions.assertEquals(-1, scanner.indexOf(LineScanner.bytesOf(")  "), 0));
+            Assertions.assertEquals(23, scanner.indexOf((byte) ')', 0));
+            Assertions.assertEquals("at foo.Bar(Bar.java:1)", scanner.trimmedLine());
+
+            scanner.mark();
+            Assertions.assertTrue(scanner.next());
+            Assertions.assertTrue(scanner.isBlank());
+            Assertions.assertEquals("", scanner.trimmedLine());
+            Assertions.assertTrue(scanner.next());
+            Assertions.assertTrue(scanner.startsWith(LineScanner.bytesOf("GC(")));
+            Assertions.assertFalse(scanner.next());
+
+            scanner.reset();
+            Assertions.assertEquals(1, scanner.lineNumber());
+            Assertions.assertTrue(scanner.next());
+            Assertions.assertEquals(2, scanner.lineNumber());
+            Assertions.assertEquals("  ", scanner.line());
+        }
+    }
+}
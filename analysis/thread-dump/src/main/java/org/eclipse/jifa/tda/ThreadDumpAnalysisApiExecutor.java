@@ -40,6 +40,11 @@ public class ThreadDumpAnalysisApiExecutor extends AbstractApiExecutor<ThreadDum
         }
     }
 
+    @Override
+    protected double buildMemoryCostFactor() {
+        return 2.0;
+    }
+
     @Override
     public String namespace() {
         return "thread-dump";
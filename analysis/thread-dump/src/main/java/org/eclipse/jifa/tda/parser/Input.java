@@ -1,5 +1,5 @@
 /********************************************************************************
- * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ * Copyright (c) 2022, 2024 Contributors to the Eclipse Foundation
  *
  * See the NOTICE file(s) distributed with this work for additional
  * information regarding copyright ownership.
@@ -13,48 +13,131 @@
 
 package org.eclipse.jifa.tda.parser;
 
+import org.eclipse.jifa.analysis.util.LineScanner;
+
 import java.io.Closeable;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.LineNumberReader;
 import java.nio.file.Path;
 
+/**
+ * The lines of a thread dump, the checks are done on the bytes and a line is only decoded when it is read.
+ */
 public class Input implements Closeable {
 
-    private final LineNumberReader lnr;
+    private final LineScanner scanner;
+
+    private boolean eof;
 
+    // the decoded current line, created on demand
     private String current;
 
     public Input(Path dumpPath) throws IOException {
-        lnr = new LineNumberReader(new FileReader(dumpPath.toFile()));
+        scanner = new LineScanner(dumpPath);
     }
 
-    public void mark() throws IOException {
-        lnr.mark(1024);
+    public void mark() {
+        scanner.mark();
     }
 
     public void reset() throws IOException {
-        lnr.reset();
+        scanner.reset();
+        eof = false;
+        current = null;
     }
 
     public int lineNumber() {
-        return lnr.getLineNumber();
+        return scanner.lineNumber();
     }
 
-    public String readLine() throws IOException {
-        current = lnr.readLine();
-        if (current != null) {
-            current = current.trim();
-        }
-        return current;
+    /**
+     * Advance to the next line without decoding it.
+     *
+     * @return false if there are no more lines
+     */
+    public boolean next() throws IOException {
+        eof = !scanner.next();
+        current = null;
+        return !eof;
     }
 
+    /**
+     * @return the current line without leading and trailing white space, or null if there are no more lines
+     */
     public String currentLine() {
+        if (current == null && !eof) {
+            // trimmed on the bytes, so only one string is created for a line
+            current = scanner.trimmedLine();
+        }
         return current;
     }
 
+    /**
+     * @return true if there are no more lines or the current line contains only white space
+     */
+    public boolean isBlank() {
+        return eof || scanner.isBlank();
+    }
+
+    /**
+     * @param prefix the prefix in bytes
+     * @return true if the trimmed current line starts with the prefix
+     */
+    public boolean startsWith(byte[] prefix) {
+        return !eof && scanner.regionMatches(indent(), prefix);
+    }
+
+    /**
+     * @param suffix the suffix in bytes
+     * @return true if the trimmed current line ends with the suffix
+     */
+    public boolean endsWith(byte[] suffix) {
+        if (eof) {
+            return false;
+        }
+        int end = scanner.length();
+        while (end > 0 && isWhitespace(scanner.byteAt(end - 1))) {
+            end--;
+        }
+        return end - suffix.length >= indent() && scanner.regionMatches(end - suffix.length, suffix);
+    }
+
+    /**
+     * @param line the line in bytes
+     * @return true if the trimmed current line is the same as the line
+     */
+    public boolean is(byte[] line) {
+        if (eof) {
+            return false;
+        }
+        int indent = indent();
+        return scanner.regionMatches(indent, line) && isTrailingBlank(indent + line.length);
+    }
+
     @Override
     public void close() throws IOException {
-        lnr.close();
+        scanner.close();
+    }
+
+    private int indent() {
+        int length = scanner.length();
+        int i = 0;
+        while (i < length && isWhitespace(scanner.byteAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private boolean isTrailingBlank(int from) {
+        for (int i = from; i < scanner.length(); i++) {
+            if (!isWhitespace(scanner.byteAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        // same as String#trim, bytes of multibyte characters are negative
+        return b >= 0 && b <= ' ';
     }
 }
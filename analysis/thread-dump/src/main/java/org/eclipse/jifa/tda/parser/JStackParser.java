@@ -1,5 +1,5 @@
 /********************************************************************************
- * Copyright (c) 2022 Contributors to the Eclipse Foundation
+ * Copyright (c) 2022, 2024 Contributors to the Eclipse Foundation
  *
  * See the NOTICE file(s) distributed with this work for additional
  * information regarding copyright ownership.
@@ -14,8 +14,8 @@
 package org.eclipse.jifa.tda.parser;
 
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
 import org.eclipse.jifa.analysis.listener.ProgressListener;
+import org.eclipse.jifa.analysis.util.LineScanner;
 import org.eclipse.jifa.tda.enums.JavaThreadState;
 import org.eclipse.jifa.tda.enums.MonitorState;
 import org.eclipse.jifa.tda.enums.OSTreadState;
@@ -42,6 +42,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingDeque;
@@ -87,6 +88,9 @@ public class JStackParser implements Parser {
             if (t instanceof ParserException) {
                 throw (ParserException) t;
             }
+            if (t instanceof CancellationException) {
+                throw (CancellationException) t;
+            }
             throw new ParserException(t);
         }
     }
@@ -131,6 +135,14 @@ public class JStackParser implements Parser {
         static String DEAD_LOCK_STACK_HEAD;
         static Pattern DEAD_FOUND;
 
+        // the bytes to check the lines before they are decoded
+        static final byte[] THREAD_PREFIX = LineScanner.bytesOf("\"");
+        static final byte[] JAVA_THREAD_SUFFIX = LineScanner.bytesOf("]");
+        static final byte[] FOUND_PREFIX = LineScanner.bytesOf("Found");
+        static byte[] SMR_HEAD_BYTES;
+        static byte[] DEAD_LOCK_HEAD_BYTES;
+        static byte[] DEAD_LOCK_STACK_HEAD_BYTES;
+
         static {
             try {
                 String fn = "jstack_pattern.properties";
@@ -138,17 +150,23 @@ public class JStackParser implements Parser {
                 ps.load(PATTERNS.class.getClassLoader().getResourceAsStream(fn));
                 Field[] fields = PATTERNS.class.getDeclaredFields();
                 for (Field field : fields) {
+                    Class<?> type = field.getType();
+                    if (type != Pattern.class && type != String.class) {
+                        continue;
+                    }
                     String value = (String) ps.get(field.getName());
                     if (value == null) {
                         throw new ParserException(field.getName() + " not found in " + fn);
                     }
-                    Class<?> type = field.getType();
                     if (type == Pattern.class) {
                         field.set(null, Pattern.compile((String) ps.get(field.getName())));
                     } else if (type == String.class) {
                         field.set(null, value);
                     }
                 }
+                SMR_HEAD_BYTES = LineScanner.bytesOf(SMR_HEAD);
+                DEAD_LOCK_HEAD_BYTES = LineScanner.bytesOf(DEAD_LOCK_HEAD);
+                DEAD_LOCK_STACK_HEAD_BYTES = LineScanner.bytesOf(DEAD_LOCK_STACK_HEAD);
             } catch (Throwable t) {
                 if (t instanceof ParserException) {
                     throw (ParserException) t;
@@ -197,6 +215,14 @@ public class JStackParser implements Parser {
         }
 
         Snapshot parse() throws Exception {
+            try {
+                return doParse();
+            } finally {
+                input.close();
+            }
+        }
+
+        Snapshot doParse() throws Exception {
             listener.beginTask("Parsing thread dump", 100);
             listener.subTask("Parsing timestamp and version");
             parseTimeStamp();
@@ -222,24 +248,24 @@ public class JStackParser implements Parser {
                     this.wait();
                 }
             }
+            listener.checkCanceled();
             listener.worked(90);
 
             return snapshot;
         }
 
         void step() throws IOException {
-            String line;
-            while ((line = input.readLine()) != null) {
-                if (!StringUtils.isBlank(line)) {
+            while (input.next()) {
+                if (!input.isBlank()) {
                     return;
                 }
             }
         }
 
         void skipSMR() throws IOException {
-            if (PATTERNS.SMR_HEAD.equals(input.currentLine())) {
+            if (input.is(PATTERNS.SMR_HEAD_BYTES)) {
                 //noinspection StatementWithEmptyBody
-                while (StringUtils.isNotBlank(input.readLine()))
+                while (input.next() && !input.isBlank())
                     ;
             }
         }
@@ -293,27 +319,22 @@ public class JStackParser implements Parser {
         }
 
         void parseDeadLocks() throws Exception {
-            String line = input.currentLine();
-            if (line == null) {
-                return;
-            }
             int dlCount = 0;
-            while (line.equals(PATTERNS.DEAD_LOCK_HEAD)) {
+            while (input.is(PATTERNS.DEAD_LOCK_HEAD_BYTES)) {
                 dlCount++;
                 if (snapshot.getDeadLockThreads() == null) {
                     snapshot.setDeadLockThreads(new ArrayList<>());
                 }
                 List<JavaThread> threads = new ArrayList<>();
                 // skip ====
-                input.readLine();
+                input.next();
                 step();
 
-                line = input.currentLine();
                 Matcher matcher;
 
                 int tCount = 0;
                 do {
-                    matcher = PATTERNS.DEAD_LOCK_THREAD.matcher(line);
+                    matcher = PATTERNS.DEAD_LOCK_THREAD.matcher(input.currentLine());
                     if (!matcher.matches()) {
                         throw new ParserException("Illegal dead lock thread name");
                     }
@@ -325,33 +346,32 @@ public class JStackParser implements Parser {
                     thread.setName(snapshot.getSymbols().add(name));
                     thread.setType(ThreadType.JAVA);
                     // wait and held info
-                    input.readLine();
-                    input.readLine();
+                    input.next();
+                    input.next();
 
-                    line = input.readLine();
+                    input.next();
 
-                } while (line.startsWith("\""));
+                } while (input.startsWith(PATTERNS.THREAD_PREFIX));
 
                 step();
-                line = input.currentLine();
 
-                if (!line.equals(PATTERNS.DEAD_LOCK_STACK_HEAD)) {
+                if (!input.is(PATTERNS.DEAD_LOCK_STACK_HEAD_BYTES)) {
                     throw new ParserException("Illegal dead lock stack head");
                 }
                 // skip ====
-                input.readLine();
+                input.next();
 
-                line = input.readLine();
+                input.next();
                 for (int i = 0; i < tCount; i++) {
-                    matcher = PATTERNS.DEAD_LOCK_THREAD.matcher(line);
+                    matcher = PATTERNS.DEAD_LOCK_THREAD.matcher(input.currentLine());
                     if (!matcher.matches()) {
                         throw new ParserException("Illegal dead lock thread name");
                     }
                     List<String> stackTraces = new ArrayList<>();
                     while (true) {
-                        line = input.readLine();
-                        if (line != null && !line.startsWith("\"") && !line.isBlank() && !line.startsWith("Found")) {
-                            stackTraces.add(line);
+                        if (input.next() && !input.startsWith(PATTERNS.THREAD_PREFIX) && !input.isBlank() &&
+                            !input.startsWith(PATTERNS.FOUND_PREFIX)) {
+                            stackTraces.add(input.currentLine());
                         } else {
                             Trace trace = parseStackTrace(threads.get(i), true, stackTraces);
                             threads.get(i).setTrace(snapshot.getTraces().add(trace));
@@ -364,8 +384,7 @@ public class JStackParser implements Parser {
 
             if (dlCount > 0) {
                 step();
-                line = input.currentLine();
-                Matcher matcher = PATTERNS.DEAD_FOUND.matcher(line);
+                Matcher matcher = PATTERNS.DEAD_FOUND.matcher(input.currentLine());
                 if (!matcher.matches()) {
                     throw new ParserException("Missing Dead lock found line");
                 }
@@ -414,33 +433,32 @@ public class JStackParser implements Parser {
         }
 
         void parseThreads() throws Exception {
-            String line = input.currentLine();
             do {
-                while (StringUtils.isBlank(line)) {
-                    line = input.readLine();
-                    if (line == null) {
+                while (input.isBlank()) {
+                    if (!input.next()) {
                         return;
                     }
                 }
 
-                if (line.startsWith("\"")) {
-                    if (!line.endsWith("]")) {
+                if (input.startsWith(PATTERNS.THREAD_PREFIX)) {
+                    if (!input.endsWith(PATTERNS.JAVA_THREAD_SUFFIX)) {
                         // not a java thread
                         break;
                     }
                     RawJavaThread rjt = new RawJavaThread();
-                    rjt.contents.add(line);
+                    rjt.contents.add(input.currentLine());
                     rjt.lineStart = input.lineNumber();
 
-                    while ((line = input.readLine()) != null) {
-                        if (StringUtils.isBlank(line)) {
+                    while (input.next()) {
+                        if (input.isBlank()) {
                             continue;
                         }
 
-                        if (line.startsWith("\"")) {
+                        if (input.startsWith(PATTERNS.THREAD_PREFIX)) {
                             break;
                         }
 
+                        String line = input.currentLine();
                         if (line.startsWith(MonitorState.ELIMINATED_SCALAR_REPLACED.prefix())) {
                             // this problem is fixed by JDK-8268780(JDK 18)
                             int index = line.indexOf(")");
@@ -453,6 +471,7 @@ public class JStackParser implements Parser {
                         rjt.contents.add(line);
                         rjt.lineEnd = input.lineNumber();
                     }
+                    listener.checkCanceled();
                     enroll(rjt);
                 } else {
                     break;
@@ -461,14 +480,13 @@ public class JStackParser implements Parser {
 
             // other threads
             do {
-                while (StringUtils.isBlank(line)) {
-                    line = input.readLine();
-                    if (line == null) {
+                while (input.isBlank()) {
+                    if (!input.next()) {
                         return;
                     }
                 }
 
-                if (line.startsWith("\"")) {
+                if (input.startsWith(PATTERNS.THREAD_PREFIX)) {
                     parseByElementPattern(Element.NON_JAVA_THREAD, m -> {
                         Thread thread = new Thread();
                         fillThread(thread, m);
@@ -480,7 +498,7 @@ public class JStackParser implements Parser {
                     break;
                 }
                 // step in parseByElementPattern
-            } while ((line = input.currentLine()) != null);
+            } while (true);
         }
 
         void done() {
@@ -740,6 +758,11 @@ public class JStackParser implements Parser {
         }
 
         void parse(RawJavaThread rjt) {
+            if (listener.isCanceled()) {
+                // the threads enrolled before the cancellation are skipped
+                done();
+                return;
+            }
             try {
                 List<String> contents = rjt.contents;
                 assert contents.size() >= 2;
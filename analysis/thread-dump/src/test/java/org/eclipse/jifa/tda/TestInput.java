@@ -0,0 +1,52 @@
+/********************************************************************************
+ * Copyright (c) 2024 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.eclipse.jifa.tda;
+
+import org.eclipse.jifa.analysis.util.LineScanner;
+import org.eclipse.jifa.tda.parser.Input;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+public class TestInput extends TestBase {
+
+    @Test
+    public void test() throws IOException {
+        try (Input input = new Input(createTempFile("\"main\" #1 [0x1] \n\n\tat A.a(A.java)\nFound"))) {
+            Assertions.assertTrue(input.next());
+            Assertions.assertTrue(input.startsWith(LineScanner.bytesOf("\"")));
+            Assertions.assertTrue(input.endsWith(LineScanner.bytesOf("]")));
+            Assertions.assertEquals("\"main\" #1 [0x1]", input.currentLine());
+
+            Assertions.assertTrue(input.next());
+            Assertions.assertTrue(input.isBlank());
+
+            Assertions.assertTrue(input.next());
+            Assertions.assertTrue(input.startsWith(LineScanner.bytesOf("at ")));
+            Assertions.assertFalse(input.is(LineScanner.bytesOf("at A.a")));
+            Assertions.assertTrue(input.is(LineScanner.bytesOf("at A.a(A.java)")));
+            Assertions.assertEquals("at A.a(A.java)", input.currentLine());
+
+            Assertions.assertTrue(input.next());
+            Assertions.assertTrue(input.is(LineScanner.bytesOf("Found")));
+            Assertions.assertFalse(input.endsWith(LineScanner.bytesOf("dFound")));
+
+            Assertions.assertFalse(input.next());
+            Assertions.assertTrue(input.isBlank());
+            Assertions.assertFalse(input.startsWith(LineScanner.bytesOf("Found")));
+            Assertions.assertNull(input.currentLine());
+        }
+    }
+}
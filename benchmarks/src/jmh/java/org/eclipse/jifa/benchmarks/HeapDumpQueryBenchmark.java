@@ -0,0 +1,101 @@
+/********************************************************************************
+ * Copyright (c) 2024 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.jifa.benchmarks;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jifa.analysis.ApiService;
+import org.eclipse.jifa.analysis.Progress;
+import org.eclipse.jifa.hda.api.Model;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the heavy queries of the heap dump analyzer.
+ * <p>
+ * The heap dump is analyzed once per trial through the api service, the same way as the server does, only the
+ * queries are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class HeapDumpQueryBenchmark {
+
+    private static final String NAMESPACE = "heap-dump";
+
+    @Param({"100000", "1000000"})
+    public int nodes;
+
+    private final ApiService service = ApiService.getInstance();
+
+    private Path heapDump;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        heapDump = SyntheticInputs.heapDump(nodes);
+        execute("analyze", heapDump, null);
+        while (true) {
+            Progress progress = (Progress) execute("progressOfAnalysis", heapDump);
+            if (progress.getState() == Progress.State.SUCCESS) {
+                break;
+            }
+            if (progress.getState() != Progress.State.IN_PROGRESS) {
+                throw new IllegalStateException("Failed to analyze the heap dump: " + progress.getMessage());
+            }
+            Thread.sleep(100);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        execute("release", heapDump);
+        FileUtils.deleteQuietly(heapDump.getParent().toFile());
+    }
+
+    @Benchmark
+    public Object histogram() throws Exception {
+        return execute("histogram", Model.Histogram.Grouping.BY_CLASS, null, "retainedSize", false, null, null, 1, 25);
+    }
+
+    @Benchmark
+    public Object dominatorTreeRoots() throws Exception {
+        return execute("rootsOfDominatorTree", Model.DominatorTree.Grouping.NONE, "retainedHeap", false, null, null,
+                       1, 25);
+    }
+
+    @Benchmark
+    public Object oql() throws Exception {
+        return execute("OQLResult", "SELECT * FROM org.eclipse.jifa.benchmarks.SyntheticInputs$Node n " +
+                                    "WHERE n.payload.@length > 256", "retainedHeap", false, 1, 25);
+    }
+
+    private Object execute(String api, Object... arguments) throws Exception {
+        return service.execute(heapDump, NAMESPACE, api, arguments).get();
+    }
+}
@@ -0,0 +1,250 @@
+/********************************************************************************
+ * Copyright (c) 2024 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.jifa.benchmarks;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Generators of the synthetic inputs used by the benchmarks.
+ * <p>
+ * All the inputs are generated into temporary files whose size is controlled by the parameters of the benchmarks,
+ * so that the results are reproducible without shipping large files in the repository.
+ */
+public final class SyntheticInputs {
+
+    private static final String[] PACKAGES = {"com.example.service", "com.example.dao", "com.example.web",
+                                              "org.example.cache", "org.example.rpc"};
+
+    @SuppressWarnings("unused")
+    private static volatile long BLACK_HOLE;
+
+    private SyntheticInputs() {
+    }
+
+    /**
+     * Generate a unified G1 gc log that contains the given number of young gc pauses.
+     * A concurrent cycle is started every 10 pauses.
+     */
+    public static Path gcLog(int pauses) throws IOException {
+        Path file = Files.createTempFile("jifa-benchmark-gc", ".log");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("[0.015s][info][gc,heap] Heap region size: 1M\n");
+            writer.write("[0.017s][info][gc     ] Using G1\n");
+            writer.write("[0.017s][info][gc,heap,coops] Heap address: 0x00000007fc000000, size: 4096 MB, " +
+                         "Compressed Oops mode: Zero based, Oop shift amount: 3\n");
+            long millis = 1000;
+            int gcId = 0;
+            for (int i = 0; i < pauses; i++) {
+                int eden = 100 + i % 50;
+                String time = uptime(millis);
+                String id = "GC(" + gcId + ")";
+                writer.write(time + "[info][gc,start     ] " + id + " Pause Young (Normal) (G1 Evacuation Pause)\n");
+                writer.write(time + "[info][gc,task      ] " + id + " Using 8 workers of 8 for evacuation\n");
+                writer.write(time + "[info][gc,phases    ] " + id + "   Pre Evacuate Collection Set: 0.1ms\n");
+                writer.write(time + "[info][gc,phases    ] " + id + "   Evacuate Collection Set: 5.2ms\n");
+                writer.write(time + "[info][gc,phases    ] " + id + "   Post Evacuate Collection Set: 0.6ms\n");
+                writer.write(time + "[info][gc,phases    ] " + id + "   Other: 0.3ms\n");
+                writer.write(time + "[info][gc,heap      ] " + id + " Eden regions: " + eden + "->0(" + eden + ")\n");
+                writer.write(time + "[info][gc,heap      ] " + id + " Survivor regions: 3->4(13)\n");
+                writer.write(time + "[info][gc,heap      ] " + id + " Old regions: " + (200 + i % 100) + "->" +
+                             (202 + i % 100) + "\n");
+                writer.write(time + "[info][gc,heap      ] " + id + " Humongous regions: 4->3\n");
+                writer.write(time + "[info][gc,metaspace ] " + id + " Metaspace: 20679K->20679K(45056K)\n");
+                String end = uptime(millis + 6);
+                writer.write(end + "[info][gc           ] " + id + " Pause Young (Normal) (G1 Evacuation Pause) " +
+                             (eden + 300) + "M->" + (210 + i % 100) + "M(4096M) 6.209ms\n");
+                writer.write(end + "[info][gc,cpu       ] " + id + " User=0.04s Sys=0.00s Real=0.01s\n");
+                gcId++;
+                millis += 200;
+
+                if (i % 10 == 9) {
+                    id = "GC(" + gcId + ")";
+                    time = uptime(millis);
+                    writer.write(time + "[info][gc           ] " + id + " Concurrent Cycle\n");
+                    writer.write(time + "[info][gc,marking   ] " + id + " Concurrent Mark From Roots\n");
+                    writer.write(uptime(millis + 3) + "[info][gc,marking   ] " + id +
+                                 " Concurrent Mark From Roots 3.109ms\n");
+                    writer.write(uptime(millis + 3) + "[info][gc,start     ] " + id + " Pause Remark\n");
+                    writer.write(uptime(millis + 5) + "[info][gc            ] " + id + " Pause Remark " +
+                                 "300M->300M(4096M) 2.381ms\n");
+                    writer.write(uptime(millis + 5) + "[info][gc,start     ] " + id + " Pause Cleanup\n");
+                    writer.write(uptime(millis + 6) + "[info][gc            ] " + id + " Pause Cleanup " +
+                                 "300M->300M(4096M) 0.154ms\n");
+                    writer.write(uptime(millis + 8) + "[info][gc            ] " + id + " Concurrent Cycle 8.215ms\n");
+                    gcId++;
+                    millis += 50;
+                }
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Generate a jstack thread dump that contains the given number of java threads, each of them has a stack trace
+     * of the given depth. Every fourth thread is blocked on a monitor held by its predecessor.
+     */
+    public static Path threadDump(int threads, int depth) throws IOException {
+        Path file = Files.createTempFile("jifa-benchmark-jstack", ".log");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("2024-01-01 00:00:00\n");
+            writer.write("Full thread dump OpenJDK 64-Bit Server VM (17.0.9+9 mixed mode, sharing):\n\n");
+            for (int i = 0; i < threads; i++) {
+                String tid = String.format(Locale.ROOT, "0x%016x", 0x7fc1c0000000L + i * 0x1000L);
+                String nid = String.format(Locale.ROOT, "0x%x", 0x1000 + i);
+                boolean blocked = i % 4 == 3;
+                String monitor = String.format(Locale.ROOT, "0x%016x", 0x76ab00000L + (blocked ? i - 1 : i) * 0x100L);
+                writer.write("\"worker-" + (i % 64) + "-" + i + "\" #" + (i + 20) + " prio=5 os_prio=0 cpu=" + i +
+                             ".50ms elapsed=100.00s tid=" + tid + " nid=" + nid +
+                             (blocked ? " waiting for monitor entry " : " runnable ") +
+                             "[0x00007000033d8000]\n");
+                writer.write("   java.lang.Thread.State: " +
+                             (blocked ? "BLOCKED (on object monitor)" : "RUNNABLE") + "\n");
+                String pkg = PACKAGES[i % PACKAGES.length];
+                for (int d = 0; d < depth; d++) {
+                    writer.write("\tat " + pkg + ".Component" + (d % 16) + ".method" + ((i + d) % 8) +
+                                 "(Component" + (d % 16) + ".java:" + (d + 10) + ")\n");
+                    if (d == 0) {
+                        writer.write(blocked ? "\t- waiting to lock <" + monitor + "> (a java.lang.Object)\n"
+                                             : "\t- locked <" + monitor + "> (a java.lang.Object)\n");
+                    }
+                }
+                writer.write("\tat java.lang.Thread.run(java.base@17.0.9/Thread.java:833)\n\n");
+            }
+            writer.write("\"VM Thread\" os_prio=0 cpu=10.00ms elapsed=100.00s tid=0x00007fc1c301a000 nid=0x4f03 " +
+                         "runnable\n\n");
+            writer.write("JNI global refs: 15, weak refs: 0\n\n");
+        }
+        return file;
+    }
+
+    /**
+     * Record a JFR file with the given number of busy threads for the given duration.
+     * The threads recurse to different depths so that the recording contains a variety of stack traces.
+     */
+    public static Path jfr(int threads, long durationMillis) throws Exception {
+        Path file = Files.createTempFile("jifa-benchmark", ".jfr");
+        // the 'profile' configuration enables the settings and cpu load events required by the cpu time extractor
+        try (Recording recording = new Recording(Configuration.getConfiguration("profile"))) {
+            recording.enable("jdk.ExecutionSample").withPeriod(Duration.ofMillis(10));
+            recording.start();
+
+            long deadline = System.currentTimeMillis() + durationMillis;
+            CountDownLatch latch = new CountDownLatch(threads);
+            for (int i = 0; i < threads; i++) {
+                int seed = i;
+                Thread thread = new Thread(() -> {
+                    try {
+                        long sink = 0;
+                        int round = 0;
+                        while (System.currentTimeMillis() < deadline) {
+                            sink += burn(1 + (seed + round++) % 24);
+                        }
+                        BLACK_HOLE = sink;
+                    } finally {
+                        latch.countDown();
+                    }
+                }, "jifa-benchmark-" + i);
+                thread.setDaemon(true);
+                thread.start();
+            }
+            latch.await();
+
+            recording.stop();
+            recording.dump(file);
+        }
+        return file;
+    }
+
+    private static long burn(int depth) {
+        if (depth > 0) {
+            return burn(depth - 1) + depth;
+        }
+        long[] values = new long[256];
+        long sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) i * i;
+            sum += values[i] % 7;
+        }
+        return sum;
+    }
+
+    /**
+     * Object graph retained by {@link #heapDump(int)}.
+     */
+    @SuppressWarnings({"unused", "MismatchedQueryAndUpdateOfCollection"})
+    static final class Node {
+
+        private final String name;
+
+        private final byte[] payload;
+
+        private final List<Node> children = new ArrayList<>();
+
+        Node(String name, int payloadSize) {
+            this.name = name;
+            this.payload = new byte[payloadSize];
+        }
+    }
+
+    private static Object RETAINED;
+
+    /**
+     * Dump the heap of the current JVM after allocating a tree of the given number of {@link Node}s.
+     */
+    public static Path heapDump(int nodes) throws IOException {
+        Path directory = Files.createTempDirectory("jifa-benchmark-heap");
+        Path file = directory.resolve("benchmark.hprof");
+        Node root = new Node("root", 0);
+        List<Node> level = new ArrayList<>();
+        level.add(root);
+        int created = 1;
+        while (created < nodes) {
+            List<Node> next = new ArrayList<>();
+            for (Node parent : level) {
+                for (int i = 0; i < 8 && created < nodes; i++) {
+                    Node child = new Node("node-" + created, 16 + created % 512);
+                    parent.children.add(child);
+                    next.add(child);
+                    created++;
+                }
+            }
+            level = next;
+        }
+        RETAINED = root;
+        try {
+            HotSpotDiagnosticMXBean mxBean = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            mxBean.dumpHeap(file.toString(), true);
+        } finally {
+            RETAINED = null;
+        }
+        return file;
+    }
+
+    private static String uptime(long millis) {
+        return String.format(Locale.ROOT, "[%d.%03ds]", millis / 1000, millis % 1000);
+    }
+}
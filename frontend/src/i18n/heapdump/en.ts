@@ -15,6 +15,9 @@ export default {
     labelOfKeepUnreachableObjects: 'Keep Unreachable Objects',
     descOfKeepUnreachableObjects:
       'If this option is enabled, the analyzer will treat the unreachable objects as the unreachable roots, and then analyze the reference relationship in them. Otherwise, no further analysis will be performed on the unreachable objects, but only the statistics of types of the unreachable object, that is Unreachable Objects Histogram.',
+    labelOfBuildStringIndex: 'Build String Index',
+    descOfBuildStringIndex:
+      'If this option is enabled, an index of the values of the strings is built in the background after the analysis and saved beside the index files, then the strings are searched with the index once it is ready.',
     labelOfStrictness: 'Strictness',
     descOfStrictness: "'Strictness' indicates the follow-up action when an error occurred",
     descOfStopStrictness: 'Throw an error and stop analyzing the dump',
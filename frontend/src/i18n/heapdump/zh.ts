@@ -15,6 +15,9 @@ export default {
     labelOfKeepUnreachableObjects: '保留不可达对象',
     descOfKeepUnreachableObjects:
       '如果启用此选项，分析器会将不可达对象视为不可达根，进而分析其中的引用关系。 否则，将不对不可达对象进行进一步的分析，仅统计类型信息，即不可达类视图。',
+    labelOfBuildStringIndex: '构建字符串索引',
+    descOfBuildStringIndex:
+      '如果启用此选项，分析完成后会在后台为字符串的值构建索引并保存在索引文件旁，索引就绪后字符串搜索将使用该索引。',
     labelOfStrictness: '分析失败时的策略',
     descOfStrictness: "'分析失败时的策略' 表示当分析过程中遇到错误时的后续动作",
     descOfStopStrictness: '终止分析',
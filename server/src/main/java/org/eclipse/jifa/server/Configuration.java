@@ -166,6 +166,23 @@ public class Configuration {
      */
     private Set<FileTransferMethod> disabledFileTransferMethods = Collections.emptySet();
 
+    /**
+     * The memory budget in megabytes of the analyzer cache.
+     * Non-positive value means 60% of the max heap size.
+     */
+    private long analyzerCacheMemoryBudget;
+
+    /**
+     * The memory budget in megabytes of concurrent analyzer builds, builds exceeding it are queued.
+     * Non-positive value means 50% of the max heap size.
+     */
+    private long analyzerBuildMemoryBudget;
+
+    /**
+     * Whether to pin the cached analyzers that are serving requests, true by default.
+     */
+    private boolean pinActiveAnalyzers = true;
+
     /**
      * Install the web security filters. Default is true.
      *
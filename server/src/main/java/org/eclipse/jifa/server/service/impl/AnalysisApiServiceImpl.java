@@ -15,8 +15,10 @@ package org.eclipse.jifa.server.service.impl;
 import jakarta.annotation.Nullable;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jifa.analysis.AnalyzerCache;
 import org.eclipse.jifa.analysis.Api;
 import org.eclipse.jifa.analysis.ApiService;
+import org.eclipse.jifa.analysis.BuildScheduler;
 import org.eclipse.jifa.server.ConfigurationAccessor;
 import org.eclipse.jifa.server.Constant;
 import org.eclipse.jifa.server.component.CurrentElasticWorker;
@@ -77,6 +79,8 @@ public class AnalysisApiServiceImpl extends ConfigurationAccessor implements Ana
     @PostConstruct
     private void init() {
         if (isWorker()) {
+            AnalyzerCache.initialize(config.getAnalyzerCacheMemoryBudget() * 1024 * 1024, config.isPinActiveAnalyzers());
+            BuildScheduler.initialize(config.getAnalyzerBuildMemoryBudget() * 1024 * 1024);
             apiService = ApiService.getInstance();
             apis = new HashMap<>();
             Map<String, Set<Api>> supportedApis = apiService.supportedApis();